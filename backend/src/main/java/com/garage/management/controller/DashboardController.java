@@ -1,22 +1,42 @@
 package com.garage.management.controller;
 
 import com.garage.management.service.DashboardService;
+import com.garage.management.service.FinancialRollupService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/dashboard")
 @CrossOrigin(origins = "*")
 public class DashboardController {
     
     private final DashboardService dashboardService;
+    private final FinancialRollupService financialRollupService;
     
-    public DashboardController(DashboardService dashboardService) {
+    public DashboardController(DashboardService dashboardService,
+                               FinancialRollupService financialRollupService) {
         this.dashboardService = dashboardService;
+        this.financialRollupService = financialRollupService;
     }
     
     @GetMapping("/stats")
     public ResponseEntity<DashboardService.DashboardStats> getStats() {
         return ResponseEntity.ok(dashboardService.getStats());
     }
+    
+    @GetMapping("/timeseries")
+    public ResponseEntity<List<FinancialRollupService.TimeseriesPoint>> getTimeseries(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "DAY") FinancialRollupService.Granularity granularity) {
+        try {
+            return ResponseEntity.ok(financialRollupService.getTimeseries(from, to, granularity));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 }
@@ -0,0 +1,18 @@
+package com.garage.management.controller;
+
+import com.garage.management.service.InventoryValuationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/inventory")
+public class InventoryController {
+
+    @Autowired
+    private InventoryValuationService inventoryValuationService;
+
+    @GetMapping("/valuation")
+    public InventoryValuationService.ValuationSummary getValuation() {
+        return inventoryValuationService.getValuation();
+    }
+}
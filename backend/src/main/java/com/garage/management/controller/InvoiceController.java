@@ -5,6 +5,7 @@ import com.garage.management.entity.InvoiceLine;
 import com.garage.management.enums.InvoiceStatus;
 import com.garage.management.repository.InvoiceLineRepository;
 import com.garage.management.repository.InvoiceRepository;
+import com.garage.management.service.InvoiceService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -23,6 +24,9 @@ public class InvoiceController {
     @Autowired
     private InvoiceLineRepository invoiceLineRepository;
 
+    @Autowired
+    private InvoiceService invoiceService;
+
     @GetMapping
     public List<Invoice> getAll() {
         return invoiceRepository.findAll();
@@ -59,21 +63,13 @@ public class InvoiceController {
 
     @PutMapping("/{id}")
     public ResponseEntity<Invoice> update(@PathVariable Long id, @RequestBody Invoice invoice) {
-        return invoiceRepository.findById(id)
-                .map(existing -> {
-                    if (existing.getStatus() == InvoiceStatus.ISSUED || 
-                        existing.getStatus() == InvoiceStatus.PAID) {
-                        return ResponseEntity.badRequest().<Invoice>build();
-                    }
-                    existing.setClient(invoice.getClient());
-                    existing.setCompany(invoice.getCompany());
-                    existing.setDate(invoice.getDate());
-                    existing.setStatus(invoice.getStatus());
-                    existing.setTotalAmount(invoice.getTotalAmount());
-                    existing.setRemainingBalance(invoice.getTotalAmount());
-                    return ResponseEntity.ok(invoiceRepository.save(existing));
-                })
-                .orElse(ResponseEntity.notFound().build());
+        try {
+            return invoiceService.update(id, invoice)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @PostMapping("/{id}/issue")
@@ -84,7 +80,6 @@ public class InvoiceController {
                         return ResponseEntity.badRequest().<Invoice>build();
                     }
                     invoice.setStatus(InvoiceStatus.ISSUED);
-                    invoice.setRemainingBalance(invoice.getTotalAmount());
                     return ResponseEntity.ok(invoiceRepository.save(invoice));
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -115,44 +110,23 @@ public class InvoiceController {
 
     @PostMapping("/{id}/lines")
     public ResponseEntity<InvoiceLine> addLine(@PathVariable Long id, @RequestBody InvoiceLine line) {
-        return invoiceRepository.findById(id)
-                .map(invoice -> {
-                    if (invoice.getStatus() != InvoiceStatus.DRAFT) {
-                        return ResponseEntity.badRequest().<InvoiceLine>build();
-                    }
-                    line.setInvoice(invoice);
-                    InvoiceLine saved = invoiceLineRepository.save(line);
-                    recalculateInvoiceTotal(id);
-                    return ResponseEntity.ok(saved);
-                })
-                .orElse(ResponseEntity.notFound().build());
+        try {
+            return invoiceService.addLine(id, line)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @DeleteMapping("/lines/{lineId}")
     public ResponseEntity<Void> deleteLine(@PathVariable Long lineId) {
-        return invoiceLineRepository.findById(lineId)
-                .map(line -> {
-                    if (line.getInvoice().getStatus() != InvoiceStatus.DRAFT) {
-                        return ResponseEntity.badRequest().<Void>build();
-                    }
-                    Long invoiceId = line.getInvoice().getId();
-                    invoiceLineRepository.delete(line);
-                    recalculateInvoiceTotal(invoiceId);
-                    return ResponseEntity.ok().<Void>build();
-                })
-                .orElse(ResponseEntity.notFound().build());
-    }
-
-    private void recalculateInvoiceTotal(Long invoiceId) {
-        invoiceRepository.findById(invoiceId).ifPresent(invoice -> {
-            List<InvoiceLine> lines = invoiceLineRepository.findByInvoiceId(invoiceId);
-            BigDecimal total = lines.stream()
-                    .map(InvoiceLine::getLineTotal)
-                    .filter(t -> t != null)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            invoice.setTotalAmount(total);
-            invoice.setRemainingBalance(total);
-            invoiceRepository.save(invoice);
-        });
+        try {
+            return invoiceService.deleteLine(lineId)
+                    ? ResponseEntity.ok().build()
+                    : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 }
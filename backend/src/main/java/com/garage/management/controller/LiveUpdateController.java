@@ -0,0 +1,44 @@
+package com.garage.management.controller;
+
+import com.garage.management.security.StreamTicketService;
+import com.garage.management.service.LiveUpdateService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/live")
+public class LiveUpdateController {
+
+    @Autowired
+    private LiveUpdateService liveUpdateService;
+
+    @Autowired
+    private StreamTicketService streamTicketService;
+
+    // Tickets open either event stream, including the low-stock one
+    @PostMapping("/ticket")
+    public StreamTicket issueTicket(Authentication authentication) {
+        StreamTicket ticket = new StreamTicket();
+        ticket.ticket = streamTicketService.issue(authentication.getName(), authentication.getAuthorities());
+        ticket.expiresInSeconds = streamTicketService.getTtlSeconds();
+        return ticket;
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return liveUpdateService.subscribe();
+    }
+
+    @GetMapping("/subscribers")
+    public int getSubscriberCount() {
+        return liveUpdateService.getSubscriberCount();
+    }
+
+    public static class StreamTicket {
+        public String ticket;
+        public long expiresInSeconds;
+    }
+}
@@ -0,0 +1,71 @@
+package com.garage.management.controller;
+
+import com.garage.management.service.ProductMarginService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/margins")
+@CrossOrigin(origins = "*")
+public class MarginController {
+
+    private final ProductMarginService marginService;
+
+    public MarginController(ProductMarginService marginService) {
+        this.marginService = marginService;
+    }
+
+    @GetMapping("/products")
+    public ResponseEntity<List<ProductMarginService.ItemMargin>> getProductMargins(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long categoryId) {
+        try {
+            return ResponseEntity.ok(marginService.getProductMargins(from, to, categoryId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/categories")
+    public ResponseEntity<List<ProductMarginService.ItemMargin>> getCategoryMargins(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.ok(marginService.getCategoryMargins(from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/monthly")
+    public ResponseEntity<List<ProductMarginService.MonthlyMargin>> getMonthlyMargins(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long productId,
+            @RequestParam(required = false) Long categoryId) {
+        try {
+            return ResponseEntity.ok(marginService.getMonthlyMargins(from, to, productId, categoryId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/work-orders/{id}")
+    public ResponseEntity<List<ProductMarginService.ItemMargin>> getWorkOrderMargins(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(marginService.getWorkOrderMargins(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PostMapping("/rebuild")
+    public int rebuild() {
+        return marginService.rebuild();
+    }
+}
@@ -101,23 +101,34 @@ public class PaymentController {
     }
 
     @PostMapping("/{id}/allocations")
-    public PaymentAllocation addAllocation(@PathVariable Long id, @RequestBody PaymentAllocation allocation) {
-        return paymentRepository.findById(id)
-                .map(payment -> {
-                    allocation.setPayment(payment);
-                    return paymentAllocationRepository.save(allocation);
-                })
-                .orElseThrow(() -> new RuntimeException("Payment not found"));
+    public ResponseEntity<PaymentAllocation> addAllocation(@PathVariable Long id, @RequestBody PaymentAllocation allocation) {
+        try {
+            Long invoiceId = allocation.getInvoice() != null ? allocation.getInvoice().getId() : null;
+            return ResponseEntity.ok(paymentService.addAllocation(id, invoiceId, allocation.getAllocatedAmount()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @DeleteMapping("/allocations/{allocationId}")
     public ResponseEntity<Void> deleteAllocation(@PathVariable Long allocationId) {
-        return paymentAllocationRepository.findById(allocationId)
-                .map(allocation -> {
-                    paymentAllocationRepository.delete(allocation);
-                    return ResponseEntity.ok().<Void>build();
-                })
-                .orElse(ResponseEntity.notFound().build());
+        try {
+            paymentService.deleteAllocation(allocationId);
+            return ResponseEntity.ok().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/balance-verification")
+    public ResponseEntity<PaymentService.BalanceVerification> getBalanceVerification() {
+        PaymentService.BalanceVerification verification = paymentService.getLastVerification();
+        return verification != null ? ResponseEntity.ok(verification) : ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/balance-verification/run")
+    public PaymentService.BalanceVerification runBalanceVerification(@RequestParam(defaultValue = "false") boolean repair) {
+        return paymentService.verifyBalances(repair);
     }
 
     public static class ApplyPaymentRequest {
@@ -0,0 +1,27 @@
+package com.garage.management.controller;
+
+import com.garage.management.service.PriceResolutionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/prices")
+@CrossOrigin(origins = "*")
+public class PriceController {
+
+    @Autowired
+    private PriceResolutionService priceResolutionService;
+
+    @PostMapping("/resolve")
+    public ResponseEntity<List<BigDecimal>> resolve(@RequestBody List<PriceResolutionService.PriceQuery> queries) {
+        try {
+            return ResponseEntity.ok(priceResolutionService.resolve(queries));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -7,12 +7,15 @@ import com.garage.management.repository.ProductRepository;
 import com.garage.management.service.ProductPriceService;
 import com.garage.management.service.StockService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/products")
@@ -101,21 +104,50 @@ public class ProductController {
         return ResponseEntity.ok(history);
     }
 
+    @PostMapping("/reprice")
+    public ResponseEntity<ProductPriceService.RepricingResult> reprice(@RequestBody ProductPriceService.RepricingRequest request) {
+        try {
+            return ResponseEntity.ok(productPriceService.reprice(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{id}/computed-stock")
-    public ResponseEntity<Integer> getComputedStock(@PathVariable Long id) {
-        Integer stock = stockService.computeCurrentStock(id);
+    public ResponseEntity<Integer> getComputedStock(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+        Integer stock = asOf != null
+                ? stockService.computeStockAsOf(id, asOf)
+                : stockService.computeCurrentStock(id);
         return ResponseEntity.ok(stock);
     }
 
+    @GetMapping("/computed-stock")
+    public Map<Long, Integer> getComputedStocks(
+            @RequestParam List<Long> ids,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+        return asOf != null
+                ? stockService.computeStocksAsOf(ids, asOf)
+                : stockService.computeCurrentStocks(ids);
+    }
+
     @PostMapping
     public Product create(@RequestBody Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        stockService.publishStockLevel(saved.getId());
+        return saved;
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<Product> update(@PathVariable Long id, @RequestBody Product product) {
         return productRepository.findById(id)
                 .map(existing -> {
+                    // Stock only moves through the ledger, so a different value cannot be saved here
+                    if (product.getCurrentStock() != null
+                            && !product.getCurrentStock().equals(existing.getCurrentStock())) {
+                        return ResponseEntity.badRequest().<Product>build();
+                    }
                     existing.setCode(product.getCode());
                     existing.setName(product.getName());
                     existing.setBarcode(product.getBarcode());
@@ -127,7 +159,9 @@ public class ProductController {
                     existing.setVolume(product.getVolume());
                     existing.setMinStock(product.getMinStock());
                     existing.setActive(product.getActive());
-                    return ResponseEntity.ok(productRepository.save(existing));
+                    Product saved = productRepository.save(existing);
+                    stockService.publishStockLevel(id);
+                    return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -138,6 +172,7 @@ public class ProductController {
                 .map(product -> {
                     product.setActive(false);
                     productRepository.save(product);
+                    stockService.publishStockLevel(id);
                     return ResponseEntity.ok().<Void>build();
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -0,0 +1,37 @@
+package com.garage.management.controller;
+
+import com.garage.management.entity.SupplierOrder;
+import com.garage.management.service.ReorderSuggestionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/reorder")
+public class ReorderController {
+
+    @Autowired
+    private ReorderSuggestionService reorderSuggestionService;
+
+    @GetMapping("/suggestions")
+    public List<ReorderSuggestionService.SupplierSuggestion> getSuggestions() {
+        return reorderSuggestionService.getSuggestions();
+    }
+
+    @PostMapping("/draft-orders")
+    public List<SupplierOrder> createDraftOrders(@RequestParam(required = false) List<Long> supplierId) {
+        return reorderSuggestionService.createDraftOrders(supplierId);
+    }
+
+    @PostMapping("/rollup")
+    public ResponseEntity<ReorderSuggestionService.RollupResult> rollUp() {
+        ReorderSuggestionService.RollupResult result = reorderSuggestionService.rollUp();
+        if (result == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.ok(result);
+    }
+}
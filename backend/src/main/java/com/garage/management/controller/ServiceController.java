@@ -2,15 +2,18 @@ package com.garage.management.controller;
 
 import com.garage.management.entity.ServiceEntity;
 import com.garage.management.entity.ServicePriceHistory;
+import com.garage.management.event.PriceChangedEvent;
 import com.garage.management.repository.ServiceRepository;
 import com.garage.management.service.ServicePriceService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/api/services")
@@ -23,6 +26,9 @@ public class ServiceController {
     @Autowired
     private ServicePriceService servicePriceService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @GetMapping
     public List<ServiceEntity> getAll() {
         return serviceRepository.findByActiveTrue();
@@ -62,12 +68,17 @@ public class ServiceController {
     public ResponseEntity<ServiceEntity> update(@PathVariable Long id, @RequestBody ServiceEntity service) {
         return serviceRepository.findById(id)
                 .map(existing -> {
+                    boolean priceChanged = !Objects.equals(existing.getSellingPrice(), service.getSellingPrice());
                     existing.setCode(service.getCode());
                     existing.setName(service.getName());
                     existing.setCategory(service.getCategory());
                     existing.setSellingPrice(service.getSellingPrice());
                     existing.setActive(service.getActive());
-                    return ResponseEntity.ok(serviceRepository.save(existing));
+                    ServiceEntity saved = serviceRepository.save(existing);
+                    if (priceChanged) {
+                        eventPublisher.publishEvent(PriceChangedEvent.forService(id));
+                    }
+                    return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -0,0 +1,97 @@
+package com.garage.management.controller;
+
+import com.garage.management.entity.ServiceKit;
+import com.garage.management.entity.ServiceKitItem;
+import com.garage.management.repository.ServiceKitRepository;
+import com.garage.management.service.ServiceKitService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/service-kits")
+@CrossOrigin(origins = "*")
+public class ServiceKitController {
+
+    @Autowired
+    private ServiceKitRepository serviceKitRepository;
+
+    @Autowired
+    private ServiceKitService serviceKitService;
+
+    @GetMapping
+    public List<ServiceKit> getAll() {
+        return serviceKitRepository.findByActiveTrue();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ServiceKit> getById(@PathVariable Long id) {
+        return serviceKitRepository.findById(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id}/items")
+    public List<ServiceKitItem> getItems(@PathVariable Long id) {
+        return serviceKitService.getItems(id);
+    }
+
+    @GetMapping("/{id}/price")
+    public ResponseEntity<ServiceKitService.KitPrice> getPrice(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(serviceKitService.getKitPrice(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PostMapping
+    public ServiceKit create(@RequestBody ServiceKit kit) {
+        return serviceKitRepository.save(kit);
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<ServiceKit> update(@PathVariable Long id, @RequestBody ServiceKit kit) {
+        return serviceKitService.update(id, kit)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@PathVariable Long id) {
+        if (!serviceKitService.deactivate(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    @PostMapping("/{id}/items")
+    public ResponseEntity<ServiceKitItem> addItem(@PathVariable Long id, @RequestBody AddKitItemRequest request) {
+        try {
+            return ResponseEntity.ok(serviceKitService.addItem(id, request.productId, request.serviceId,
+                    request.quantity, request.discountPercent));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @DeleteMapping("/items/{itemId}")
+    public ResponseEntity<Void> deleteItem(@PathVariable Long itemId) {
+        try {
+            serviceKitService.removeItem(itemId);
+            return ResponseEntity.ok().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    public static class AddKitItemRequest {
+        public Long productId;
+        public Long serviceId;
+        public Integer quantity;
+        public BigDecimal discountPercent;
+    }
+}
@@ -0,0 +1,32 @@
+package com.garage.management.controller;
+
+import com.garage.management.service.LowStockMonitor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/stock/low-stock")
+public class StockAlertController {
+
+    @Autowired
+    private LowStockMonitor lowStockMonitor;
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return lowStockMonitor.subscribe();
+    }
+
+    @GetMapping("/count")
+    public long getCount() {
+        return lowStockMonitor.getCount();
+    }
+
+    @GetMapping("/ids")
+    public Set<Long> getProductIds() {
+        return lowStockMonitor.getProductIds();
+    }
+}
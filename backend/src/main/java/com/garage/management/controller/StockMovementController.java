@@ -1,11 +1,19 @@
 package com.garage.management.controller;
 
+import com.garage.management.dto.StockMovementFilter;
+import com.garage.management.dto.StockMovementPage;
 import com.garage.management.entity.StockMovement;
+import com.garage.management.service.StockImportService;
 import com.garage.management.service.StockMovementService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.sql.SQLException;
 import java.util.List;
 
 @RestController
@@ -15,9 +23,32 @@ public class StockMovementController {
     @Autowired
     private StockMovementService stockMovementService;
 
+    @Autowired
+    private StockImportService stockImportService;
+
     @GetMapping
-    public List<StockMovement> getAll() {
-        return stockMovementService.findAll();
+    public List<StockMovement> getAll(StockMovementFilter filter,
+                                      @RequestParam(defaultValue = "200") int limit) {
+        return stockMovementService.findRecent(filter, limit);
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<StockMovementPage> getPage(StockMovementFilter filter,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "200") int limit) {
+        try {
+            return ResponseEntity.ok(stockMovementService.findPage(filter, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> export(StockMovementFilter filter) {
+        StreamingResponseBody body = out -> stockMovementService.exportMovements(filter, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
     }
 
     @GetMapping("/{id}")
@@ -32,6 +63,29 @@ public class StockMovementController {
         return stockMovementService.findByProductId(productId);
     }
 
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson", "text/plain", "application/octet-stream"})
+    public ResponseEntity<StockImportService.ImportResult> importMovements(
+            HttpServletRequest request,
+            @RequestParam(required = false) StockImportService.Format format,
+            @RequestParam(defaultValue = "false") boolean allOrNothing) throws IOException, SQLException {
+        if (format == null) {
+            String contentType = request.getContentType();
+            format = contentType != null && contentType.contains("ndjson")
+                    ? StockImportService.Format.NDJSON
+                    : StockImportService.Format.CSV;
+        }
+        try {
+            StockImportService.ImportResult result =
+                    stockImportService.importMovements(request.getInputStream(), format, allOrNothing);
+            if (allOrNothing && result.rejected > 0) {
+                return ResponseEntity.unprocessableEntity().body(result);
+            }
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping
     public StockMovement create(@RequestBody StockMovement movement) {
         return stockMovementService.createMovement(movement);
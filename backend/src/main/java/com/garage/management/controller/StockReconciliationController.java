@@ -0,0 +1,29 @@
+package com.garage.management.controller;
+
+import com.garage.management.service.StockReconciliationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/stock-reconciliation")
+public class StockReconciliationController {
+
+    @Autowired
+    private StockReconciliationService stockReconciliationService;
+
+    @GetMapping
+    public StockReconciliationService.ReconciliationStatus getStatus() {
+        return stockReconciliationService.getStatus();
+    }
+
+    @PostMapping("/run")
+    public ResponseEntity<StockReconciliationService.ReconciliationStatus> run(
+            @RequestParam(defaultValue = "false") boolean repair) {
+        if (!stockReconciliationService.start(repair)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(stockReconciliationService.getStatus());
+        }
+        return ResponseEntity.accepted().body(stockReconciliationService.getStatus());
+    }
+}
@@ -7,12 +7,16 @@ import com.garage.management.enums.WorkOrderStatus;
 import com.garage.management.repository.WorkOrderProductLineRepository;
 import com.garage.management.repository.WorkOrderRepository;
 import com.garage.management.repository.WorkOrderServiceLineRepository;
+import com.garage.management.service.ServiceKitService;
 import com.garage.management.service.WorkOrderService;
+import com.garage.management.service.WorkOrderTotalJobService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -32,6 +36,12 @@ public class WorkOrderController {
     @Autowired
     private WorkOrderService workOrderService;
 
+    @Autowired
+    private WorkOrderTotalJobService workOrderTotalJobService;
+
+    @Autowired
+    private ServiceKitService serviceKitService;
+
     @GetMapping
     public List<WorkOrder> getAll() {
         return workOrderRepository.findAll();
@@ -73,22 +83,19 @@ public class WorkOrderController {
 
     @PostMapping
     public WorkOrder create(@RequestBody WorkOrder workOrder) {
+        workOrder.setTotalAmount(BigDecimal.ZERO);
         return workOrderRepository.save(workOrder);
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<WorkOrder> update(@PathVariable Long id, @RequestBody WorkOrder workOrder) {
-        return workOrderRepository.findById(id)
-                .map(existing -> {
-                    existing.setClient(workOrder.getClient());
-                    existing.setVehicle(workOrder.getVehicle());
-                    existing.setDate(workOrder.getDate());
-                    existing.setStatus(workOrder.getStatus());
-                    existing.setTotalAmount(workOrder.getTotalAmount());
-                    existing.setDescription(workOrder.getDescription());
-                    return ResponseEntity.ok(workOrderRepository.save(existing));
-                })
-                .orElse(ResponseEntity.notFound().build());
+        try {
+            return workOrderService.update(id, workOrder)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @DeleteMapping("/{id}")
@@ -121,39 +128,78 @@ public class WorkOrderController {
         }
     }
 
+    @PostMapping("/{id}/lines")
+    public ResponseEntity<WorkOrderService.BulkLinesResult> addLines(@PathVariable Long id, @RequestBody BulkLinesRequest request) {
+        List<WorkOrderService.LineInput> productLines = new ArrayList<>();
+        List<WorkOrderService.LineInput> serviceLines = new ArrayList<>();
+        if (request.productLines != null) {
+            request.productLines.forEach(line -> productLines.add(
+                    new WorkOrderService.LineInput(line.productId, line.quantity, line.discountPercent)));
+        }
+        if (request.serviceLines != null) {
+            request.serviceLines.forEach(line -> serviceLines.add(
+                    new WorkOrderService.LineInput(line.serviceId, line.quantity, line.discountPercent)));
+        }
+        try {
+            return ResponseEntity.ok(workOrderService.addLines(id, productLines, serviceLines));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/{id}/kits/{kitId}")
+    public ResponseEntity<WorkOrderService.BulkLinesResult> applyKit(@PathVariable Long id, @PathVariable Long kitId) {
+        try {
+            return ResponseEntity.ok(serviceKitService.applyKit(id, kitId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @DeleteMapping("/service-lines/{lineId}")
     public ResponseEntity<Void> deleteServiceLine(@PathVariable Long lineId) {
-        return serviceLineRepository.findById(lineId)
-                .map(line -> {
-                    Long workOrderId = line.getWorkOrder().getId();
-                    serviceLineRepository.delete(line);
-                    workOrderService.recalculateWorkOrderTotal(workOrderId);
-                    return ResponseEntity.ok().<Void>build();
-                })
-                .orElse(ResponseEntity.notFound().build());
+        try {
+            workOrderService.deleteServiceLine(lineId);
+            return ResponseEntity.ok().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
     }
 
     @DeleteMapping("/product-lines/{lineId}")
     public ResponseEntity<Void> deleteProductLine(@PathVariable Long lineId) {
-        return productLineRepository.findById(lineId)
-                .map(line -> {
-                    Long workOrderId = line.getWorkOrder().getId();
-                    productLineRepository.delete(line);
-                    workOrderService.recalculateWorkOrderTotal(workOrderId);
-                    return ResponseEntity.ok().<Void>build();
-                })
-                .orElse(ResponseEntity.notFound().build());
+        try {
+            workOrderService.deleteProductLine(lineId);
+            return ResponseEntity.ok().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
     }
 
     @PostMapping("/recalculate-all")
-    public ResponseEntity<String> recalculateAllTotals() {
-        List<WorkOrder> allOrders = workOrderRepository.findAll();
-        int count = 0;
-        for (WorkOrder order : allOrders) {
-            workOrderService.recalculateWorkOrderTotal(order.getId());
-            count++;
-        }
-        return ResponseEntity.ok("Recalculated totals for " + count + " work orders");
+    public ResponseEntity<WorkOrderTotalJobService.JobStatus> recalculateAllTotals() {
+        return workOrderTotalJobService.start()
+                .map(status -> ResponseEntity.accepted().body(status))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(workOrderTotalJobService.getActiveStatus().orElse(null)));
+    }
+
+    @GetMapping("/recalculate-all/{jobId}")
+    public ResponseEntity<WorkOrderTotalJobService.JobStatus> getRecalculationStatus(@PathVariable Long jobId) {
+        return workOrderTotalJobService.getStatus(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/total-verification")
+    public ResponseEntity<WorkOrderService.TotalVerification> getTotalVerification() {
+        WorkOrderService.TotalVerification verification = workOrderService.getLastVerification();
+        return verification != null ? ResponseEntity.ok(verification) : ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/total-verification/run")
+    public WorkOrderService.TotalVerification runTotalVerification(@RequestParam(defaultValue = "false") boolean repair) {
+        return workOrderService.verifyTotals(repair);
     }
 
     public static class AddServiceLineRequest {
@@ -167,4 +213,9 @@ public class WorkOrderController {
         public Integer quantity;
         public BigDecimal discountPercent;
     }
+
+    public static class BulkLinesRequest {
+        public List<AddProductLineRequest> productLines;
+        public List<AddServiceLineRequest> serviceLines;
+    }
 }
@@ -0,0 +1,47 @@
+package com.garage.management.dto;
+
+import com.garage.management.enums.StockMovementType;
+
+import java.time.LocalDateTime;
+
+public class StockMovementExportRow {
+    private Long id;
+    private Long productId;
+    private String productCode;
+    private String productName;
+    private LocalDateTime date;
+    private Integer quantityDelta;
+    private StockMovementType type;
+    private String reason;
+    private String sourceType;
+    private Long sourceId;
+    private LocalDateTime createdAt;
+
+    public StockMovementExportRow(Long id, Long productId, String productCode, String productName,
+                                  LocalDateTime date, Integer quantityDelta, StockMovementType type, String reason,
+                                  String sourceType, Long sourceId, LocalDateTime createdAt) {
+        this.id = id;
+        this.productId = productId;
+        this.productCode = productCode;
+        this.productName = productName;
+        this.date = date;
+        this.quantityDelta = quantityDelta;
+        this.type = type;
+        this.reason = reason;
+        this.sourceType = sourceType;
+        this.sourceId = sourceId;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() { return id; }
+    public Long getProductId() { return productId; }
+    public String getProductCode() { return productCode; }
+    public String getProductName() { return productName; }
+    public LocalDateTime getDate() { return date; }
+    public Integer getQuantityDelta() { return quantityDelta; }
+    public StockMovementType getType() { return type; }
+    public String getReason() { return reason; }
+    public String getSourceType() { return sourceType; }
+    public Long getSourceId() { return sourceId; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
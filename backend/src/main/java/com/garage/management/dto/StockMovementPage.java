@@ -0,0 +1,20 @@
+package com.garage.management.dto;
+
+import com.garage.management.entity.StockMovement;
+
+import java.util.List;
+
+public class StockMovementPage {
+    private List<StockMovement> items;
+    private String nextCursor;
+
+    public StockMovementPage(List<StockMovement> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<StockMovement> getItems() { return items; }
+    public void setItems(List<StockMovement> items) { this.items = items; }
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
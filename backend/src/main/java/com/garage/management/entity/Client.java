@@ -1,10 +1,12 @@
 package com.garage.management.entity;
 
+import com.garage.management.event.DashboardDataListener;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "clients")
+@EntityListeners(DashboardDataListener.class)
 public class Client {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
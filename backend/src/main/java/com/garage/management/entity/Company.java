@@ -1,10 +1,12 @@
 package com.garage.management.entity;
 
+import com.garage.management.event.DashboardDataListener;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "companies")
+@EntityListeners(DashboardDataListener.class)
 public class Company {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
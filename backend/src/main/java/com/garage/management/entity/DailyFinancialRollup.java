@@ -0,0 +1,50 @@
+package com.garage.management.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "daily_financial_rollups")
+public class DailyFinancialRollup {
+    @Id
+    private LocalDate day;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal invoicedAmount;
+
+    @Column(nullable = false)
+    private Integer invoiceCount;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal paymentsAmount;
+
+    @Column(nullable = false)
+    private Integer paymentCount;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal expensesAmount;
+
+    @Column(nullable = false)
+    private Integer expenseCount;
+
+    private LocalDateTime updatedAt;
+
+    public LocalDate getDay() { return day; }
+    public void setDay(LocalDate day) { this.day = day; }
+    public BigDecimal getInvoicedAmount() { return invoicedAmount; }
+    public void setInvoicedAmount(BigDecimal invoicedAmount) { this.invoicedAmount = invoicedAmount; }
+    public Integer getInvoiceCount() { return invoiceCount; }
+    public void setInvoiceCount(Integer invoiceCount) { this.invoiceCount = invoiceCount; }
+    public BigDecimal getPaymentsAmount() { return paymentsAmount; }
+    public void setPaymentsAmount(BigDecimal paymentsAmount) { this.paymentsAmount = paymentsAmount; }
+    public Integer getPaymentCount() { return paymentCount; }
+    public void setPaymentCount(Integer paymentCount) { this.paymentCount = paymentCount; }
+    public BigDecimal getExpensesAmount() { return expensesAmount; }
+    public void setExpensesAmount(BigDecimal expensesAmount) { this.expensesAmount = expensesAmount; }
+    public Integer getExpenseCount() { return expenseCount; }
+    public void setExpenseCount(Integer expenseCount) { this.expenseCount = expenseCount; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,34 @@
+package com.garage.management.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import java.math.BigDecimal;
+
+@Entity
+@Immutable
+@Table(name = "dashboard_counters")
+public class DashboardCounters {
+    @Id
+    private Integer id;
+
+    private Long openWorkOrders;
+    private BigDecimal outstandingAmount;
+    private BigDecimal monthlyExpenses;
+    private Long totalCompanies;
+    private Long totalClients;
+    private Long totalVehicles;
+    private Long totalProducts;
+    private Long totalServices;
+    private Long totalSuppliers;
+
+    public Integer getId() { return id; }
+    public Long getOpenWorkOrders() { return openWorkOrders; }
+    public BigDecimal getOutstandingAmount() { return outstandingAmount; }
+    public BigDecimal getMonthlyExpenses() { return monthlyExpenses; }
+    public Long getTotalCompanies() { return totalCompanies; }
+    public Long getTotalClients() { return totalClients; }
+    public Long getTotalVehicles() { return totalVehicles; }
+    public Long getTotalProducts() { return totalProducts; }
+    public Long getTotalServices() { return totalServices; }
+    public Long getTotalSuppliers() { return totalSuppliers; }
+}
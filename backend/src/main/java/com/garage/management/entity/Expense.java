@@ -1,6 +1,9 @@
 package com.garage.management.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.garage.management.enums.PaymentMethod;
+import com.garage.management.event.DashboardDataListener;
+import com.garage.management.event.FinancialRollupListener;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -8,6 +11,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "expenses")
+@EntityListeners({DashboardDataListener.class, FinancialRollupListener.class})
 public class Expense {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -35,6 +39,9 @@ public class Expense {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    @Transient
+    private LocalDate loadedDate;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -46,6 +53,11 @@ public class Expense {
         updatedAt = LocalDateTime.now();
     }
 
+    @PostLoad
+    protected void onLoad() {
+        loadedDate = date;
+    }
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     public LocalDate getDate() { return date; }
@@ -64,4 +76,6 @@ public class Expense {
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    @JsonIgnore
+    public LocalDate getLoadedDate() { return loadedDate; }
 }
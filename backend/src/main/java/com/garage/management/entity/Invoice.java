@@ -1,6 +1,9 @@
 package com.garage.management.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.garage.management.enums.InvoiceStatus;
+import com.garage.management.event.DashboardDataListener;
+import com.garage.management.event.FinancialRollupListener;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -8,6 +11,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "invoices")
+@EntityListeners({DashboardDataListener.class, FinancialRollupListener.class})
 public class Invoice {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -27,15 +31,21 @@ public class Invoice {
     @Enumerated(EnumType.STRING)
     private InvoiceStatus status = InvoiceStatus.DRAFT;
 
-    @Column(precision = 10, scale = 2)
+    // Set on insert, then moved only by InvoiceService together with the balance
+    @Column(precision = 10, scale = 2, updatable = false)
     private BigDecimal totalAmount = BigDecimal.ZERO;
 
-    @Column(precision = 10, scale = 2)
+    // Moved only by PaymentService's allocations and InvoiceService's total changes
+    @Column(precision = 10, scale = 2, updatable = false)
     private BigDecimal remainingBalance = BigDecimal.ZERO;
 
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // Date as loaded, so a date change can refresh the rollup of the day it moved away from
+    @Transient
+    private LocalDate loadedDate;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -47,6 +57,11 @@ public class Invoice {
         updatedAt = LocalDateTime.now();
     }
 
+    @PostLoad
+    protected void onLoad() {
+        loadedDate = date;
+    }
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     public Client getClient() { return client; }
@@ -65,4 +80,6 @@ public class Invoice {
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    @JsonIgnore
+    public LocalDate getLoadedDate() { return loadedDate; }
 }
@@ -1,7 +1,9 @@
 package com.garage.management.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.garage.management.enums.PayerType;
 import com.garage.management.enums.PaymentMethod;
+import com.garage.management.event.FinancialRollupListener;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -9,6 +11,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "payments")
+@EntityListeners(FinancialRollupListener.class)
 public class Payment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -36,6 +39,9 @@ public class Payment {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    @Transient
+    private LocalDate loadedDate;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -47,6 +53,11 @@ public class Payment {
         updatedAt = LocalDateTime.now();
     }
 
+    @PostLoad
+    protected void onLoad() {
+        loadedDate = date;
+    }
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     public PayerType getPayerType() { return payerType; }
@@ -65,4 +76,6 @@ public class Payment {
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    @JsonIgnore
+    public LocalDate getLoadedDate() { return loadedDate; }
 }
@@ -1,5 +1,6 @@
 package com.garage.management.entity;
 
+import com.garage.management.event.DashboardDataListener;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -7,6 +8,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "products")
+@EntityListeners(DashboardDataListener.class)
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -36,7 +38,10 @@ public class Product {
     private String volume;
 
     private Integer minStock = 0;
-    private Integer currentStock = 0;
+
+    // Left null when a request body omits it, so edits can tell an absent value from zero
+    @Column(updatable = false)
+    private Integer currentStock;
 
     private Boolean active = true;
 
@@ -45,6 +50,9 @@ public class Product {
 
     @PrePersist
     protected void onCreate() {
+        if (currentStock == null) {
+            currentStock = 0;
+        }
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
     }
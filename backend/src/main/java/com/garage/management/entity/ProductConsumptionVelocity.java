@@ -0,0 +1,46 @@
+package com.garage.management.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "product_consumption_velocity")
+public class ProductConsumptionVelocity {
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "consumed_7d", nullable = false)
+    private Integer consumed7d;
+
+    @Column(name = "consumed_30d", nullable = false)
+    private Integer consumed30d;
+
+    @Column(name = "consumed_90d", nullable = false)
+    private Integer consumed90d;
+
+    @Column(nullable = false, precision = 12, scale = 4)
+    private BigDecimal dailyVelocity;
+
+    @Column(nullable = false)
+    private LocalDate asOfDay;
+
+    private LocalDateTime updatedAt;
+
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+    public Integer getConsumed7d() { return consumed7d; }
+    public void setConsumed7d(Integer consumed7d) { this.consumed7d = consumed7d; }
+    public Integer getConsumed30d() { return consumed30d; }
+    public void setConsumed30d(Integer consumed30d) { this.consumed30d = consumed30d; }
+    public Integer getConsumed90d() { return consumed90d; }
+    public void setConsumed90d(Integer consumed90d) { this.consumed90d = consumed90d; }
+    public BigDecimal getDailyVelocity() { return dailyVelocity; }
+    public void setDailyVelocity(BigDecimal dailyVelocity) { this.dailyVelocity = dailyVelocity; }
+    public LocalDate getAsOfDay() { return asOfDay; }
+    public void setAsOfDay(LocalDate asOfDay) { this.asOfDay = asOfDay; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
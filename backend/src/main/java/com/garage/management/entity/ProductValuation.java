@@ -0,0 +1,35 @@
+package com.garage.management.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "product_valuations")
+public class ProductValuation {
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(nullable = false, precision = 14, scale = 4)
+    private BigDecimal averageCost;
+
+    @Column(nullable = false, precision = 16, scale = 4)
+    private BigDecimal fifoValue;
+
+    private LocalDateTime updatedAt;
+
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+    public BigDecimal getAverageCost() { return averageCost; }
+    public void setAverageCost(BigDecimal averageCost) { this.averageCost = averageCost; }
+    public BigDecimal getFifoValue() { return fifoValue; }
+    public void setFifoValue(BigDecimal fifoValue) { this.fifoValue = fifoValue; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
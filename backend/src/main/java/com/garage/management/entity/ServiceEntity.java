@@ -1,11 +1,13 @@
 package com.garage.management.entity;
 
+import com.garage.management.event.DashboardDataListener;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "services")
+@EntityListeners(DashboardDataListener.class)
 public class ServiceEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,46 @@
+package com.garage.management.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+
+// Exactly one of product and service is set
+@Entity
+@Table(name = "service_kit_items")
+public class ServiceKitItem {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "kit_id", nullable = false)
+    private ServiceKit kit;
+
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "product_id")
+    private Product product;
+
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "service_id")
+    private ServiceEntity service;
+
+    @Column(nullable = false)
+    private Integer quantity = 1;
+
+    @Column(precision = 5, scale = 2)
+    private BigDecimal discountPercent = BigDecimal.ZERO;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public ServiceKit getKit() { return kit; }
+    public void setKit(ServiceKit kit) { this.kit = kit; }
+    public Product getProduct() { return product; }
+    public void setProduct(Product product) { this.product = product; }
+    public ServiceEntity getService() { return service; }
+    public void setService(ServiceEntity service) { this.service = service; }
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+    public BigDecimal getDiscountPercent() { return discountPercent; }
+    public void setDiscountPercent(BigDecimal discountPercent) { this.discountPercent = discountPercent; }
+}
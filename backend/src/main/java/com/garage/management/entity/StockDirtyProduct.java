@@ -0,0 +1,20 @@
+package com.garage.management.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "stock_dirty_products")
+public class StockDirtyProduct {
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(nullable = false)
+    private LocalDateTime markedAt;
+
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+    public LocalDateTime getMarkedAt() { return markedAt; }
+    public void setMarkedAt(LocalDateTime markedAt) { this.markedAt = markedAt; }
+}
@@ -7,8 +7,10 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "stock_movements")
 public class StockMovement {
+    // One id per movement: snapshot compaction relies on ids following creation order
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_movements_seq")
+    @SequenceGenerator(name = "stock_movements_seq", sequenceName = "stock_movements_id_seq", allocationSize = 1)
     private Long id;
 
     @ManyToOne(fetch = FetchType.EAGER)
@@ -0,0 +1,60 @@
+package com.garage.management.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "stock_movements_archive")
+public class StockMovementArchive {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private LocalDate movementMonth;
+
+    @Column(nullable = false)
+    private Integer movementCount;
+
+    @Column(nullable = false)
+    private Long quantityTotal;
+
+    @Column(nullable = false)
+    private Long firstMovementId;
+
+    @Column(nullable = false)
+    private Long lastMovementId;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(nullable = false)
+    private String movements;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+    public LocalDate getMovementMonth() { return movementMonth; }
+    public void setMovementMonth(LocalDate movementMonth) { this.movementMonth = movementMonth; }
+    public Integer getMovementCount() { return movementCount; }
+    public void setMovementCount(Integer movementCount) { this.movementCount = movementCount; }
+    public Long getQuantityTotal() { return quantityTotal; }
+    public void setQuantityTotal(Long quantityTotal) { this.quantityTotal = quantityTotal; }
+    public Long getFirstMovementId() { return firstMovementId; }
+    public void setFirstMovementId(Long firstMovementId) { this.firstMovementId = firstMovementId; }
+    public Long getLastMovementId() { return lastMovementId; }
+    public void setLastMovementId(Long lastMovementId) { this.lastMovementId = lastMovementId; }
+    public String getMovements() { return movements; }
+    public void setMovements(String movements) { this.movements = movements; }
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+    public void setArchivedAt(LocalDateTime archivedAt) { this.archivedAt = archivedAt; }
+}
@@ -1,10 +1,12 @@
 package com.garage.management.entity;
 
+import com.garage.management.event.DashboardDataListener;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "suppliers")
+@EntityListeners(DashboardDataListener.class)
 public class Supplier {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -1,11 +1,13 @@
 package com.garage.management.entity;
 
 import com.garage.management.enums.VehicleStatus;
+import com.garage.management.event.DashboardDataListener;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "vehicles")
+@EntityListeners(DashboardDataListener.class)
 public class Vehicle {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -1,6 +1,8 @@
 package com.garage.management.entity;
 
 import com.garage.management.enums.WorkOrderStatus;
+import com.garage.management.event.DashboardDataListener;
+import com.garage.management.event.WorkOrderBoardListener;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -8,6 +10,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "work_orders")
+@EntityListeners({DashboardDataListener.class, WorkOrderBoardListener.class})
 public class WorkOrder {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -27,7 +30,8 @@ public class WorkOrder {
     @Enumerated(EnumType.STRING)
     private WorkOrderStatus status = WorkOrderStatus.DRAFT;
 
-    @Column(precision = 10, scale = 2)
+    // Maintained by line deltas in WorkOrderService, never written from the entity
+    @Column(precision = 10, scale = 2, updatable = false)
     private BigDecimal totalAmount = BigDecimal.ZERO;
 
     private String description;
@@ -33,6 +33,10 @@ public class WorkOrderProductLine {
     @Column(precision = 10, scale = 2)
     private BigDecimal lineTotal;
 
+    // Buying price in effect when the line was created
+    @Column(precision = 10, scale = 2)
+    private BigDecimal unitCost;
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     public WorkOrder getWorkOrder() { return workOrder; }
@@ -49,4 +53,6 @@ public class WorkOrderProductLine {
     public void setFinalUnitPrice(BigDecimal finalUnitPrice) { this.finalUnitPrice = finalUnitPrice; }
     public BigDecimal getLineTotal() { return lineTotal; }
     public void setLineTotal(BigDecimal lineTotal) { this.lineTotal = lineTotal; }
+    public BigDecimal getUnitCost() { return unitCost; }
+    public void setUnitCost(BigDecimal unitCost) { this.unitCost = unitCost; }
 }
@@ -0,0 +1,82 @@
+package com.garage.management.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "work_order_total_jobs")
+public class WorkOrderTotalJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    private Long minId;
+
+    private Long maxId;
+
+    @Column(nullable = false)
+    private Integer chunkSize;
+
+    @Column(nullable = false)
+    private Integer chunksTotal = 0;
+
+    @Column(nullable = false)
+    private Integer chunksDone = 0;
+
+    @Column(nullable = false)
+    private Long totalWorkOrders = 0L;
+
+    @Column(nullable = false)
+    private Long processedWorkOrders = 0L;
+
+    @Column(nullable = false)
+    private Long correctedWorkOrders = 0L;
+
+    @Column(precision = 12, scale = 2)
+    private BigDecimal workOrdersPerSecond;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    @Column(nullable = false)
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    private LocalDateTime updatedAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public Long getMinId() { return minId; }
+    public void setMinId(Long minId) { this.minId = minId; }
+    public Long getMaxId() { return maxId; }
+    public void setMaxId(Long maxId) { this.maxId = maxId; }
+    public Integer getChunkSize() { return chunkSize; }
+    public void setChunkSize(Integer chunkSize) { this.chunkSize = chunkSize; }
+    public Integer getChunksTotal() { return chunksTotal; }
+    public void setChunksTotal(Integer chunksTotal) { this.chunksTotal = chunksTotal; }
+    public Integer getChunksDone() { return chunksDone; }
+    public void setChunksDone(Integer chunksDone) { this.chunksDone = chunksDone; }
+    public Long getTotalWorkOrders() { return totalWorkOrders; }
+    public void setTotalWorkOrders(Long totalWorkOrders) { this.totalWorkOrders = totalWorkOrders; }
+    public Long getProcessedWorkOrders() { return processedWorkOrders; }
+    public void setProcessedWorkOrders(Long processedWorkOrders) { this.processedWorkOrders = processedWorkOrders; }
+    public Long getCorrectedWorkOrders() { return correctedWorkOrders; }
+    public void setCorrectedWorkOrders(Long correctedWorkOrders) { this.correctedWorkOrders = correctedWorkOrders; }
+    public BigDecimal getWorkOrdersPerSecond() { return workOrdersPerSecond; }
+    public void setWorkOrdersPerSecond(BigDecimal workOrdersPerSecond) { this.workOrdersPerSecond = workOrdersPerSecond; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
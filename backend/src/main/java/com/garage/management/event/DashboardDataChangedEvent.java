@@ -0,0 +1,12 @@
+package com.garage.management.event;
+
+public class DashboardDataChangedEvent {
+
+    private final String entityName;
+
+    public DashboardDataChangedEvent(String entityName) {
+        this.entityName = entityName;
+    }
+
+    public String getEntityName() { return entityName; }
+}
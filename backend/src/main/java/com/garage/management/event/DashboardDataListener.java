@@ -0,0 +1,25 @@
+package com.garage.management.event;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+// Attached to every entity a dashboard figure is computed from
+@Component
+public class DashboardDataListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public DashboardDataListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onEntityChanged(Object entity) {
+        eventPublisher.publishEvent(new DashboardDataChangedEvent(entity.getClass().getSimpleName()));
+    }
+}
@@ -0,0 +1,15 @@
+package com.garage.management.event;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+public class FinancialDataChangedEvent {
+
+    private final Set<LocalDate> days;
+
+    public FinancialDataChangedEvent(Set<LocalDate> days) {
+        this.days = days;
+    }
+
+    public Set<LocalDate> getDays() { return days; }
+}
@@ -0,0 +1,52 @@
+package com.garage.management.event;
+
+import com.garage.management.entity.Expense;
+import com.garage.management.entity.Invoice;
+import com.garage.management.entity.Payment;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+// Reports the days whose financial rollup an invoice, payment or expense write touched:
+// the current date and, after a date change, the date the row was loaded with
+@Component
+public class FinancialRollupListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public FinancialRollupListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onEntityChanged(Object entity) {
+        Set<LocalDate> days = new HashSet<>();
+        if (entity instanceof Invoice invoice) {
+            addDays(days, invoice.getDate(), invoice.getLoadedDate());
+        } else if (entity instanceof Payment payment) {
+            addDays(days, payment.getDate(), payment.getLoadedDate());
+        } else if (entity instanceof Expense expense) {
+            addDays(days, expense.getDate(), expense.getLoadedDate());
+        }
+        if (!days.isEmpty()) {
+            eventPublisher.publishEvent(new FinancialDataChangedEvent(days));
+        }
+    }
+
+    private void addDays(Set<LocalDate> days, LocalDate date, LocalDate loadedDate) {
+        if (date != null) {
+            days.add(date);
+        }
+        if (loadedDate != null) {
+            days.add(loadedDate);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.garage.management.event;
+
+import java.util.Set;
+
+// Published when the selling price of products or services changes
+public class PriceChangedEvent {
+
+    private final Set<Long> productIds;
+    private final Set<Long> serviceIds;
+
+    public PriceChangedEvent(Set<Long> productIds, Set<Long> serviceIds) {
+        this.productIds = productIds;
+        this.serviceIds = serviceIds;
+    }
+
+    public static PriceChangedEvent forProduct(Long productId) {
+        return new PriceChangedEvent(Set.of(productId), Set.of());
+    }
+
+    public static PriceChangedEvent forService(Long serviceId) {
+        return new PriceChangedEvent(Set.of(), Set.of(serviceId));
+    }
+
+    public Set<Long> getProductIds() { return productIds; }
+    public Set<Long> getServiceIds() { return serviceIds; }
+}
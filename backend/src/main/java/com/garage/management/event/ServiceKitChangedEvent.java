@@ -0,0 +1,13 @@
+package com.garage.management.event;
+
+// Published when a kit's items or details change; the kit's cached price is dropped on commit
+public class ServiceKitChangedEvent {
+
+    private final Long kitId;
+
+    public ServiceKitChangedEvent(Long kitId) {
+        this.kitId = kitId;
+    }
+
+    public Long getKitId() { return kitId; }
+}
@@ -0,0 +1,33 @@
+package com.garage.management.event;
+
+public class StockLevelChangedEvent {
+    private final Long productId;
+    private final Integer currentStock;
+    private final Integer minStock;
+    private final Boolean active;
+
+    public StockLevelChangedEvent(Long productId, Integer currentStock, Integer minStock, Boolean active) {
+        this.productId = productId;
+        this.currentStock = currentStock;
+        this.minStock = minStock;
+        this.active = active;
+    }
+
+    // Same rule as ProductRepository.findLowStockProducts
+    public static boolean isLowStock(Integer stock, Integer minStock, Boolean active) {
+        return Boolean.TRUE.equals(active) && stock != null && minStock != null && stock <= minStock;
+    }
+
+    public static boolean crossesThreshold(Integer previousStock, Integer currentStock, Integer minStock, Boolean active) {
+        return isLowStock(previousStock, minStock, active) != isLowStock(currentStock, minStock, active);
+    }
+
+    public boolean isLowStock() {
+        return isLowStock(currentStock, minStock, active);
+    }
+
+    public Long getProductId() { return productId; }
+    public Integer getCurrentStock() { return currentStock; }
+    public Integer getMinStock() { return minStock; }
+    public Boolean getActive() { return active; }
+}
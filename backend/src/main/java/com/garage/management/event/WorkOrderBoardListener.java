@@ -0,0 +1,34 @@
+package com.garage.management.event;
+
+import com.garage.management.entity.WorkOrder;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+@Component
+public class WorkOrderBoardListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public WorkOrderBoardListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onWorkOrderSaved(WorkOrder workOrder) {
+        publish(workOrder, false);
+    }
+
+    @PostRemove
+    public void onWorkOrderRemoved(WorkOrder workOrder) {
+        publish(workOrder, true);
+    }
+
+    private void publish(WorkOrder workOrder, boolean removed) {
+        eventPublisher.publishEvent(new WorkOrderChangedEvent(workOrder.getId(), workOrder.getStatus(),
+                workOrder.getDate(), workOrder.getTotalAmount(), removed));
+    }
+}
@@ -0,0 +1,30 @@
+package com.garage.management.event;
+
+import com.garage.management.enums.WorkOrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class WorkOrderChangedEvent {
+
+    private final Long workOrderId;
+    private final WorkOrderStatus status;
+    private final LocalDate date;
+    private final BigDecimal totalAmount;
+    private final boolean removed;
+
+    public WorkOrderChangedEvent(Long workOrderId, WorkOrderStatus status, LocalDate date,
+                                 BigDecimal totalAmount, boolean removed) {
+        this.workOrderId = workOrderId;
+        this.status = status;
+        this.date = date;
+        this.totalAmount = totalAmount;
+        this.removed = removed;
+    }
+
+    public Long getWorkOrderId() { return workOrderId; }
+    public WorkOrderStatus getStatus() { return status; }
+    public LocalDate getDate() { return date; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public boolean isRemoved() { return removed; }
+}
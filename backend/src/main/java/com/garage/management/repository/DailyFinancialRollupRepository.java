@@ -0,0 +1,76 @@
+package com.garage.management.repository;
+
+import com.garage.management.entity.DailyFinancialRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyFinancialRollupRepository extends JpaRepository<DailyFinancialRollup, LocalDate> {
+
+    // Each listed day is recomputed from its own rows only, which the date indexes keep cheap
+    @Modifying
+    @Query(value = "INSERT INTO daily_financial_rollups " +
+           "(day, invoiced_amount, invoice_count, payments_amount, payment_count, expenses_amount, expense_count, updated_at) " +
+           "SELECT d.day, " +
+           "(SELECT COALESCE(SUM(i.total_amount), 0) FROM invoices i WHERE i.date = d.day AND i.status NOT IN ('DRAFT', 'CANCELLED')), " +
+           "(SELECT COUNT(*) FROM invoices i WHERE i.date = d.day AND i.status NOT IN ('DRAFT', 'CANCELLED')), " +
+           "(SELECT COALESCE(SUM(p.total_amount), 0) FROM payments p WHERE p.date = d.day), " +
+           "(SELECT COUNT(*) FROM payments p WHERE p.date = d.day), " +
+           "(SELECT COALESCE(SUM(e.amount), 0) FROM expenses e WHERE e.date = d.day), " +
+           "(SELECT COUNT(*) FROM expenses e WHERE e.date = d.day), NOW() " +
+           "FROM unnest(CAST(:days AS DATE[])) AS d(day) " +
+           "ON CONFLICT (day) DO UPDATE SET invoiced_amount = EXCLUDED.invoiced_amount, " +
+           "invoice_count = EXCLUDED.invoice_count, payments_amount = EXCLUDED.payments_amount, " +
+           "payment_count = EXCLUDED.payment_count, expenses_amount = EXCLUDED.expenses_amount, " +
+           "expense_count = EXCLUDED.expense_count, updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int refreshDays(@Param("days") LocalDate[] days);
+
+    @Query("SELECT i.date FROM Invoice i WHERE i.updatedAt >= :since " +
+           "UNION SELECT p.date FROM Payment p WHERE p.updatedAt >= :since " +
+           "UNION SELECT e.date FROM Expense e WHERE e.updatedAt >= :since")
+    List<LocalDate> findDaysChangedSince(@Param("since") LocalDateTime since);
+
+    @Query(value = "SELECT last_run_started_at FROM financial_rollup_state WHERE id = 1", nativeQuery = true)
+    LocalDateTime findLastRunStartedAt();
+
+    @Modifying
+    @Query(value = "UPDATE financial_rollup_state SET last_run_started_at = :startedAt, updated_at = NOW() " +
+           "WHERE id = 1", nativeQuery = true)
+    int markRunStarted(@Param("startedAt") LocalDateTime startedAt);
+
+    // Buckets come from generate_series so empty periods are returned as zeros; the first
+    // and last bucket only count the days inside the requested range
+    @Query(value = "SELECT CAST(b.bucket AS DATE) AS \"bucketStart\", " +
+           "COALESCE(SUM(r.invoiced_amount), 0) AS \"invoicedAmount\", " +
+           "CAST(COALESCE(SUM(r.invoice_count), 0) AS INTEGER) AS \"invoiceCount\", " +
+           "COALESCE(SUM(r.payments_amount), 0) AS \"paymentsAmount\", " +
+           "CAST(COALESCE(SUM(r.payment_count), 0) AS INTEGER) AS \"paymentCount\", " +
+           "COALESCE(SUM(r.expenses_amount), 0) AS \"expensesAmount\", " +
+           "CAST(COALESCE(SUM(r.expense_count), 0) AS INTEGER) AS \"expenseCount\" " +
+           "FROM generate_series(date_trunc(:unit, CAST(:from AS DATE)), CAST(:to AS DATE), " +
+           "CAST('1 ' || :unit AS INTERVAL)) AS b(bucket) " +
+           "LEFT JOIN daily_financial_rollups r ON r.day >= b.bucket " +
+           "AND r.day < b.bucket + CAST('1 ' || :unit AS INTERVAL) AND r.day >= :from AND r.day <= :to " +
+           "GROUP BY b.bucket ORDER BY b.bucket", nativeQuery = true)
+    List<TimeseriesBucket> findTimeseries(@Param("unit") String unit,
+                                          @Param("from") LocalDate from,
+                                          @Param("to") LocalDate to);
+
+    interface TimeseriesBucket {
+        LocalDate getBucketStart();
+        BigDecimal getInvoicedAmount();
+        Integer getInvoiceCount();
+        BigDecimal getPaymentsAmount();
+        Integer getPaymentCount();
+        BigDecimal getExpensesAmount();
+        Integer getExpenseCount();
+    }
+}
@@ -0,0 +1,13 @@
+package com.garage.management.repository;
+
+import com.garage.management.entity.DashboardCounters;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DashboardCountersRepository extends JpaRepository<DashboardCounters, Integer> {
+
+    @Query("SELECT c FROM DashboardCounters c")
+    DashboardCounters findCounters();
+}
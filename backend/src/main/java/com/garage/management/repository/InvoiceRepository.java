@@ -3,11 +3,14 @@ package com.garage.management.repository;
 import com.garage.management.entity.Invoice;
 import com.garage.management.enums.InvoiceStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -20,9 +23,83 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     List<Invoice> findByClientIdAndStatusNotOrderByDateAsc(Long clientId, InvoiceStatus status);
     List<Invoice> findByCompanyIdAndStatusNotOrderByDateAsc(Long companyId, InvoiceStatus status);
     
+    // Locked so that two payments cannot both allocate against the same balance. Rows are
+    // locked in id order like lockBalances and only then sorted oldest first for allocation
+    @Query(value = "SELECT CAST(id AS BIGINT) AS \"invoiceId\", remaining_balance AS \"remainingBalance\" " +
+           "FROM (SELECT id, date, remaining_balance FROM invoices " +
+           "WHERE (client_id = :clientId OR company_id = :companyId) AND status NOT IN ('DRAFT', 'CANCELLED', 'PAID') " +
+           "AND remaining_balance > 0 ORDER BY id FOR UPDATE) l ORDER BY date, id", nativeQuery = true)
+    List<InvoiceBalance> lockOpenBalances(@Param("clientId") Long clientId, @Param("companyId") Long companyId);
+    
+    @Query(value = "SELECT CAST(id AS BIGINT) AS \"invoiceId\", remaining_balance AS \"remainingBalance\" " +
+           "FROM invoices WHERE id IN :invoiceIds ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<InvoiceBalance> lockBalances(@Param("invoiceIds") Collection<Long> invoiceIds);
+    
+    // Amounts are summed per invoice first so each row is updated once; a negative amount
+    // gives back balance when an allocation is removed. Cancelled invoices keep their status,
+    // and the dates come back so the financial rollups of those days can be refreshed
+    @Query(value = "UPDATE invoices i SET remaining_balance = i.remaining_balance - t.amount, " +
+           "status = CASE WHEN i.status = 'CANCELLED' THEN i.status " +
+           "WHEN i.remaining_balance - t.amount <= 0 THEN 'PAID' ELSE 'ISSUED' END, updated_at = NOW() " +
+           "FROM (SELECT u.invoice_id, SUM(u.amount) AS amount " +
+           "FROM unnest(CAST(:invoiceIds AS BIGINT[]), CAST(:amounts AS NUMERIC[])) AS u(invoice_id, amount) " +
+           "GROUP BY u.invoice_id) t " +
+           "WHERE i.id = t.invoice_id RETURNING i.date AS \"date\"", nativeQuery = true)
+    List<InvoiceDate> applyAllocations(@Param("invoiceIds") Long[] invoiceIds, @Param("amounts") BigDecimal[] amounts);
+    
+    // Total and balance move in one statement, so the delta is always taken against the
+    // total actually stored
+    @Query(value = "UPDATE invoices SET total_amount = CAST(:totalAmount AS NUMERIC), " +
+           "remaining_balance = COALESCE(remaining_balance, 0) + COALESCE(CAST(:totalAmount AS NUMERIC), 0) " +
+           "- COALESCE(total_amount, 0), updated_at = NOW() WHERE id = :invoiceId " +
+           "RETURNING total_amount AS \"totalAmount\", remaining_balance AS \"remainingBalance\"", nativeQuery = true)
+    InvoiceTotals setTotalAmount(@Param("invoiceId") Long invoiceId, @Param("totalAmount") BigDecimal totalAmount);
+    
+    @Query(value = "UPDATE invoices i SET total_amount = t.total, " +
+           "remaining_balance = COALESCE(i.remaining_balance, 0) + t.total - COALESCE(i.total_amount, 0), updated_at = NOW() " +
+           "FROM (SELECT COALESCE(SUM(line_total), 0) AS total FROM invoice_lines WHERE invoice_id = :invoiceId) t " +
+           "WHERE i.id = :invoiceId " +
+           "RETURNING i.total_amount AS \"totalAmount\", i.remaining_balance AS \"remainingBalance\"", nativeQuery = true)
+    InvoiceTotals recomputeTotalAmount(@Param("invoiceId") Long invoiceId);
+    
+    String ALLOCATED_BALANCES = "SELECT i.id, COALESCE(i.total_amount, 0) - COALESCE(SUM(a.allocated_amount), 0) AS expected " +
+           "FROM invoices i LEFT JOIN payment_allocations a ON a.invoice_id = i.id ";
+    
+    @Query(value = "SELECT CAST(i.id AS BIGINT) AS \"invoiceId\", i.remaining_balance AS \"remainingBalance\", " +
+           "t.expected AS \"expectedBalance\" FROM invoices i " +
+           "JOIN (" + ALLOCATED_BALANCES + "GROUP BY i.id) t ON t.id = i.id " +
+           "WHERE i.remaining_balance IS DISTINCT FROM t.expected ORDER BY i.id", nativeQuery = true)
+    List<BalanceDrift> findBalanceDrift();
+    
+    @Modifying
+    @Query(value = "UPDATE invoices w SET remaining_balance = t.expected, updated_at = NOW() " +
+           "FROM (" + ALLOCATED_BALANCES + "WHERE i.id IN :invoiceIds GROUP BY i.id) t " +
+           "WHERE w.id = t.id AND w.remaining_balance IS DISTINCT FROM t.expected", nativeQuery = true)
+    int recomputeBalances(@Param("invoiceIds") Collection<Long> invoiceIds);
+    
     @Query("SELECT SUM(i.remainingBalance) FROM Invoice i WHERE i.status != 'PAID' AND i.status != 'CANCELLED'")
     BigDecimal getTotalOutstandingAmount();
     
     @Query("SELECT COUNT(i) FROM Invoice i WHERE i.status != 'PAID' AND i.status != 'CANCELLED' AND i.remainingBalance > 0")
     Long countUnpaidInvoices();
+    
+    interface InvoiceBalance {
+        Long getInvoiceId();
+        BigDecimal getRemainingBalance();
+    }
+    
+    interface InvoiceDate {
+        LocalDate getDate();
+    }
+    
+    interface InvoiceTotals {
+        BigDecimal getTotalAmount();
+        BigDecimal getRemainingBalance();
+    }
+    
+    interface BalanceDrift {
+        Long getInvoiceId();
+        BigDecimal getRemainingBalance();
+        BigDecimal getExpectedBalance();
+    }
 }
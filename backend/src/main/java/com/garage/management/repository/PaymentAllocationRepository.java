@@ -2,12 +2,35 @@ package com.garage.management.repository;
 
 import com.garage.management.entity.PaymentAllocation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PaymentAllocationRepository extends JpaRepository<PaymentAllocation, Long> {
     List<PaymentAllocation> findByPaymentId(Long paymentId);
     List<PaymentAllocation> findByInvoiceId(Long invoiceId);
+    
+    @Modifying
+    @Query(value = "INSERT INTO payment_allocations (payment_id, invoice_id, allocated_amount) " +
+           "SELECT :paymentId, t.invoice_id, t.amount FROM unnest(CAST(:invoiceIds AS BIGINT[]), " +
+           "CAST(:amounts AS NUMERIC[])) WITH ORDINALITY AS t(invoice_id, amount, ord) " +
+           "ORDER BY t.ord", nativeQuery = true)
+    int insertAllocations(@Param("paymentId") Long paymentId, @Param("invoiceIds") Long[] invoiceIds,
+                          @Param("amounts") BigDecimal[] amounts);
+    
+    @Query(value = "DELETE FROM payment_allocations WHERE id = :allocationId " +
+           "RETURNING CAST(invoice_id AS BIGINT) AS \"invoiceId\", allocated_amount AS \"allocatedAmount\"",
+           nativeQuery = true)
+    Optional<RemovedAllocation> deleteReturningAmount(@Param("allocationId") Long allocationId);
+    
+    interface RemovedAllocation {
+        Long getInvoiceId();
+        BigDecimal getAllocatedAmount();
+    }
 }
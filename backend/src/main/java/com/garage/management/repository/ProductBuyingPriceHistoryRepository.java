@@ -6,7 +6,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,4 +24,40 @@ public interface ProductBuyingPriceHistoryRepository extends JpaRepository<Produ
     @Query("SELECT pbph FROM ProductBuyingPriceHistory pbph WHERE pbph.product.id = :productId " +
            "AND pbph.endDate IS NULL ORDER BY pbph.startDate DESC")
     Optional<ProductBuyingPriceHistory> findActiveForProduct(@Param("productId") Long productId);
+    
+    // Buying price in effect on the date, or the product's own buying price when no history covers it
+    @Query(value = "SELECT CAST(p.id AS BIGINT) AS \"id\", COALESCE((SELECT h.price FROM product_buying_price_history h " +
+           "WHERE h.product_id = p.id AND h.start_date <= :date AND (h.end_date IS NULL OR h.end_date >= :date) " +
+           "ORDER BY h.start_date DESC LIMIT 1), p.buying_price) AS \"price\" FROM products p WHERE p.id IN (:productIds)",
+           nativeQuery = true)
+    List<ProductRepository.ItemPrice> findUnitCosts(@Param("productIds") Collection<Long> productIds,
+                                                    @Param("date") LocalDate date);
+    
+    String REPRICED = "WITH priced AS (SELECT p.id, p.code, p.name, c.price AS old_price, " +
+           "GREATEST(ROUND(CASE WHEN CAST(:percent AS BOOLEAN) THEN c.price * (1 + CAST(:value AS NUMERIC) / 100) " +
+           "ELSE c.price + CAST(:value AS NUMERIC) END, 2), 0) AS new_price " +
+           "FROM products p CROSS JOIN LATERAL (SELECT COALESCE((SELECT h.price FROM product_buying_price_history h " +
+           "WHERE h.product_id = p.id AND h.end_date IS NULL ORDER BY h.start_date DESC LIMIT 1), p.buying_price) AS price) c " +
+           "WHERE " + ProductRepository.REPRICING_FILTER + " AND c.price IS NOT NULL) ";
+    
+    String REPRICED_COLUMNS = "SELECT id AS \"productId\", code AS \"code\", name AS \"name\", " +
+           "old_price AS \"oldPrice\", new_price AS \"newPrice\" FROM priced ORDER BY id";
+    
+    @Query(value = REPRICED + REPRICED_COLUMNS, nativeQuery = true)
+    List<ProductPriceHistoryRepository.RepricedProduct> previewRepricing(
+            @Param("categoryId") Long categoryId, @Param("brand") String brand, @Param("supplierId") Long supplierId,
+            @Param("percent") boolean percent, @Param("value") BigDecimal value);
+    
+    @Query(value = REPRICED +
+           ", closed AS (UPDATE product_buying_price_history h SET end_date = CAST(:effectiveDate AS DATE) - 1 " +
+           "FROM priced WHERE h.product_id = priced.id AND h.end_date IS NULL RETURNING h.id) " +
+           ", opened AS (INSERT INTO product_buying_price_history (product_id, start_date, end_date, price, created_at) " +
+           "SELECT id, CAST(:effectiveDate AS DATE), NULL, new_price, NOW() FROM priced RETURNING id) " +
+           ", updated AS (UPDATE products p SET buying_price = priced.new_price, updated_at = NOW() " +
+           "FROM priced WHERE p.id = priced.id RETURNING p.id) " +
+           REPRICED_COLUMNS, nativeQuery = true)
+    List<ProductPriceHistoryRepository.RepricedProduct> applyRepricing(
+            @Param("categoryId") Long categoryId, @Param("brand") String brand, @Param("supplierId") Long supplierId,
+            @Param("percent") boolean percent, @Param("value") BigDecimal value,
+            @Param("effectiveDate") LocalDate effectiveDate);
 }
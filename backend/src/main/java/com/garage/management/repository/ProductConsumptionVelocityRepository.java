@@ -0,0 +1,137 @@
+package com.garage.management.repository;
+
+import com.garage.management.entity.ProductConsumptionVelocity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProductConsumptionVelocityRepository extends JpaRepository<ProductConsumptionVelocity, Long> {
+
+    @Query(value = "SELECT rolled_through FROM consumption_rollup_state WHERE id = 1", nativeQuery = true)
+    LocalDate findRolledThrough();
+
+    @Query(value = "SELECT last_run_started_at FROM consumption_rollup_state WHERE id = 1", nativeQuery = true)
+    LocalDateTime findLastRunStartedAt();
+
+    @Modifying
+    @Query(value = "UPDATE consumption_rollup_state SET rolled_through = GREATEST(rolled_through, :day), " +
+           "updated_at = NOW() WHERE id = 1", nativeQuery = true)
+    int advanceRolledThrough(@Param("day") LocalDate day);
+
+    @Modifying
+    @Query(value = "UPDATE consumption_rollup_state SET last_run_started_at = :startedAt, updated_at = NOW() " +
+           "WHERE id = 1", nativeQuery = true)
+    int markRunStarted(@Param("startedAt") LocalDateTime startedAt);
+
+    // Work orders are completed or edited after the day they are dated, so their days are
+    // rolled up again even when they are already behind rolled_through
+    @Query("SELECT DISTINCT w.date FROM WorkOrder w WHERE w.updatedAt >= :since AND w.date >= :from AND w.date <= :to " +
+           "ORDER BY w.date")
+    List<LocalDate> findWorkOrderDaysChangedSince(@Param("since") LocalDateTime since,
+                                                  @Param("from") LocalDate from,
+                                                  @Param("to") LocalDate to);
+
+    @Modifying
+    @Query(value = "DELETE FROM product_consumption_daily WHERE day = :day", nativeQuery = true)
+    int deleteDay(@Param("day") LocalDate day);
+
+    // Movements that belong to a work order are already counted through its lines
+    @Modifying
+    @Query(value = "INSERT INTO product_consumption_daily (product_id, day, movement_quantity, work_order_quantity) " +
+           "SELECT c.product_id, :day, SUM(c.movement_quantity), SUM(c.work_order_quantity) FROM (" +
+           "SELECT m.product_id, -m.quantity_delta AS movement_quantity, 0 AS work_order_quantity " +
+           "FROM stock_movements m WHERE m.date >= :dayStart AND m.date < :dayEnd AND m.quantity_delta < 0 " +
+           "AND m.source_type IS DISTINCT FROM 'WORK_ORDER' " +
+           "UNION ALL " +
+           "SELECT l.product_id, 0, l.quantity FROM work_order_product_lines l " +
+           "JOIN work_orders w ON w.id = l.work_order_id " +
+           "WHERE w.date = :day AND w.status IN ('COMPLETED', 'INVOICED') AND l.quantity > 0) c " +
+           "GROUP BY c.product_id", nativeQuery = true)
+    int rollUpDay(@Param("day") LocalDate day,
+                  @Param("dayStart") LocalDateTime dayStart,
+                  @Param("dayEnd") LocalDateTime dayEnd);
+
+    @Modifying
+    @Query(value = "DELETE FROM product_consumption_daily WHERE day < :before", nativeQuery = true)
+    int pruneDaysBefore(@Param("before") LocalDate before);
+
+    // Recent weeks weigh more than the quarter, so a product that picks up is reordered
+    // before its 90 day average catches up
+    @Modifying
+    @Query(value = "INSERT INTO product_consumption_velocity " +
+           "(product_id, consumed_7d, consumed_30d, consumed_90d, daily_velocity, as_of_day, updated_at) " +
+           "SELECT t.product_id, t.c7, t.c30, t.c90, " +
+           "0.5 * t.c7 / 7.0 + 0.3 * t.c30 / 30.0 + 0.2 * t.c90 / 90.0, :asOf, NOW() FROM (" +
+           "SELECT p.id AS product_id, " +
+           "CAST(COALESCE(SUM(d.quantity) FILTER (WHERE d.day > :since7), 0) AS INTEGER) AS c7, " +
+           "CAST(COALESCE(SUM(d.quantity) FILTER (WHERE d.day > :since30), 0) AS INTEGER) AS c30, " +
+           "CAST(COALESCE(SUM(d.quantity), 0) AS INTEGER) AS c90 " +
+           "FROM products p LEFT JOIN (" +
+           "SELECT product_id, day, movement_quantity + work_order_quantity AS quantity " +
+           "FROM product_consumption_daily WHERE day > :since90 AND day <= :asOf) d ON d.product_id = p.id " +
+           "WHERE p.id BETWEEN :fromId AND :toId GROUP BY p.id) t " +
+           "ON CONFLICT (product_id) DO UPDATE SET consumed_7d = EXCLUDED.consumed_7d, " +
+           "consumed_30d = EXCLUDED.consumed_30d, consumed_90d = EXCLUDED.consumed_90d, " +
+           "daily_velocity = EXCLUDED.daily_velocity, as_of_day = EXCLUDED.as_of_day, updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    int refreshVelocity(@Param("fromId") Long fromId,
+                        @Param("toId") Long toId,
+                        @Param("asOf") LocalDate asOf,
+                        @Param("since7") LocalDate since7,
+                        @Param("since30") LocalDate since30,
+                        @Param("since90") LocalDate since90);
+
+    // Stock already on open supplier orders counts as covered. The supplier, its delivery
+    // time and the unit cost come from the product's most recent non-cancelled supplier order;
+    // the target covers the delivery time plus the coverage period on top of min stock.
+    @Query(value = "SELECT r.product_id AS \"productId\", r.code AS \"productCode\", r.name AS \"productName\", " +
+           "r.current_stock AS \"currentStock\", r.min_stock AS \"minStock\", r.on_order AS \"onOrder\", " +
+           "r.consumed_7d AS \"consumed7d\", r.consumed_30d AS \"consumed30d\", r.consumed_90d AS \"consumed90d\", " +
+           "r.daily_velocity AS \"dailyVelocity\", r.suggested AS \"suggestedQuantity\", " +
+           "r.supplier_id AS \"supplierId\", r.supplier_name AS \"supplierName\", r.unit_cost AS \"unitCost\" FROM (" +
+           "SELECT n.*, s.supplier_id, s.supplier_name, COALESCE(s.unit_cost, n.buying_price) AS unit_cost, " +
+           "CAST(CEIL(n.daily_velocity * (:coverageDays + COALESCE(s.delivery_days, 0))) AS INTEGER) " +
+           "+ n.min_stock - n.current_stock - n.on_order AS suggested FROM (" +
+           "SELECT p.id AS product_id, p.code, p.name, COALESCE(p.current_stock, 0) AS current_stock, " +
+           "COALESCE(p.min_stock, 0) AS min_stock, p.buying_price, COALESCE(o.on_order, 0) AS on_order, " +
+           "v.consumed_7d, v.consumed_30d, v.consumed_90d, v.daily_velocity " +
+           "FROM product_consumption_velocity v JOIN products p ON p.id = v.product_id " +
+           "LEFT JOIN (SELECT l.product_id, CAST(SUM(l.quantity) AS INTEGER) AS on_order FROM supplier_order_lines l " +
+           "JOIN supplier_orders so ON so.id = l.supplier_order_id WHERE so.status IN ('PENDING', 'ORDERED') " +
+           "GROUP BY l.product_id) o ON o.product_id = p.id " +
+           "WHERE p.active = TRUE AND v.daily_velocity > 0) n " +
+           "LEFT JOIN LATERAL (SELECT so.supplier_id, sp.name AS supplier_name, " +
+           "sp.estimated_delivery_time AS delivery_days, l.unit_cost " +
+           "FROM supplier_order_lines l JOIN supplier_orders so ON so.id = l.supplier_order_id " +
+           "JOIN suppliers sp ON sp.id = so.supplier_id " +
+           "WHERE l.product_id = n.product_id AND so.status <> 'CANCELLED' " +
+           "ORDER BY so.order_date DESC, so.id DESC LIMIT 1) s ON TRUE) r " +
+           "WHERE r.suggested > 0 " +
+           "ORDER BY r.supplier_name NULLS LAST, r.supplier_id, r.name", nativeQuery = true)
+    List<ReorderCandidate> findReorderCandidates(@Param("coverageDays") int coverageDays);
+
+    interface ReorderCandidate {
+        Long getProductId();
+        String getProductCode();
+        String getProductName();
+        Integer getCurrentStock();
+        Integer getMinStock();
+        Integer getOnOrder();
+        Integer getConsumed7d();
+        Integer getConsumed30d();
+        Integer getConsumed90d();
+        BigDecimal getDailyVelocity();
+        Integer getSuggestedQuantity();
+        Long getSupplierId();
+        String getSupplierName();
+        BigDecimal getUnitCost();
+    }
+}
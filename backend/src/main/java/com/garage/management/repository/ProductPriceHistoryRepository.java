@@ -6,7 +6,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,4 +24,58 @@ public interface ProductPriceHistoryRepository extends JpaRepository<ProductPric
     @Query("SELECT pph FROM ProductPriceHistory pph WHERE pph.product.id = :productId " +
            "AND pph.endDate IS NULL ORDER BY pph.startDate DESC")
     Optional<ProductPriceHistory> findActiveForProduct(@Param("productId") Long productId);
+    
+    @Query(value = "SELECT product_id AS \"itemId\", start_date AS \"startDate\", end_date AS \"endDate\", price AS \"price\" " +
+           "FROM product_price_history ORDER BY product_id, start_date, id", nativeQuery = true)
+    List<PriceHistoryEntry> findAllEntries();
+    
+    @Query(value = "SELECT product_id AS \"itemId\", start_date AS \"startDate\", end_date AS \"endDate\", price AS \"price\" " +
+           "FROM product_price_history WHERE product_id IN :productIds " +
+           "ORDER BY product_id, start_date, id", nativeQuery = true)
+    List<PriceHistoryEntry> findEntries(@Param("productIds") Collection<Long> productIds);
+    
+    String REPRICED = "WITH priced AS (SELECT p.id, p.code, p.name, c.price AS old_price, " +
+           "GREATEST(ROUND(CASE WHEN CAST(:percent AS BOOLEAN) THEN c.price * (1 + CAST(:value AS NUMERIC) / 100) " +
+           "ELSE c.price + CAST(:value AS NUMERIC) END, 2), 0) AS new_price " +
+           "FROM products p CROSS JOIN LATERAL (SELECT COALESCE((SELECT h.price FROM product_price_history h " +
+           "WHERE h.product_id = p.id AND h.end_date IS NULL ORDER BY h.start_date DESC LIMIT 1), p.selling_price) AS price) c " +
+           "WHERE " + ProductRepository.REPRICING_FILTER + " AND c.price IS NOT NULL) ";
+    
+    String REPRICED_COLUMNS = "SELECT id AS \"productId\", code AS \"code\", name AS \"name\", " +
+           "old_price AS \"oldPrice\", new_price AS \"newPrice\" FROM priced ORDER BY id";
+    
+    @Query(value = REPRICED + REPRICED_COLUMNS, nativeQuery = true)
+    List<RepricedProduct> previewRepricing(
+            @Param("categoryId") Long categoryId, @Param("brand") String brand, @Param("supplierId") Long supplierId,
+            @Param("percent") boolean percent, @Param("value") BigDecimal value);
+    
+    // Closes the active rows, opens the new ones and updates the product column in one
+    // statement, the same three steps the single-product path takes
+    @Query(value = REPRICED +
+           ", closed AS (UPDATE product_price_history h SET end_date = CAST(:effectiveDate AS DATE) - 1 " +
+           "FROM priced WHERE h.product_id = priced.id AND h.end_date IS NULL RETURNING h.id) " +
+           ", opened AS (INSERT INTO product_price_history (product_id, start_date, end_date, price, created_at) " +
+           "SELECT id, CAST(:effectiveDate AS DATE), NULL, new_price, NOW() FROM priced RETURNING id) " +
+           ", updated AS (UPDATE products p SET selling_price = priced.new_price, updated_at = NOW() " +
+           "FROM priced WHERE p.id = priced.id RETURNING p.id) " +
+           REPRICED_COLUMNS, nativeQuery = true)
+    List<RepricedProduct> applyRepricing(
+            @Param("categoryId") Long categoryId, @Param("brand") String brand, @Param("supplierId") Long supplierId,
+            @Param("percent") boolean percent, @Param("value") BigDecimal value,
+            @Param("effectiveDate") LocalDate effectiveDate);
+    
+    interface RepricedProduct {
+        Long getProductId();
+        String getCode();
+        String getName();
+        BigDecimal getOldPrice();
+        BigDecimal getNewPrice();
+    }
+    
+    interface PriceHistoryEntry {
+        Long getItemId();
+        LocalDate getStartDate();
+        LocalDate getEndDate();
+        BigDecimal getPrice();
+    }
 }
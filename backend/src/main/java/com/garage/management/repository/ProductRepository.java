@@ -3,13 +3,28 @@ package com.garage.management.repository;
 import com.garage.management.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
+    String STOCK_LEVEL_COLUMNS = "p.id AS \"productId\", p.current_stock AS \"currentStock\", " +
+           "p.min_stock AS \"minStock\", p.active AS \"active\"";
+    
+    // Active products matching the optional repricing filters; a supplier matches the
+    // products that have been ordered from it
+    String REPRICING_FILTER = "p.active = TRUE " +
+           "AND (CAST(:categoryId AS BIGINT) IS NULL OR p.category_id = CAST(:categoryId AS BIGINT)) " +
+           "AND (CAST(:brand AS VARCHAR) IS NULL OR LOWER(p.brand) = LOWER(CAST(:brand AS VARCHAR))) " +
+           "AND (CAST(:supplierId AS BIGINT) IS NULL OR EXISTS (SELECT 1 FROM supplier_order_lines l " +
+           "JOIN supplier_orders o ON o.id = l.supplier_order_id " +
+           "WHERE l.product_id = p.id AND o.supplier_id = CAST(:supplierId AS BIGINT)))";
+    
     List<Product> findByActiveTrue();
     Long countByActiveTrue();
     Optional<Product> findByCode(String code);
@@ -20,4 +35,86 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     
     @Query("SELECT COUNT(p) FROM Product p WHERE p.currentStock <= p.minStock AND p.active = true")
     Long countLowStockProducts();
+    
+    @Query("SELECT p.id FROM Product p WHERE p.currentStock <= p.minStock AND p.active = true")
+    List<Long> findLowStockProductIds();
+    
+    // Applied in the database so concurrent movements on the same product cannot overwrite each other
+    @Query(value = "UPDATE products SET current_stock = COALESCE(current_stock, 0) + :delta WHERE id = :productId " +
+           "RETURNING current_stock", nativeQuery = true)
+    Optional<Integer> adjustCurrentStock(@Param("productId") Long productId, @Param("delta") Integer delta);
+    
+    @Query(value = "UPDATE products p SET current_stock = COALESCE(p.current_stock, 0) + l.quantity " +
+           "FROM (SELECT product_id, SUM(quantity) AS quantity FROM supplier_order_lines " +
+           "WHERE supplier_order_id = :orderId GROUP BY product_id) l " +
+           "WHERE p.id = l.product_id " +
+           "RETURNING " + STOCK_LEVEL_COLUMNS + ", CAST(l.quantity AS INTEGER) AS \"delta\"", nativeQuery = true)
+    List<StockLevel> receiveSupplierOrderStock(@Param("orderId") Long orderId);
+    
+    @Query(value = "SELECT id FROM products WHERE id IN :productIds ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockForStockRecompute(@Param("productIds") Collection<Long> productIds);
+    
+    // Re-derives current_stock from snapshot plus movement tail, touching only rows that drifted
+    @Query(value = "UPDATE products p SET current_stock = c.stock " +
+           "FROM (SELECT pr.id, pr.current_stock AS previous_stock, " +
+           "COALESCE(s.quantity, 0) + COALESCE(t.quantity, 0) AS stock " +
+           "FROM products pr LEFT JOIN stock_snapshots s ON s.product_id = pr.id " +
+           "LEFT JOIN LATERAL (SELECT SUM(m.quantity_delta) AS quantity FROM stock_movements m " +
+           "WHERE m.product_id = pr.id AND m.id > COALESCE(s.as_of_movement_id, 0) " +
+           "AND m.date >= (SELECT b.tail_from_date FROM stock_ledger_bounds b WHERE b.id = 1)) t ON TRUE " +
+           "WHERE pr.id IN :productIds) c " +
+           "WHERE p.id = c.id AND p.current_stock IS DISTINCT FROM c.stock " +
+           "RETURNING " + STOCK_LEVEL_COLUMNS + ", CAST(c.stock - COALESCE(c.previous_stock, 0) AS INTEGER) AS \"delta\"",
+           nativeQuery = true)
+    List<StockLevel> recomputeCurrentStock(@Param("productIds") Collection<Long> productIds);
+    
+    @Query("SELECT MIN(p.id) FROM Product p")
+    Long findMinId();
+    
+    @Query("SELECT MAX(p.id) FROM Product p")
+    Long findMaxId();
+    
+    // Compares the cached stock with the full ledger (live movements plus archive) for one id range
+    @Query(value = "SELECT p.id AS \"productId\", p.current_stock AS \"currentStock\", " +
+           "CAST(COALESCE(m.quantity, 0) + COALESCE(a.quantity, 0) AS INTEGER) AS \"ledgerStock\" " +
+           "FROM products p " +
+           "LEFT JOIN (SELECT product_id, SUM(quantity_delta) AS quantity FROM stock_movements " +
+           "WHERE product_id BETWEEN :fromId AND :toId GROUP BY product_id) m ON m.product_id = p.id " +
+           "LEFT JOIN (SELECT product_id, SUM(quantity_total) AS quantity FROM stock_movements_archive " +
+           "WHERE product_id BETWEEN :fromId AND :toId GROUP BY product_id) a ON a.product_id = p.id " +
+           "WHERE p.id BETWEEN :fromId AND :toId " +
+           "AND COALESCE(p.current_stock, 0) <> COALESCE(m.quantity, 0) + COALESCE(a.quantity, 0) " +
+           "ORDER BY p.id", nativeQuery = true)
+    List<StockDrift> findStockDrift(@Param("fromId") Long fromId, @Param("toId") Long toId);
+    
+    @Query(value = "SELECT COUNT(*) FROM (SELECT 1 FROM products p WHERE " + REPRICING_FILTER + " FOR UPDATE) l",
+           nativeQuery = true)
+    long lockRepricingTargets(@Param("categoryId") Long categoryId, @Param("brand") String brand,
+                              @Param("supplierId") Long supplierId);
+    
+    @Query("SELECT p.id AS id, p.sellingPrice AS price FROM Product p WHERE p.id IN :productIds")
+    List<ItemPrice> findSellingPrices(@Param("productIds") Collection<Long> productIds);
+    
+    interface StockDrift {
+        Long getProductId();
+        Integer getCurrentStock();
+        Integer getLedgerStock();
+    }
+    
+    @Query(value = "SELECT " + STOCK_LEVEL_COLUMNS + ", 0 AS \"delta\" FROM products p WHERE p.id = :productId",
+           nativeQuery = true)
+    Optional<StockLevel> findStockLevel(@Param("productId") Long productId);
+    
+    interface StockLevel {
+        Long getProductId();
+        Integer getCurrentStock();
+        Integer getDelta();
+        Integer getMinStock();
+        Boolean getActive();
+    }
+    
+    interface ItemPrice {
+        Long getId();
+        BigDecimal getPrice();
+    }
 }
@@ -0,0 +1,126 @@
+package com.garage.management.repository;
+
+import com.garage.management.entity.ProductValuation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductValuationRepository extends JpaRepository<ProductValuation, Long> {
+
+    // One row per product: quantity received at an explicit cost, the value of that quantity,
+    // and the net quantity moved at the running average (returns, adjustments, consumption)
+    String CHANGES =
+            "WITH changes AS (SELECT c.product_id, c.purchased_quantity, c.purchased_value, c.other_quantity " +
+            "FROM unnest(CAST(:productIds AS BIGINT[]), CAST(:purchasedQuantities AS INTEGER[]), " +
+            "CAST(:purchasedValues AS NUMERIC[]), CAST(:otherQuantities AS INTEGER[])) " +
+            "AS c(product_id, purchased_quantity, purchased_value, other_quantity)) ";
+
+    // Products created after the valuation was seeded start from the stock they held before
+    // this change, valued at their buying price
+    @Modifying
+    @Query(value = CHANGES + ", seeded AS (" +
+           "INSERT INTO product_valuations (product_id, quantity, average_cost, fifo_value, updated_at) " +
+           "SELECT p.id, COALESCE(p.current_stock, 0) - c.purchased_quantity - c.other_quantity, " +
+           "COALESCE(p.buying_price, 0), 0, NOW() " +
+           "FROM changes c JOIN products p ON p.id = c.product_id " +
+           "ON CONFLICT (product_id) DO NOTHING RETURNING product_id, quantity, average_cost) " +
+           "INSERT INTO fifo_cost_layers (product_id, quantity_remaining, unit_cost, received_at) " +
+           "SELECT product_id, quantity, average_cost, NOW() FROM seeded WHERE quantity > 0", nativeQuery = true)
+    int seedMissing(@Param("productIds") Long[] productIds,
+                    @Param("purchasedQuantities") Integer[] purchasedQuantities,
+                    @Param("purchasedValues") BigDecimal[] purchasedValues,
+                    @Param("otherQuantities") Integer[] otherQuantities);
+
+    // Only stock on hand is blended with a purchase, so a negative quantity does not drag
+    // the average below the price actually paid
+    @Modifying
+    @Query(value = CHANGES +
+           "UPDATE product_valuations v SET " +
+           "average_cost = CASE WHEN c.purchased_quantity > 0 THEN " +
+           "(GREATEST(v.quantity, 0) * v.average_cost + c.purchased_value) / (GREATEST(v.quantity, 0) + c.purchased_quantity) " +
+           "ELSE v.average_cost END, " +
+           "quantity = v.quantity + c.purchased_quantity + c.other_quantity, updated_at = NOW() " +
+           "FROM changes c WHERE v.product_id = c.product_id", nativeQuery = true)
+    int applyAverageCost(@Param("productIds") Long[] productIds,
+                         @Param("purchasedQuantities") Integer[] purchasedQuantities,
+                         @Param("purchasedValues") BigDecimal[] purchasedValues,
+                         @Param("otherQuantities") Integer[] otherQuantities);
+
+    @Modifying
+    @Query(value = CHANGES +
+           "INSERT INTO fifo_cost_layers (product_id, quantity_remaining, unit_cost, received_at) " +
+           "SELECT c.product_id, c.purchased_quantity, c.purchased_value / c.purchased_quantity, NOW() " +
+           "FROM changes c WHERE c.purchased_quantity > 0 " +
+           "UNION ALL " +
+           "SELECT c.product_id, c.other_quantity, v.average_cost, NOW() " +
+           "FROM changes c JOIN product_valuations v ON v.product_id = c.product_id WHERE c.other_quantity > 0",
+           nativeQuery = true)
+    int addLayers(@Param("productIds") Long[] productIds,
+                  @Param("purchasedQuantities") Integer[] purchasedQuantities,
+                  @Param("purchasedValues") BigDecimal[] purchasedValues,
+                  @Param("otherQuantities") Integer[] otherQuantities);
+
+    // Open layers are walked oldest first; each one gives up whatever part of the outgoing
+    // quantity the layers before it could not cover
+    @Modifying
+    @Query(value = CHANGES + ", open_layers AS (" +
+           "SELECT l.id, -c.other_quantity AS outgoing, " +
+           "SUM(l.quantity_remaining) OVER (PARTITION BY l.product_id ORDER BY l.id) - l.quantity_remaining AS covered_before " +
+           "FROM fifo_cost_layers l JOIN changes c ON c.product_id = l.product_id " +
+           "WHERE c.other_quantity < 0 AND l.quantity_remaining > 0) " +
+           "UPDATE fifo_cost_layers l SET quantity_remaining = l.quantity_remaining - " +
+           "LEAST(l.quantity_remaining, o.outgoing - o.covered_before) " +
+           "FROM open_layers o WHERE l.id = o.id AND o.covered_before < o.outgoing", nativeQuery = true)
+    int consumeLayers(@Param("productIds") Long[] productIds,
+                      @Param("purchasedQuantities") Integer[] purchasedQuantities,
+                      @Param("purchasedValues") BigDecimal[] purchasedValues,
+                      @Param("otherQuantities") Integer[] otherQuantities);
+
+    @Modifying
+    @Query(value = "DELETE FROM fifo_cost_layers WHERE quantity_remaining <= 0 " +
+           "AND product_id = ANY(CAST(:productIds AS BIGINT[]))", nativeQuery = true)
+    int deleteExhaustedLayers(@Param("productIds") Long[] productIds);
+
+    @Modifying
+    @Query(value = "UPDATE product_valuations v SET fifo_value = COALESCE((" +
+           "SELECT SUM(l.quantity_remaining * l.unit_cost) FROM fifo_cost_layers l " +
+           "WHERE l.product_id = v.product_id AND l.quantity_remaining > 0), 0) " +
+           "WHERE v.product_id = ANY(CAST(:productIds AS BIGINT[]))", nativeQuery = true)
+    int refreshFifoValue(@Param("productIds") Long[] productIds);
+
+    // Valuations whose quantity no longer matches the cached stock, with the difference
+    @Query(value = "SELECT CAST(p.id AS BIGINT) AS \"productId\", COALESCE(p.current_stock, 0) - v.quantity AS \"quantity\" " +
+           "FROM products p JOIN product_valuations v ON v.product_id = p.id " +
+           "WHERE p.id IN :productIds AND v.quantity <> COALESCE(p.current_stock, 0)", nativeQuery = true)
+    List<QuantityGap> findQuantityGaps(@Param("productIds") Collection<Long> productIds);
+
+    @Query(value = "SELECT c.id AS \"categoryId\", c.name AS \"categoryName\", COUNT(*) AS \"productCount\", " +
+           "COALESCE(SUM(v.quantity), 0) AS \"quantity\", " +
+           "COALESCE(SUM(GREATEST(v.quantity, 0) * v.average_cost), 0) AS \"averageCostValue\", " +
+           "COALESCE(SUM(v.fifo_value), 0) AS \"fifoValue\" " +
+           "FROM product_valuations v JOIN products p ON p.id = v.product_id " +
+           "LEFT JOIN categories c ON c.id = p.category_id " +
+           "GROUP BY c.id, c.name ORDER BY c.name NULLS LAST", nativeQuery = true)
+    List<CategoryValuation> findCategoryValuations();
+
+    interface QuantityGap {
+        Long getProductId();
+        Integer getQuantity();
+    }
+
+    interface CategoryValuation {
+        Long getCategoryId();
+        String getCategoryName();
+        Long getProductCount();
+        Long getQuantity();
+        BigDecimal getAverageCostValue();
+        BigDecimal getFifoValue();
+    }
+}
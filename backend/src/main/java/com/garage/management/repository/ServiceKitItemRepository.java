@@ -0,0 +1,12 @@
+package com.garage.management.repository;
+
+import com.garage.management.entity.ServiceKitItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ServiceKitItemRepository extends JpaRepository<ServiceKitItem, Long> {
+    List<ServiceKitItem> findByKitIdOrderById(Long kitId);
+}
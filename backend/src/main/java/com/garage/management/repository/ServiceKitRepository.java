@@ -0,0 +1,12 @@
+package com.garage.management.repository;
+
+import com.garage.management.entity.ServiceKit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ServiceKitRepository extends JpaRepository<ServiceKit, Long> {
+    List<ServiceKit> findByActiveTrue();
+}
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,4 +23,13 @@ public interface ServicePriceHistoryRepository extends JpaRepository<ServicePric
     @Query("SELECT sph FROM ServicePriceHistory sph WHERE sph.service.id = :serviceId " +
            "AND sph.endDate IS NULL ORDER BY sph.startDate DESC")
     Optional<ServicePriceHistory> findActiveForService(@Param("serviceId") Long serviceId);
+    
+    @Query(value = "SELECT service_id AS \"itemId\", start_date AS \"startDate\", end_date AS \"endDate\", price AS \"price\" " +
+           "FROM service_price_history ORDER BY service_id, start_date, id", nativeQuery = true)
+    List<ProductPriceHistoryRepository.PriceHistoryEntry> findAllEntries();
+    
+    @Query(value = "SELECT service_id AS \"itemId\", start_date AS \"startDate\", end_date AS \"endDate\", price AS \"price\" " +
+           "FROM service_price_history WHERE service_id IN :serviceIds " +
+           "ORDER BY service_id, start_date, id", nativeQuery = true)
+    List<ProductPriceHistoryRepository.PriceHistoryEntry> findEntries(@Param("serviceIds") Collection<Long> serviceIds);
 }
@@ -2,8 +2,11 @@ package com.garage.management.repository;
 
 import com.garage.management.entity.ServiceEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +16,7 @@ public interface ServiceRepository extends JpaRepository<ServiceEntity, Long> {
     Long countByActiveTrue();
     Optional<ServiceEntity> findByCode(String code);
     List<ServiceEntity> findByCategoryId(Long categoryId);
+    
+    @Query("SELECT s.id AS id, s.sellingPrice AS price FROM ServiceEntity s WHERE s.id IN :serviceIds")
+    List<ProductRepository.ItemPrice> findSellingPrices(@Param("serviceIds") Collection<Long> serviceIds);
 }
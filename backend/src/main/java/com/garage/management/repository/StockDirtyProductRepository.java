@@ -0,0 +1,52 @@
+package com.garage.management.repository;
+
+import com.garage.management.entity.StockDirtyProduct;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockDirtyProductRepository extends JpaRepository<StockDirtyProduct, Long> {
+
+    // clock_timestamp() rather than NOW() so a mark made late in a long transaction
+    // is not mistaken for one the recompute run has already covered
+    @Modifying
+    @Query(value = "INSERT INTO stock_dirty_products (product_id, marked_at) VALUES (:productId, clock_timestamp()) " +
+           "ON CONFLICT (product_id) DO UPDATE SET marked_at = EXCLUDED.marked_at", nativeQuery = true)
+    int markDirty(@Param("productId") Long productId);
+
+    @Modifying
+    @Query(value = "INSERT INTO stock_dirty_products (product_id, marked_at) " +
+           "SELECT l.product_id, clock_timestamp() FROM (SELECT DISTINCT product_id FROM supplier_order_lines " +
+           "WHERE supplier_order_id = :orderId) l " +
+           "ON CONFLICT (product_id) DO UPDATE SET marked_at = EXCLUDED.marked_at", nativeQuery = true)
+    int markSupplierOrderDirty(@Param("orderId") Long orderId);
+
+    @Modifying
+    @Query(value = "INSERT INTO stock_dirty_products (product_id, marked_at) " +
+           "SELECT id, clock_timestamp() FROM products WHERE id IN :productIds " +
+           "ON CONFLICT (product_id) DO UPDATE SET marked_at = EXCLUDED.marked_at", nativeQuery = true)
+    int markProductsDirty(@Param("productIds") Collection<Long> productIds);
+
+    @Modifying
+    @Query(value = "INSERT INTO stock_dirty_products (product_id, marked_at) SELECT id, clock_timestamp() FROM products " +
+           "ON CONFLICT (product_id) DO UPDATE SET marked_at = EXCLUDED.marked_at", nativeQuery = true)
+    int markAllDirty();
+
+    @Query(value = "SELECT CAST(clock_timestamp() AS TIMESTAMP)", nativeQuery = true)
+    LocalDateTime currentTimestamp();
+
+    @Query(value = "SELECT product_id FROM stock_dirty_products WHERE marked_at <= :markedBefore " +
+           "ORDER BY product_id LIMIT :limit", nativeQuery = true)
+    List<Long> findProductIdsMarkedBefore(@Param("markedBefore") LocalDateTime markedBefore, @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM StockDirtyProduct d WHERE d.productId IN :productIds AND d.markedAt <= :markedBefore")
+    int clearMarks(@Param("productIds") Collection<Long> productIds, @Param("markedBefore") LocalDateTime markedBefore);
+}
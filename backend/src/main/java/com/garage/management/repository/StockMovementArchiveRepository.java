@@ -0,0 +1,43 @@
+package com.garage.management.repository;
+
+import com.garage.management.entity.StockMovementArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockMovementArchiveRepository extends JpaRepository<StockMovementArchive, Long> {
+    List<StockMovementArchive> findByProductIdOrderByMovementMonth(Long productId);
+
+    // Only movements already folded into their product's snapshot may leave the live table
+    @Query(value = "SELECT MIN(m.date) FROM stock_movements m JOIN stock_snapshots s ON s.product_id = m.product_id " +
+           "WHERE m.id <= s.as_of_movement_id AND m.date < :cutoff", nativeQuery = true)
+    LocalDateTime findOldestArchivableDate(@Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query(value = "WITH moved AS (" +
+           "DELETE FROM stock_movements m USING stock_snapshots s " +
+           "WHERE s.product_id = m.product_id AND m.id <= s.as_of_movement_id " +
+           "AND m.date >= :monthStart AND m.date < :monthEnd RETURNING m.*) " +
+           "INSERT INTO stock_movements_archive (product_id, movement_month, movement_count, quantity_total, " +
+           "first_movement_id, last_movement_id, movements, archived_at) " +
+           "SELECT product_id, CAST(:monthStart AS DATE), COUNT(*), SUM(quantity_delta), MIN(id), MAX(id), " +
+           "jsonb_agg(jsonb_build_object('id', id, 'date', date, 'quantityDelta', quantity_delta, 'type', type, " +
+           "'reason', reason, 'sourceType', source_type, 'sourceId', source_id, 'createdAt', created_at) ORDER BY id), " +
+           "NOW() FROM moved GROUP BY product_id",
+           nativeQuery = true)
+    int archiveFoldedMovements(@Param("monthStart") LocalDateTime monthStart, @Param("monthEnd") LocalDateTime monthEnd);
+
+    @Query(value = "SELECT ensure_stock_movement_partitions(CAST(:fromMonth AS DATE), CAST(:toMonth AS DATE))",
+           nativeQuery = true)
+    Integer ensurePartitions(@Param("fromMonth") LocalDate fromMonth, @Param("toMonth") LocalDate toMonth);
+
+    @Query(value = "SELECT drop_empty_stock_movement_partition(CAST(:monthStart AS DATE))", nativeQuery = true)
+    Boolean dropEmptyPartition(@Param("monthStart") LocalDate monthStart);
+}
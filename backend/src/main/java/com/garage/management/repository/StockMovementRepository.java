@@ -2,11 +2,72 @@ package com.garage.management.repository;
 
 import com.garage.management.entity.StockMovement;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long>, StockMovementRepositoryCustom {
+    String ARCHIVED_QUANTITY_AS_OF =
+           "CASE WHEN a.movement_month < CAST(date_trunc('month', CAST(:asOf AS TIMESTAMP)) AS DATE) THEN a.quantity_total " +
+           "ELSE (SELECT COALESCE(SUM(CAST(e ->> 'quantityDelta' AS INTEGER)), 0) FROM jsonb_array_elements(a.movements) e " +
+           "WHERE CAST(e ->> 'date' AS TIMESTAMP) <= :asOf) END";
+
     List<StockMovement> findByProductId(Long productId);
+
+    // Snapshot and tail are read in one statement, so a compaction committing meanwhile
+    // cannot pair an old snapshot with the new tail bound. The bound is a subquery rather
+    // than a join so that partitions holding only folded movements are still pruned
+    String TAIL_FROM = "(SELECT b.tail_from_date FROM stock_ledger_bounds b WHERE b.id = 1)";
+
+    @Query(value = "SELECT CAST(t.product_id AS BIGINT) AS \"productId\", CAST(SUM(t.quantity) AS BIGINT) AS \"quantity\" FROM (" +
+           "SELECT s.product_id, s.quantity FROM stock_snapshots s " +
+           "UNION ALL " +
+           "SELECT m.product_id, SUM(m.quantity_delta) FROM stock_movements m " +
+           "LEFT JOIN stock_snapshots s ON s.product_id = m.product_id " +
+           "WHERE m.id > COALESCE(s.as_of_movement_id, 0) AND m.date >= " + TAIL_FROM + " " +
+           "GROUP BY m.product_id) t GROUP BY t.product_id", nativeQuery = true)
+    List<ProductQuantity> sumCurrentQuantities();
+
+    @Query(value = "SELECT CAST(t.product_id AS BIGINT) AS \"productId\", CAST(SUM(t.quantity) AS BIGINT) AS \"quantity\" FROM (" +
+           "SELECT s.product_id, s.quantity FROM stock_snapshots s WHERE s.product_id IN :productIds " +
+           "UNION ALL " +
+           "SELECT m.product_id, SUM(m.quantity_delta) FROM stock_movements m " +
+           "LEFT JOIN stock_snapshots s ON s.product_id = m.product_id " +
+           "WHERE m.product_id IN :productIds AND m.id > COALESCE(s.as_of_movement_id, 0) " +
+           "AND m.date >= " + TAIL_FROM + " " +
+           "GROUP BY m.product_id) t GROUP BY t.product_id", nativeQuery = true)
+    List<ProductQuantity> sumCurrentQuantities(@Param("productIds") Collection<Long> productIds);
+
+    @Query("SELECT MAX(m.id) FROM StockMovement m WHERE m.date >= :tailFrom AND COALESCE(m.createdAt, m.date) < :cutoff")
+    Long findMaxIdRecordedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("tailFrom") LocalDateTime tailFrom);
+
+    // As-of totals add the archived months; only the archived month containing asOf
+    // has to be expanded from its movement list
+    @Query(value = "SELECT CAST(COALESCE((SELECT SUM(m.quantity_delta) FROM stock_movements m " +
+           "WHERE m.product_id = :productId AND m.date <= :asOf), 0) + " +
+           "COALESCE((SELECT SUM(" + ARCHIVED_QUANTITY_AS_OF + ") FROM stock_movements_archive a " +
+           "WHERE a.product_id = :productId AND a.movement_month <= :asOf), 0) AS BIGINT)",
+           nativeQuery = true)
+    Long sumQuantityByProductIdAsOf(@Param("productId") Long productId, @Param("asOf") LocalDateTime asOf);
+
+    @Query(value = "SELECT t.product_id AS \"productId\", CAST(SUM(t.quantity) AS BIGINT) AS \"quantity\" FROM (" +
+           "SELECT m.product_id, SUM(m.quantity_delta) AS quantity FROM stock_movements m " +
+           "WHERE m.product_id IN :productIds AND m.date <= :asOf GROUP BY m.product_id " +
+           "UNION ALL " +
+           "SELECT a.product_id, SUM(" + ARCHIVED_QUANTITY_AS_OF + ") FROM stock_movements_archive a " +
+           "WHERE a.product_id IN :productIds AND a.movement_month <= :asOf GROUP BY a.product_id" +
+           ") t GROUP BY t.product_id",
+           nativeQuery = true)
+    List<ProductQuantity> sumQuantitiesByProductIdsAsOf(@Param("productIds") Collection<Long> productIds,
+                                                        @Param("asOf") LocalDateTime asOf);
+
+    interface ProductQuantity {
+        Long getProductId();
+        Long getQuantity();
+    }
 }
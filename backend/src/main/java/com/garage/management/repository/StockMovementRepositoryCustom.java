@@ -0,0 +1,14 @@
+package com.garage.management.repository;
+
+import com.garage.management.dto.StockMovementExportRow;
+import com.garage.management.dto.StockMovementFilter;
+import com.garage.management.entity.StockMovement;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface StockMovementRepositoryCustom {
+    List<StockMovement> findPage(StockMovementFilter filter, LocalDateTime afterDate, Long afterId, int limit);
+
+    List<StockMovementExportRow> findExportPage(StockMovementFilter filter, LocalDateTime afterDate, Long afterId, int limit);
+}
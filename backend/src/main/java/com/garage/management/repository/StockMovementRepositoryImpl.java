@@ -0,0 +1,81 @@
+package com.garage.management.repository;
+
+import com.garage.management.dto.StockMovementExportRow;
+import com.garage.management.dto.StockMovementFilter;
+import com.garage.management.entity.StockMovement;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Keyset pagination over (date, id), newest first: a page starts strictly after the
+// last (date, id) of the previous one, so deep pages cost the same as the first
+public class StockMovementRepositoryImpl implements StockMovementRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<StockMovement> findPage(StockMovementFilter filter, LocalDateTime afterDate, Long afterId, int limit) {
+        return createQuery("SELECT m FROM StockMovement m JOIN FETCH m.product p LEFT JOIN FETCH p.category",
+                StockMovement.class, filter, afterDate, afterId, limit).getResultList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<StockMovementExportRow> findExportPage(StockMovementFilter filter, LocalDateTime afterDate,
+                                                       Long afterId, int limit) {
+        return createQuery("SELECT new com.garage.management.dto.StockMovementExportRow(" +
+                "m.id, p.id, p.code, p.name, m.date, m.quantityDelta, m.type, m.reason, m.sourceType, m.sourceId, " +
+                "m.createdAt) FROM StockMovement m JOIN m.product p",
+                StockMovementExportRow.class, filter, afterDate, afterId, limit).getResultList();
+    }
+
+    private <T> TypedQuery<T> createQuery(String select, Class<T> resultType, StockMovementFilter filter,
+                                          LocalDateTime afterDate, Long afterId, int limit) {
+        StringBuilder jpql = new StringBuilder(select).append(" WHERE 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+
+        if (filter.getProductId() != null) {
+            jpql.append(" AND m.product.id = :productId");
+            params.put("productId", filter.getProductId());
+        }
+        if (filter.getType() != null) {
+            jpql.append(" AND m.type = :type");
+            params.put("type", filter.getType());
+        }
+        if (filter.getSourceType() != null) {
+            jpql.append(" AND m.sourceType = :sourceType");
+            params.put("sourceType", filter.getSourceType());
+        }
+        if (filter.getSourceId() != null) {
+            jpql.append(" AND m.sourceId = :sourceId");
+            params.put("sourceId", filter.getSourceId());
+        }
+        if (filter.getFrom() != null) {
+            jpql.append(" AND m.date >= :from");
+            params.put("from", filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            jpql.append(" AND m.date <= :to");
+            params.put("to", filter.getTo());
+        }
+        if (afterDate != null && afterId != null) {
+            jpql.append(" AND (m.date < :afterDate OR (m.date = :afterDate AND m.id < :afterId))");
+            params.put("afterDate", afterDate);
+            params.put("afterId", afterId);
+        }
+        jpql.append(" ORDER BY m.date DESC, m.id DESC");
+
+        TypedQuery<T> query = entityManager.createQuery(jpql.toString(), resultType);
+        params.forEach(query::setParameter);
+        query.setMaxResults(limit);
+        return query;
+    }
+}
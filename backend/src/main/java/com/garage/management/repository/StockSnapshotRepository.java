@@ -0,0 +1,72 @@
+package com.garage.management.repository;
+
+import com.garage.management.entity.StockSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshot, Long> {
+    Optional<StockSnapshot> findByProductId(Long productId);
+    List<StockSnapshot> findByProductIdIn(Collection<Long> productIds);
+
+    // Folds every movement up to horizonId that is not yet part of a snapshot into it
+    @Modifying
+    @Query(value = "INSERT INTO stock_snapshots (product_id, as_of_movement_id, as_of_date, quantity, created_at, updated_at) " +
+           "SELECT m.product_id, MAX(m.id), MAX(m.date), COALESCE(MAX(s.quantity), 0) + SUM(m.quantity_delta), NOW(), NOW() " +
+           "FROM stock_movements m LEFT JOIN stock_snapshots s ON s.product_id = m.product_id " +
+           "WHERE m.id > COALESCE(s.as_of_movement_id, 0) AND m.id <= :horizonId " +
+           "GROUP BY m.product_id " +
+           "ON CONFLICT (product_id) DO UPDATE SET as_of_movement_id = EXCLUDED.as_of_movement_id, " +
+           "as_of_date = GREATEST(stock_snapshots.as_of_date, EXCLUDED.as_of_date), " +
+           "quantity = EXCLUDED.quantity, updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    int foldMovementsUpTo(@Param("horizonId") Long horizonId);
+
+    @Modifying
+    @Query("UPDATE StockSnapshot s SET s.quantity = s.quantity - :quantityDelta " +
+           "WHERE s.productId = :productId AND s.asOfMovementId >= :movementId")
+    int unfoldMovement(@Param("productId") Long productId, @Param("movementId") Long movementId,
+                       @Param("quantityDelta") Integer quantityDelta);
+
+    // Re-derives snapshot quantities from the archive and the folded live movements
+    @Modifying
+    @Query(value = "UPDATE stock_snapshots s SET quantity = CAST(" +
+           "COALESCE((SELECT SUM(a.quantity_total) FROM stock_movements_archive a WHERE a.product_id = s.product_id), 0) + " +
+           "COALESCE((SELECT SUM(m.quantity_delta) FROM stock_movements m " +
+           "WHERE m.product_id = s.product_id AND m.id <= s.as_of_movement_id), 0) AS INTEGER), updated_at = NOW() " +
+           "WHERE s.product_id IN :productIds", nativeQuery = true)
+    int rebuildSnapshots(@Param("productIds") Collection<Long> productIds);
+
+    // Compaction and movement removal must not interleave, otherwise a removed movement
+    // can end up folded into a snapshot that is never corrected
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtext('stock_snapshots'))", nativeQuery = true)
+    Integer lockForCompaction();
+
+    // Taken by every movement insert and delete
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock_shared(hashtext('stock_snapshots'))", nativeQuery = true)
+    Integer lockForMovementChange();
+
+    @Query(value = "SELECT tail_from_date FROM stock_ledger_bounds WHERE id = 1", nativeQuery = true)
+    LocalDateTime findTailFromDate();
+
+    // A backdated movement moves the tail bound back so that pruned queries still include it
+    @Modifying
+    @Query(value = "UPDATE stock_ledger_bounds SET tail_from_date = :date, updated_at = NOW() " +
+           "WHERE id = 1 AND tail_from_date > :date", nativeQuery = true)
+    int extendTailBound(@Param("date") LocalDateTime date);
+
+    @Modifying
+    @Query(value = "UPDATE stock_ledger_bounds SET horizon_movement_id = GREATEST(horizon_movement_id, :horizonId), " +
+           "tail_from_date = COALESCE((SELECT MIN(m.date) FROM stock_movements m " +
+           "WHERE m.id > GREATEST(stock_ledger_bounds.horizon_movement_id, :horizonId)), LOCALTIMESTAMP), " +
+           "updated_at = NOW() WHERE id = 1", nativeQuery = true)
+    int advanceHorizon(@Param("horizonId") Long horizonId);
+}
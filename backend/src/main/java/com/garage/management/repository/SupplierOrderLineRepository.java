@@ -2,11 +2,24 @@ package com.garage.management.repository;
 
 import com.garage.management.entity.SupplierOrderLine;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Repository
 public interface SupplierOrderLineRepository extends JpaRepository<SupplierOrderLine, Long> {
     List<SupplierOrderLine> findBySupplierOrderId(Long orderId);
+
+    @Query("SELECT l.product.id AS productId, l.quantity AS quantity, l.unitCost AS unitCost " +
+           "FROM SupplierOrderLine l WHERE l.supplierOrder.id = :orderId ORDER BY l.id")
+    List<ReceiptLine> findReceiptLines(@Param("orderId") Long orderId);
+
+    interface ReceiptLine {
+        Long getProductId();
+        Integer getQuantity();
+        BigDecimal getUnitCost();
+    }
 }
@@ -3,12 +3,21 @@ package com.garage.management.repository;
 import com.garage.management.entity.SupplierOrder;
 import com.garage.management.enums.OrderStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface SupplierOrderRepository extends JpaRepository<SupplierOrder, Long> {
     List<SupplierOrder> findBySupplierId(Long supplierId);
     List<SupplierOrder> findByStatus(OrderStatus status);
+
+    @Modifying
+    @Query("UPDATE SupplierOrder o SET o.status = com.garage.management.enums.OrderStatus.RECEIVED, o.updatedAt = :now " +
+           "WHERE o.id = :orderId AND (o.status IS NULL OR o.status <> com.garage.management.enums.OrderStatus.RECEIVED)")
+    int markReceived(@Param("orderId") Long orderId, @Param("now") LocalDateTime now);
 }
@@ -2,11 +2,157 @@ package com.garage.management.repository;
 
 import com.garage.management.entity.WorkOrderProductLine;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface WorkOrderProductLineRepository extends JpaRepository<WorkOrderProductLine, Long> {
     List<WorkOrderProductLine> findByWorkOrderId(Long workOrderId);
+
+    // Unit costs hold null for lines whose product has no buying price
+    @Query(value = "INSERT INTO work_order_product_lines (work_order_id, product_id, quantity, standard_price, " +
+           "discount_percent, final_unit_price, line_total, unit_cost) " +
+           "SELECT :workOrderId, t.product_id, t.quantity, t.standard_price, t.discount_percent, t.final_unit_price, " +
+           "t.line_total, t.unit_cost " +
+           "FROM unnest(CAST(:productIds AS BIGINT[]), CAST(:quantities AS INTEGER[]), " +
+           "CAST(:standardPrices AS NUMERIC[]), CAST(:discountPercents AS NUMERIC[]), " +
+           "CAST(:finalUnitPrices AS NUMERIC[]), CAST(:lineTotals AS NUMERIC[]), " +
+           "CAST(:unitCosts AS NUMERIC[])) WITH ORDINALITY " +
+           "AS t(product_id, quantity, standard_price, discount_percent, final_unit_price, line_total, unit_cost, ord) " +
+           "ORDER BY t.ord RETURNING CAST(id AS BIGINT)", nativeQuery = true)
+    List<Long> insertLines(@Param("workOrderId") Long workOrderId, @Param("productIds") Long[] productIds,
+                           @Param("quantities") Integer[] quantities, @Param("standardPrices") BigDecimal[] standardPrices,
+                           @Param("discountPercents") BigDecimal[] discountPercents,
+                           @Param("finalUnitPrices") BigDecimal[] finalUnitPrices, @Param("lineTotals") BigDecimal[] lineTotals,
+                           @Param("unitCosts") BigDecimal[] unitCosts);
+
+    // Deleting and reading the removed total in one statement means two concurrent deletes
+    // of the same line cannot both subtract it from the work order
+    @Query(value = "DELETE FROM work_order_product_lines WHERE id = :lineId " +
+           "RETURNING work_order_id AS \"workOrderId\", line_total AS \"lineTotal\", " +
+           "CAST(product_id AS BIGINT) AS \"productId\", quantity AS \"quantity\", unit_cost AS \"unitCost\"",
+           nativeQuery = true)
+    Optional<RemovedProductLine> deleteReturningTotal(@Param("lineId") Long lineId);
+
+    String MARGIN_UPSERT = "INSERT INTO product_margin_monthly " +
+           "(product_id, month, quantity, revenue, cost, line_count, uncosted_line_count, updated_at) ";
+
+    String MARGIN_ACCUMULATE = "ON CONFLICT (product_id, month) DO UPDATE SET " +
+           "quantity = product_margin_monthly.quantity + EXCLUDED.quantity, " +
+           "revenue = product_margin_monthly.revenue + EXCLUDED.revenue, " +
+           "cost = product_margin_monthly.cost + EXCLUDED.cost, " +
+           "line_count = product_margin_monthly.line_count + EXCLUDED.line_count, " +
+           "uncosted_line_count = product_margin_monthly.uncosted_line_count + EXCLUDED.uncosted_line_count, " +
+           "updated_at = EXCLUDED.updated_at";
+
+    String COUNTED_STATUS = "COALESCE(w.status, 'DRAFT') NOT IN ('DRAFT', 'CANCELLED')";
+
+    // Adds (sign 1) or removes (sign -1) the given lines in their work order's month. The
+    // work order row is already locked by the total update, so its status and date are
+    // the ones the lines are committed under
+    @Modifying
+    @Query(value = MARGIN_UPSERT +
+           "SELECT t.product_id, CAST(date_trunc('month', w.date) AS DATE), :sign * SUM(t.quantity), " +
+           ":sign * SUM(t.line_total), :sign * SUM(COALESCE(t.unit_cost * t.quantity, 0)), :sign * COUNT(*), " +
+           ":sign * COUNT(*) FILTER (WHERE t.unit_cost IS NULL), NOW() " +
+           "FROM unnest(CAST(:productIds AS BIGINT[]), CAST(:quantities AS INTEGER[]), " +
+           "CAST(:lineTotals AS NUMERIC[]), CAST(:unitCosts AS NUMERIC[])) AS t(product_id, quantity, line_total, unit_cost) " +
+           "JOIN work_orders w ON w.id = :workOrderId WHERE " + COUNTED_STATUS + " " +
+           "GROUP BY t.product_id, w.date " + MARGIN_ACCUMULATE, nativeQuery = true)
+    int applyMarginDelta(@Param("workOrderId") Long workOrderId, @Param("productIds") Long[] productIds,
+                         @Param("quantities") Integer[] quantities, @Param("lineTotals") BigDecimal[] lineTotals,
+                         @Param("unitCosts") BigDecimal[] unitCosts, @Param("sign") int sign);
+
+    // Moves every line of a work order into or out of a month, for date and status changes
+    @Modifying
+    @Query(value = MARGIN_UPSERT +
+           "SELECT l.product_id, CAST(date_trunc('month', CAST(:day AS DATE)) AS DATE), :sign * SUM(l.quantity), " +
+           ":sign * SUM(COALESCE(l.line_total, 0)), :sign * SUM(COALESCE(l.unit_cost * l.quantity, 0)), " +
+           ":sign * COUNT(*), :sign * COUNT(*) FILTER (WHERE l.unit_cost IS NULL), NOW() " +
+           "FROM work_order_product_lines l WHERE l.work_order_id = :workOrderId " +
+           "GROUP BY l.product_id " + MARGIN_ACCUMULATE, nativeQuery = true)
+    int applyWorkOrderMargins(@Param("workOrderId") Long workOrderId, @Param("day") LocalDate day,
+                              @Param("sign") int sign);
+
+    @Modifying
+    @Query(value = "DELETE FROM product_margin_monthly", nativeQuery = true)
+    int clearMargins();
+
+    @Modifying
+    @Query(value = MARGIN_UPSERT +
+           "SELECT l.product_id, CAST(date_trunc('month', w.date) AS DATE), SUM(l.quantity), " +
+           "SUM(COALESCE(l.line_total, 0)), SUM(COALESCE(l.unit_cost * l.quantity, 0)), COUNT(*), " +
+           "COUNT(*) FILTER (WHERE l.unit_cost IS NULL), NOW() " +
+           "FROM work_order_product_lines l JOIN work_orders w ON w.id = l.work_order_id WHERE " + COUNTED_STATUS + " " +
+           "GROUP BY l.product_id, CAST(date_trunc('month', w.date) AS DATE)", nativeQuery = true)
+    int rebuildMargins();
+
+    String MARGIN_SUMS = "CAST(COALESCE(SUM(m.quantity), 0) AS INTEGER) AS \"quantity\", " +
+           "COALESCE(SUM(m.revenue), 0) AS \"revenue\", COALESCE(SUM(m.cost), 0) AS \"cost\", " +
+           "CAST(COALESCE(SUM(m.line_count), 0) AS INTEGER) AS \"lineCount\", " +
+           "CAST(COALESCE(SUM(m.uncosted_line_count), 0) AS INTEGER) AS \"uncostedLineCount\"";
+
+    String MARGIN_RANGE = "m.month >= CAST(date_trunc('month', CAST(:from AS DATE)) AS DATE) " +
+           "AND m.month <= CAST(:to AS DATE) AND m.line_count <> 0";
+
+    @Query(value = "SELECT CAST(p.id AS BIGINT) AS \"id\", p.code AS \"code\", p.name AS \"name\", " + MARGIN_SUMS + " " +
+           "FROM product_margin_monthly m JOIN products p ON p.id = m.product_id " +
+           "WHERE " + MARGIN_RANGE + " AND (CAST(:categoryId AS BIGINT) IS NULL OR p.category_id = CAST(:categoryId AS BIGINT)) " +
+           "GROUP BY p.id, p.code, p.name ORDER BY SUM(m.revenue) - SUM(m.cost) DESC", nativeQuery = true)
+    List<MarginRow> findProductMargins(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                       @Param("categoryId") Long categoryId);
+
+    @Query(value = "SELECT CAST(c.id AS BIGINT) AS \"id\", NULL AS \"code\", COALESCE(c.name, 'Uncategorized') AS \"name\", " +
+           MARGIN_SUMS + " FROM product_margin_monthly m JOIN products p ON p.id = m.product_id " +
+           "LEFT JOIN categories c ON c.id = p.category_id WHERE " + MARGIN_RANGE + " " +
+           "GROUP BY c.id, c.name ORDER BY SUM(m.revenue) - SUM(m.cost) DESC", nativeQuery = true)
+    List<MarginRow> findCategoryMargins(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query(value = "SELECT m.month AS \"month\", " + MARGIN_SUMS + " " +
+           "FROM product_margin_monthly m JOIN products p ON p.id = m.product_id WHERE " + MARGIN_RANGE + " " +
+           "AND (CAST(:productId AS BIGINT) IS NULL OR m.product_id = CAST(:productId AS BIGINT)) " +
+           "AND (CAST(:categoryId AS BIGINT) IS NULL OR p.category_id = CAST(:categoryId AS BIGINT)) " +
+           "GROUP BY m.month ORDER BY m.month", nativeQuery = true)
+    List<MonthlyMarginRow> findMonthlyMargins(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                              @Param("productId") Long productId,
+                                              @Param("categoryId") Long categoryId);
+
+    @Query(value = "SELECT CAST(p.id AS BIGINT) AS \"id\", p.code AS \"code\", p.name AS \"name\", " +
+           "CAST(SUM(l.quantity) AS INTEGER) AS \"quantity\", COALESCE(SUM(l.line_total), 0) AS \"revenue\", " +
+           "COALESCE(SUM(l.unit_cost * l.quantity), 0) AS \"cost\", CAST(COUNT(*) AS INTEGER) AS \"lineCount\", " +
+           "CAST(COUNT(*) FILTER (WHERE l.unit_cost IS NULL) AS INTEGER) AS \"uncostedLineCount\" " +
+           "FROM work_order_product_lines l JOIN products p ON p.id = l.product_id WHERE l.work_order_id = :workOrderId " +
+           "GROUP BY p.id, p.code, p.name ORDER BY p.code", nativeQuery = true)
+    List<MarginRow> findWorkOrderMargins(@Param("workOrderId") Long workOrderId);
+
+    interface RemovedProductLine extends WorkOrderRepository.RemovedLine {
+        Long getProductId();
+        Integer getQuantity();
+        BigDecimal getUnitCost();
+    }
+
+    interface MarginTotals {
+        Integer getQuantity();
+        BigDecimal getRevenue();
+        BigDecimal getCost();
+        Integer getLineCount();
+        Integer getUncostedLineCount();
+    }
+
+    interface MarginRow extends MarginTotals {
+        Long getId();
+        String getCode();
+        String getName();
+    }
+
+    interface MonthlyMarginRow extends MarginTotals {
+        LocalDate getMonth();
+    }
 }
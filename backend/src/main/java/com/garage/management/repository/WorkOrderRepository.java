@@ -3,10 +3,16 @@ package com.garage.management.repository;
 import com.garage.management.entity.WorkOrder;
 import com.garage.management.enums.WorkOrderStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface WorkOrderRepository extends JpaRepository<WorkOrder, Long> {
@@ -16,4 +22,93 @@ public interface WorkOrderRepository extends JpaRepository<WorkOrder, Long> {
     
     @Query("SELECT COUNT(w) FROM WorkOrder w WHERE w.status = 'OPEN' OR w.status = 'IN_PROGRESS'")
     Long countOpenWorkOrders();
+    
+    // Line edits move the total by the line's own amount; the row lock taken by the update
+    // serializes concurrent edits of the same work order
+    @Query(value = "UPDATE work_orders SET total_amount = COALESCE(total_amount, 0) + :delta, updated_at = NOW() " +
+           "WHERE id = :workOrderId RETURNING id AS \"workOrderId\", status AS \"status\", date AS \"date\", " +
+           "total_amount AS \"totalAmount\"", nativeQuery = true)
+    Optional<WorkOrderTotal> adjustTotalAmount(@Param("workOrderId") Long workOrderId, @Param("delta") BigDecimal delta);
+    
+    // Same rule as the single-line endpoints: the price history entry in effect on the
+    // date, else the item's selling price
+    @Query(value = "SELECT 'PRODUCT' AS \"kind\", p.id AS \"itemId\", COALESCE((SELECT h.price FROM product_price_history h " +
+           "WHERE h.product_id = p.id AND h.start_date <= :date AND (h.end_date IS NULL OR h.end_date >= :date) " +
+           "ORDER BY h.start_date DESC LIMIT 1), p.selling_price, 0) AS \"price\" FROM products p " +
+           "WHERE p.id = ANY(CAST(:productIds AS BIGINT[])) " +
+           "UNION ALL " +
+           "SELECT 'SERVICE', s.id, COALESCE((SELECT h.price FROM service_price_history h " +
+           "WHERE h.service_id = s.id AND h.start_date <= :date AND (h.end_date IS NULL OR h.end_date >= :date) " +
+           "ORDER BY h.start_date DESC LIMIT 1), s.selling_price, 0) FROM services s " +
+           "WHERE s.id = ANY(CAST(:serviceIds AS BIGINT[]))", nativeQuery = true)
+    List<LinePrice> findCurrentLinePrices(@Param("productIds") Long[] productIds,
+                                          @Param("serviceIds") Long[] serviceIds,
+                                          @Param("date") LocalDate date);
+    
+    String LINE_TOTALS =
+            "SELECT w.id, COALESCE(w.total_amount, 0) AS total_amount, " +
+            "COALESCE((SELECT SUM(l.line_total) FROM work_order_product_lines l WHERE l.work_order_id = w.id), 0) " +
+            "+ COALESCE((SELECT SUM(l.line_total) FROM work_order_service_lines l WHERE l.work_order_id = w.id), 0) " +
+            "AS line_total FROM work_orders w ";
+    
+    @Query(value = "SELECT t.id AS \"workOrderId\", t.total_amount AS \"totalAmount\", t.line_total AS \"lineTotal\" " +
+           "FROM (" + LINE_TOTALS + ") t WHERE t.total_amount <> t.line_total ORDER BY t.id", nativeQuery = true)
+    List<TotalDrift> findTotalDrift();
+    
+    // Repairs lock their work orders before re-summing, so a line delta committed while the
+    // sum is read waits and applies on top of it rather than being overwritten. Rows are
+    // always locked in id order and without blocking the lines' foreign key checks
+    String LOCK_FOR_RECOMPUTE = "SELECT COUNT(*) FROM (SELECT 1 FROM work_orders w WHERE ";
+    String LOCK_ORDER = " ORDER BY w.id FOR NO KEY UPDATE) l";
+    
+    String RECOMPUTE_TOTALS = "UPDATE work_orders w SET total_amount = t.line_total, updated_at = NOW() " +
+            "FROM (" + LINE_TOTALS + "WHERE ";
+    String RECOMPUTE_CHANGED = ") t WHERE w.id = t.id AND w.total_amount IS DISTINCT FROM t.line_total";
+    
+    @Query(value = LOCK_FOR_RECOMPUTE + "w.id IN :workOrderIds" + LOCK_ORDER, nativeQuery = true)
+    long lockForRecompute(@Param("workOrderIds") Collection<Long> workOrderIds);
+    
+    @Query(value = LOCK_FOR_RECOMPUTE + "w.id BETWEEN :fromId AND :toId" + LOCK_ORDER, nativeQuery = true)
+    long lockRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+    
+    @Query(value = LOCK_FOR_RECOMPUTE + "w.id = :id" + LOCK_ORDER, nativeQuery = true)
+    long lock(@Param("id") Long id);
+    
+    @Modifying
+    @Query(value = RECOMPUTE_TOTALS + "w.id IN :workOrderIds" + RECOMPUTE_CHANGED, nativeQuery = true)
+    int recomputeTotals(@Param("workOrderIds") Collection<Long> workOrderIds);
+    
+    @Modifying
+    @Query(value = RECOMPUTE_TOTALS + "w.id BETWEEN :fromId AND :toId" + RECOMPUTE_CHANGED, nativeQuery = true)
+    int recomputeTotalsInRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+    
+    @Query("SELECT MIN(w.id) FROM WorkOrder w")
+    Long findMinId();
+    
+    @Query("SELECT MAX(w.id) FROM WorkOrder w")
+    Long findMaxId();
+    
+    interface WorkOrderTotal {
+        Long getWorkOrderId();
+        String getStatus();
+        LocalDate getDate();
+        BigDecimal getTotalAmount();
+    }
+    
+    interface LinePrice {
+        String getKind();
+        Long getItemId();
+        BigDecimal getPrice();
+    }
+    
+    interface RemovedLine {
+        Long getWorkOrderId();
+        BigDecimal getLineTotal();
+    }
+    
+    interface TotalDrift {
+        Long getWorkOrderId();
+        BigDecimal getTotalAmount();
+        BigDecimal getLineTotal();
+    }
 }
@@ -2,11 +2,32 @@ package com.garage.management.repository;
 
 import com.garage.management.entity.WorkOrderServiceLine;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface WorkOrderServiceLineRepository extends JpaRepository<WorkOrderServiceLine, Long> {
     List<WorkOrderServiceLine> findByWorkOrderId(Long workOrderId);
+
+    @Query(value = "INSERT INTO work_order_service_lines (work_order_id, service_id, quantity, unit_price, " +
+           "discount_percent, final_unit_price, line_total) " +
+           "SELECT :workOrderId, t.service_id, t.quantity, t.unit_price, t.discount_percent, t.final_unit_price, t.line_total " +
+           "FROM unnest(CAST(:serviceIds AS BIGINT[]), CAST(:quantities AS INTEGER[]), " +
+           "CAST(:unitPrices AS NUMERIC[]), CAST(:discountPercents AS NUMERIC[]), " +
+           "CAST(:finalUnitPrices AS NUMERIC[]), CAST(:lineTotals AS NUMERIC[])) WITH ORDINALITY " +
+           "AS t(service_id, quantity, unit_price, discount_percent, final_unit_price, line_total, ord) " +
+           "ORDER BY t.ord RETURNING CAST(id AS BIGINT)", nativeQuery = true)
+    List<Long> insertLines(@Param("workOrderId") Long workOrderId, @Param("serviceIds") Long[] serviceIds,
+                           @Param("quantities") Integer[] quantities, @Param("unitPrices") BigDecimal[] unitPrices,
+                           @Param("discountPercents") BigDecimal[] discountPercents,
+                           @Param("finalUnitPrices") BigDecimal[] finalUnitPrices, @Param("lineTotals") BigDecimal[] lineTotals);
+
+    @Query(value = "DELETE FROM work_order_service_lines WHERE id = :lineId " +
+           "RETURNING work_order_id AS \"workOrderId\", line_total AS \"lineTotal\"", nativeQuery = true)
+    Optional<WorkOrderRepository.RemovedLine> deleteReturningTotal(@Param("lineId") Long lineId);
 }
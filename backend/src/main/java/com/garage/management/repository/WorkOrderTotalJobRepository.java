@@ -0,0 +1,43 @@
+package com.garage.management.repository;
+
+import com.garage.management.entity.WorkOrderTotalJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface WorkOrderTotalJobRepository extends JpaRepository<WorkOrderTotalJob, Long> {
+    
+    List<WorkOrderTotalJob> findByStatusOrderById(String status);
+    
+    @Query(value = "SELECT range_from FROM work_order_total_job_chunks WHERE job_id = :jobId", nativeQuery = true)
+    List<Long> findCompletedChunks(@Param("jobId") Long jobId);
+    
+    // The checkpoint row and the progress counters are written in the chunk's own
+    // transaction, together with the recomputed totals
+    @Modifying
+    @Query(value = "INSERT INTO work_order_total_job_chunks (job_id, range_from, range_to, work_orders, corrected, completed_at) " +
+           "VALUES (:jobId, :rangeFrom, :rangeTo, :workOrders, :corrected, NOW()) " +
+           "ON CONFLICT (job_id, range_from) DO NOTHING", nativeQuery = true)
+    int recordChunk(@Param("jobId") Long jobId, @Param("rangeFrom") Long rangeFrom, @Param("rangeTo") Long rangeTo,
+                    @Param("workOrders") int workOrders, @Param("corrected") int corrected);
+    
+    @Modifying
+    @Query(value = "UPDATE work_order_total_jobs SET chunks_done = chunks_done + 1, " +
+           "processed_work_orders = processed_work_orders + :processed, " +
+           "corrected_work_orders = corrected_work_orders + :corrected, updated_at = NOW() " +
+           "WHERE id = :jobId", nativeQuery = true)
+    int addProgress(@Param("jobId") Long jobId, @Param("processed") int processed, @Param("corrected") int corrected);
+    
+    @Modifying
+    @Query(value = "UPDATE work_order_total_jobs SET status = :status, error = :error, " +
+           "work_orders_per_second = :throughput, finished_at = NOW(), updated_at = NOW() " +
+           "WHERE id = :jobId", nativeQuery = true)
+    int finish(@Param("jobId") Long jobId, @Param("status") String status, @Param("error") String error,
+               @Param("throughput") BigDecimal throughput);
+}
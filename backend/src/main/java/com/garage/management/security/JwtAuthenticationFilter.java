@@ -13,29 +13,38 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final Set<String> STREAM_PATHS = Set.of("/api/live/stream", "/api/stock/low-stock/stream");
+
     private final JwtUtil jwtUtil;
+    private final StreamTicketService streamTicketService;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, StreamTicketService streamTicketService) {
         this.jwtUtil = jwtUtil;
+        this.streamTicketService = streamTicketService;
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         
-        String authHeader = request.getHeader("Authorization");
-        
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        if (isStreamRequest(request)) {
+            authenticateTicket(request);
             filterChain.doFilter(request, response);
             return;
         }
 
-        String token = authHeader.substring(7);
+        String token = resolveToken(request);
+        
+        if (token == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
         
         if (!jwtUtil.validateToken(token)) {
             filterChain.doFilter(request, response);
@@ -62,4 +71,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    // EventSource cannot send headers, so the two event streams are opened with a single
+    // use ticket from /api/live/ticket; the JWT is only accepted in the Authorization header
+    private boolean isStreamRequest(HttpServletRequest request) {
+        return "GET".equals(request.getMethod()) && request.getParameter("ticket") != null
+                && STREAM_PATHS.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    private void authenticateTicket(HttpServletRequest request) {
+        streamTicketService.redeem(request.getParameter("ticket")).ifPresent(ticket -> {
+            UsernamePasswordAuthenticationToken authentication =
+                    new UsernamePasswordAuthenticationToken(ticket.getUsername(), null, ticket.getAuthorities());
+            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        });
+    }
+
+    private String resolveToken(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return authHeader.substring(7);
+        }
+        return null;
+    }
 }
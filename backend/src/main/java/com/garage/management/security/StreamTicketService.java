@@ -0,0 +1,66 @@
+package com.garage.management.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// EventSource cannot send an Authorization header, so a stream is opened with a short
+// lived ticket instead of the JWT itself. Tickets live in memory and are used up by the
+// first request that presents them.
+@Component
+public class StreamTicketService {
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final long ttlMs;
+
+    public StreamTicketService(@Value("${garage.live.ticket-ttl-ms:30000}") long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+
+    public String issue(String username, Collection<? extends GrantedAuthority> authorities) {
+        long now = System.currentTimeMillis();
+        tickets.values().removeIf(ticket -> ticket.expiresAt < now);
+
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String value = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tickets.put(value, new Ticket(username, List.copyOf(authorities), now + ttlMs));
+        return value;
+    }
+
+    public Optional<Ticket> redeem(String value) {
+        Ticket ticket = tickets.remove(value);
+        if (ticket == null || ticket.expiresAt < System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        return Optional.of(ticket);
+    }
+
+    public long getTtlSeconds() {
+        return ttlMs / 1000;
+    }
+
+    public static class Ticket {
+        private final String username;
+        private final List<GrantedAuthority> authorities;
+        private final long expiresAt;
+
+        private Ticket(String username, List<GrantedAuthority> authorities, long expiresAt) {
+            this.username = username;
+            this.authorities = authorities;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getUsername() { return username; }
+        public List<GrantedAuthority> getAuthorities() { return authorities; }
+    }
+}
@@ -1,71 +1,105 @@
 package com.garage.management.service;
 
-import com.garage.management.repository.*;
+import com.garage.management.entity.DashboardCounters;
+import com.garage.management.event.DashboardDataChangedEvent;
+import com.garage.management.repository.DashboardCountersRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
-import java.time.YearMonth;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class DashboardService {
     
-    private final WorkOrderRepository workOrderRepository;
-    private final InvoiceRepository invoiceRepository;
-    private final ProductRepository productRepository;
-    private final ExpenseRepository expenseRepository;
-    private final CompanyRepository companyRepository;
-    private final ClientRepository clientRepository;
-    private final VehicleRepository vehicleRepository;
-    private final SupplierRepository supplierRepository;
-    private final ServiceRepository serviceRepository;
+    private final DashboardCountersRepository dashboardCountersRepository;
+    private final LowStockMonitor lowStockMonitor;
+    private final long cacheTtlNanos;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter cacheInvalidations;
     
-    public DashboardService(WorkOrderRepository workOrderRepository,
-                            InvoiceRepository invoiceRepository,
-                            ProductRepository productRepository,
-                            ExpenseRepository expenseRepository,
-                            CompanyRepository companyRepository,
-                            ClientRepository clientRepository,
-                            VehicleRepository vehicleRepository,
-                            SupplierRepository supplierRepository,
-                            ServiceRepository serviceRepository) {
-        this.workOrderRepository = workOrderRepository;
-        this.invoiceRepository = invoiceRepository;
-        this.productRepository = productRepository;
-        this.expenseRepository = expenseRepository;
-        this.companyRepository = companyRepository;
-        this.clientRepository = clientRepository;
-        this.vehicleRepository = vehicleRepository;
-        this.supplierRepository = supplierRepository;
-        this.serviceRepository = serviceRepository;
+    // Bumped on every invalidation; a load that started under an older generation is
+    // returned to its caller but not cached, so it cannot overwrite a newer invalidation
+    private final AtomicLong generation = new AtomicLong();
+    private volatile CachedCounters cached;
+    
+    public DashboardService(DashboardCountersRepository dashboardCountersRepository,
+                            LowStockMonitor lowStockMonitor,
+                            MeterRegistry meterRegistry,
+                            @Value("${garage.dashboard.cache-ttl-ms:30000}") long cacheTtlMs) {
+        this.dashboardCountersRepository = dashboardCountersRepository;
+        this.lowStockMonitor = lowStockMonitor;
+        this.cacheTtlNanos = cacheTtlMs * 1_000_000L;
+        this.cacheHits = Counter.builder("garage.dashboard.cache")
+                .tag("result", "hit")
+                .description("Dashboard stats served from the cache")
+                .register(meterRegistry);
+        this.cacheMisses = Counter.builder("garage.dashboard.cache")
+                .tag("result", "miss")
+                .description("Dashboard stats loaded from the database")
+                .register(meterRegistry);
+        this.cacheInvalidations = Counter.builder("garage.dashboard.cache.invalidations")
+                .description("Dashboard cache entries dropped because the underlying data changed")
+                .register(meterRegistry);
     }
     
+    // Counters are cached; low stock always comes live from the in-memory monitor
     public DashboardStats getStats() {
         DashboardStats stats = new DashboardStats();
+        DashboardCounters counters = getCounters();
         
-        stats.openWorkOrders = workOrderRepository.countOpenWorkOrders();
-        if (stats.openWorkOrders == null) stats.openWorkOrders = 0L;
-        
-        stats.outstandingAmount = invoiceRepository.getTotalOutstandingAmount();
-        if (stats.outstandingAmount == null) stats.outstandingAmount = BigDecimal.ZERO;
-        
-        stats.lowStockProducts = productRepository.countLowStockProducts();
-        if (stats.lowStockProducts == null) stats.lowStockProducts = 0L;
+        stats.openWorkOrders = counters.getOpenWorkOrders();
+        stats.outstandingAmount = counters.getOutstandingAmount();
+        stats.lowStockProducts = lowStockMonitor.getCount();
+        stats.monthlyExpenses = counters.getMonthlyExpenses();
+        stats.totalCompanies = counters.getTotalCompanies();
+        stats.totalClients = counters.getTotalClients();
+        stats.totalVehicles = counters.getTotalVehicles();
+        stats.totalProducts = counters.getTotalProducts();
+        stats.totalServices = counters.getTotalServices();
+        stats.totalSuppliers = counters.getTotalSuppliers();
         
-        YearMonth currentMonth = YearMonth.now();
-        LocalDate monthStart = currentMonth.atDay(1);
-        LocalDate monthEnd = currentMonth.atEndOfMonth();
-        stats.monthlyExpenses = expenseRepository.getTotalExpensesBetween(monthStart, monthEnd);
-        if (stats.monthlyExpenses == null) stats.monthlyExpenses = BigDecimal.ZERO;
+        return stats;
+    }
+    
+    // Runs after the changing transaction commits, so the next load sees the change. Entity
+    // saves publish through DashboardDataListener; services writing the view's tables with
+    // native SQL publish themselves. The TTL only bounds writes made outside the application
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataChanged(DashboardDataChangedEvent event) {
+        generation.incrementAndGet();
+        cached = null;
+        cacheInvalidations.increment();
+    }
+    
+    private DashboardCounters getCounters() {
+        CachedCounters current = cached;
+        if (current != null && System.nanoTime() - current.loadedAt < cacheTtlNanos) {
+            cacheHits.increment();
+            return current.counters;
+        }
         
-        stats.totalCompanies = companyRepository.countByActiveTrue();
-        stats.totalClients = clientRepository.countByActiveTrue();
-        stats.totalVehicles = vehicleRepository.count();
-        stats.totalProducts = productRepository.countByActiveTrue();
-        stats.totalServices = serviceRepository.countByActiveTrue();
-        stats.totalSuppliers = supplierRepository.countByActiveTrue();
+        cacheMisses.increment();
+        long loadGeneration = generation.get();
+        DashboardCounters counters = dashboardCountersRepository.findCounters();
+        if (generation.get() == loadGeneration) {
+            cached = new CachedCounters(counters, System.nanoTime());
+        }
+        return counters;
+    }
+    
+    private static class CachedCounters {
+        private final DashboardCounters counters;
+        private final long loadedAt;
         
-        return stats;
+        private CachedCounters(DashboardCounters counters, long loadedAt) {
+            this.counters = counters;
+            this.loadedAt = loadedAt;
+        }
     }
     
     public static class DashboardStats {
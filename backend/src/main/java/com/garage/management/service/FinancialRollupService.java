@@ -0,0 +1,104 @@
+package com.garage.management.service;
+
+import com.garage.management.event.FinancialDataChangedEvent;
+import com.garage.management.repository.DailyFinancialRollupRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+@Service
+public class FinancialRollupService {
+
+    public enum Granularity { DAY, WEEK, MONTH }
+
+    private static final int MAX_BUCKETS = 5000;
+
+    private final DailyFinancialRollupRepository rollupRepository;
+    private final int lookbackDays;
+
+    public FinancialRollupService(DailyFinancialRollupRepository rollupRepository,
+                                  @Value("${garage.financial-rollup.lookback-days:7}") int lookbackDays) {
+        this.rollupRepository = rollupRepository;
+        this.lookbackDays = lookbackDays;
+    }
+
+    // Runs once the write has committed, in its own transaction, so it reads the new rows
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onFinancialDataChanged(FinancialDataChangedEvent event) {
+        refreshDays(event.getDays());
+    }
+
+    // Catches writes whose after-commit refresh was lost (restart, failure) and anything
+    // written outside the entity listeners within the lookback window
+    @Scheduled(cron = "${garage.financial-rollup.cron:0 15 2 * * *}")
+    @Transactional
+    public int catchUp() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        TreeSet<LocalDate> days = new TreeSet<>(
+                rollupRepository.findDaysChangedSince(rollupRepository.findLastRunStartedAt()));
+        LocalDate today = startedAt.toLocalDate();
+        for (int i = 0; i < lookbackDays; i++) {
+            days.add(today.minusDays(i));
+        }
+        refreshDays(days);
+        rollupRepository.markRunStarted(startedAt);
+        return days.size();
+    }
+
+    public List<TimeseriesPoint> getTimeseries(LocalDate from, LocalDate to, Granularity granularity) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("A range with from <= to is required");
+        }
+        ChronoUnit unit = granularity == Granularity.MONTH ? ChronoUnit.MONTHS
+                : granularity == Granularity.WEEK ? ChronoUnit.WEEKS : ChronoUnit.DAYS;
+        if (unit.between(from, to) >= MAX_BUCKETS) {
+            throw new IllegalArgumentException("Range covers more than " + MAX_BUCKETS + " buckets");
+        }
+
+        return rollupRepository.findTimeseries(granularity.name().toLowerCase(), from, to).stream()
+                .map(bucket -> {
+                    TimeseriesPoint point = new TimeseriesPoint();
+                    point.bucketStart = bucket.getBucketStart();
+                    point.invoicedAmount = bucket.getInvoicedAmount();
+                    point.invoiceCount = bucket.getInvoiceCount();
+                    point.paymentsAmount = bucket.getPaymentsAmount();
+                    point.paymentCount = bucket.getPaymentCount();
+                    point.expensesAmount = bucket.getExpensesAmount();
+                    point.expenseCount = bucket.getExpenseCount();
+                    point.net = bucket.getPaymentsAmount().subtract(bucket.getExpensesAmount());
+                    return point;
+                })
+                .collect(Collectors.toList());
+    }
+
+    private void refreshDays(Collection<LocalDate> days) {
+        if (days.isEmpty()) {
+            return;
+        }
+        rollupRepository.refreshDays(days.toArray(new LocalDate[0]));
+    }
+
+    public static class TimeseriesPoint {
+        public LocalDate bucketStart;
+        public BigDecimal invoicedAmount;
+        public Integer invoiceCount;
+        public BigDecimal paymentsAmount;
+        public Integer paymentCount;
+        public BigDecimal expensesAmount;
+        public Integer expenseCount;
+        public BigDecimal net;
+    }
+}
@@ -0,0 +1,135 @@
+package com.garage.management.service;
+
+import com.garage.management.repository.ProductValuationRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+@Service
+public class InventoryValuationService {
+
+    private final ProductValuationRepository productValuationRepository;
+
+    public InventoryValuationService(ProductValuationRepository productValuationRepository) {
+        this.productValuationRepository = productValuationRepository;
+    }
+
+    // Must run in the transaction that changed current_stock: the product rows are already
+    // locked there, which serializes concurrent updates to the same valuation rows
+    @Transactional
+    public void applyChanges(Collection<ValuationChange> changes) {
+        Map<Long, long[]> quantities = new TreeMap<>();
+        Map<Long, BigDecimal> purchasedValues = new TreeMap<>();
+        for (ValuationChange change : changes) {
+            if (change.productId == null || change.quantity == null || change.quantity == 0) {
+                continue;
+            }
+            long[] totals = quantities.computeIfAbsent(change.productId, id -> new long[2]);
+            if (change.quantity > 0 && change.unitCost != null) {
+                totals[0] += change.quantity;
+                purchasedValues.merge(change.productId,
+                        change.unitCost.multiply(BigDecimal.valueOf(change.quantity)), BigDecimal::add);
+            } else {
+                totals[1] += change.quantity;
+            }
+        }
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        Long[] productIds = new Long[quantities.size()];
+        Integer[] purchasedQuantities = new Integer[quantities.size()];
+        BigDecimal[] purchasedValueList = new BigDecimal[quantities.size()];
+        Integer[] otherQuantities = new Integer[quantities.size()];
+        int i = 0;
+        for (Map.Entry<Long, long[]> entry : quantities.entrySet()) {
+            productIds[i] = entry.getKey();
+            purchasedQuantities[i] = Math.toIntExact(entry.getValue()[0]);
+            purchasedValueList[i] = purchasedValues.getOrDefault(entry.getKey(), BigDecimal.ZERO);
+            otherQuantities[i] = Math.toIntExact(entry.getValue()[1]);
+            i++;
+        }
+
+        productValuationRepository.seedMissing(productIds, purchasedQuantities, purchasedValueList, otherQuantities);
+        productValuationRepository.applyAverageCost(productIds, purchasedQuantities, purchasedValueList, otherQuantities);
+        productValuationRepository.addLayers(productIds, purchasedQuantities, purchasedValueList, otherQuantities);
+        productValuationRepository.consumeLayers(productIds, purchasedQuantities, purchasedValueList, otherQuantities);
+        productValuationRepository.deleteExhaustedLayers(productIds);
+        productValuationRepository.refreshFifoValue(productIds);
+    }
+
+    // For stock corrected outside the movement paths (recompute, reconciliation repair): the
+    // valuation quantity is brought to the corrected stock, the difference moving at the
+    // running average. Same transaction and locks as applyChanges.
+    @Transactional
+    public void alignWithStock(Collection<Long> productIds) {
+        applyChanges(productValuationRepository.findQuantityGaps(productIds).stream()
+                .map(gap -> ValuationChange.atAverageCost(gap.getProductId(), gap.getQuantity()))
+                .collect(Collectors.toList()));
+    }
+
+    public ValuationSummary getValuation() {
+        ValuationSummary summary = new ValuationSummary();
+        summary.categories = productValuationRepository.findCategoryValuations().stream()
+                .map(row -> {
+                    CategoryValuation category = new CategoryValuation();
+                    category.categoryId = row.getCategoryId();
+                    category.categoryName = row.getCategoryName();
+                    category.productCount = row.getProductCount();
+                    category.quantity = row.getQuantity();
+                    category.averageCostValue = row.getAverageCostValue();
+                    category.fifoValue = row.getFifoValue();
+                    return category;
+                })
+                .collect(Collectors.toList());
+
+        for (CategoryValuation category : summary.categories) {
+            summary.productCount += category.productCount;
+            summary.quantity += category.quantity;
+            summary.averageCostValue = summary.averageCostValue.add(category.averageCostValue);
+            summary.fifoValue = summary.fifoValue.add(category.fifoValue);
+        }
+        return summary;
+    }
+
+    // A positive quantity with a unit cost is a purchase; anything else moves stock at
+    // the running average cost and, when outgoing, consumes the oldest FIFO layers
+    public static class ValuationChange {
+        public final Long productId;
+        public final Integer quantity;
+        public final BigDecimal unitCost;
+
+        public ValuationChange(Long productId, Integer quantity, BigDecimal unitCost) {
+            this.productId = productId;
+            this.quantity = quantity;
+            this.unitCost = unitCost;
+        }
+
+        public static ValuationChange atAverageCost(Long productId, Integer quantity) {
+            return new ValuationChange(productId, quantity, null);
+        }
+    }
+
+    public static class ValuationSummary {
+        public long productCount;
+        public long quantity;
+        public BigDecimal averageCostValue = BigDecimal.ZERO;
+        public BigDecimal fifoValue = BigDecimal.ZERO;
+        public List<CategoryValuation> categories;
+    }
+
+    public static class CategoryValuation {
+        public Long categoryId;
+        public String categoryName;
+        public long productCount;
+        public long quantity;
+        public BigDecimal averageCostValue;
+        public BigDecimal fifoValue;
+    }
+}
@@ -0,0 +1,97 @@
+package com.garage.management.service;
+
+import com.garage.management.entity.Invoice;
+import com.garage.management.entity.InvoiceLine;
+import com.garage.management.enums.InvoiceStatus;
+import com.garage.management.event.DashboardDataChangedEvent;
+import com.garage.management.event.FinancialDataChangedEvent;
+import com.garage.management.repository.InvoiceLineRepository;
+import com.garage.management.repository.InvoiceRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+// Every write that changes an invoice's total locks the invoice first and moves the total
+// and the remaining balance together in one statement, so concurrent edits cannot apply
+// their deltas against the same stale total
+@Service
+public class InvoiceService {
+
+    private final InvoiceRepository invoiceRepository;
+    private final InvoiceLineRepository invoiceLineRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public InvoiceService(InvoiceRepository invoiceRepository,
+                          InvoiceLineRepository invoiceLineRepository,
+                          ApplicationEventPublisher eventPublisher) {
+        this.invoiceRepository = invoiceRepository;
+        this.invoiceLineRepository = invoiceLineRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional
+    public Optional<Invoice> update(Long id, Invoice changes) {
+        if (invoiceRepository.lockBalances(List.of(id)).isEmpty()) {
+            return Optional.empty();
+        }
+        Invoice existing = invoiceRepository.findById(id).orElseThrow();
+        if (existing.getStatus() == InvoiceStatus.ISSUED || existing.getStatus() == InvoiceStatus.PAID) {
+            throw new IllegalArgumentException("Issued or paid invoices cannot be edited");
+        }
+        existing.setClient(changes.getClient());
+        existing.setCompany(changes.getCompany());
+        existing.setDate(changes.getDate());
+        existing.setStatus(changes.getStatus());
+        Invoice saved = invoiceRepository.save(existing);
+
+        applyTotals(saved, invoiceRepository.setTotalAmount(id, changes.getTotalAmount()));
+        return Optional.of(saved);
+    }
+
+    @Transactional
+    public Optional<InvoiceLine> addLine(Long invoiceId, InvoiceLine line) {
+        if (invoiceRepository.lockBalances(List.of(invoiceId)).isEmpty()) {
+            return Optional.empty();
+        }
+        Invoice invoice = invoiceRepository.findById(invoiceId).orElseThrow();
+        if (invoice.getStatus() != InvoiceStatus.DRAFT) {
+            throw new IllegalArgumentException("Lines can only be added to draft invoices");
+        }
+        line.setInvoice(invoice);
+        InvoiceLine saved = invoiceLineRepository.save(line);
+
+        applyTotals(invoice, invoiceRepository.recomputeTotalAmount(invoiceId));
+        return Optional.of(saved);
+    }
+
+    @Transactional
+    public boolean deleteLine(Long lineId) {
+        Optional<InvoiceLine> found = invoiceLineRepository.findById(lineId);
+        if (found.isEmpty()) {
+            return false;
+        }
+        Long invoiceId = found.get().getInvoice().getId();
+        invoiceRepository.lockBalances(List.of(invoiceId));
+        Invoice invoice = invoiceRepository.findById(invoiceId).orElseThrow();
+        if (invoice.getStatus() != InvoiceStatus.DRAFT) {
+            throw new IllegalArgumentException("Lines can only be removed from draft invoices");
+        }
+        invoiceLineRepository.delete(found.get());
+
+        applyTotals(invoice, invoiceRepository.recomputeTotalAmount(invoiceId));
+        return true;
+    }
+
+    // The totals are written with SQL rather than through the entity, so the rollup and
+    // dashboard listeners are told here
+    private void applyTotals(Invoice invoice, InvoiceRepository.InvoiceTotals totals) {
+        invoice.setTotalAmount(totals.getTotalAmount());
+        invoice.setRemainingBalance(totals.getRemainingBalance());
+        eventPublisher.publishEvent(new FinancialDataChangedEvent(Set.of(invoice.getDate())));
+        eventPublisher.publishEvent(new DashboardDataChangedEvent(Invoice.class.getSimpleName()));
+    }
+}
@@ -0,0 +1,142 @@
+package com.garage.management.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garage.management.enums.WorkOrderStatus;
+import com.garage.management.event.DashboardDataChangedEvent;
+import com.garage.management.event.StockLevelChangedEvent;
+import com.garage.management.event.WorkOrderChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+public class LiveUpdateService {
+
+    private static final TypeReference<Map<String, Object>> COUNTERS_TYPE = new TypeReference<>() {};
+
+    private final DashboardService dashboardService;
+    private final ObjectMapper objectMapper;
+    private final SseBroadcaster broadcaster;
+    private final long debounceMs;
+
+    // Every send happens on this thread: the committing request never waits on slow
+    // clients, and each payload is serialized once however many clients are connected
+    private final ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "live-updates");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean countersPushPending = new AtomicBoolean(false);
+    private Map<String, Object> lastCounters;
+
+    public LiveUpdateService(DashboardService dashboardService,
+                             ObjectMapper objectMapper,
+                             @Value("${garage.live.stream-timeout-ms:1800000}") long streamTimeoutMs,
+                             @Value("${garage.live.debounce-ms:500}") long debounceMs) {
+        this.dashboardService = dashboardService;
+        this.objectMapper = objectMapper;
+        this.broadcaster = new SseBroadcaster(streamTimeoutMs);
+        this.debounceMs = debounceMs;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    // The snapshot doubles as the baseline for the first diff when nobody was subscribed
+    public SseEmitter subscribe() {
+        DashboardService.DashboardStats stats = dashboardService.getStats();
+        sender.execute(() -> {
+            if (lastCounters == null) {
+                lastCounters = objectMapper.convertValue(stats, COUNTERS_TYPE);
+            }
+        });
+        return broadcaster.subscribe("counters", stats);
+    }
+
+    public int getSubscriberCount() {
+        return broadcaster.getSubscriberCount();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDashboardDataChanged(DashboardDataChangedEvent event) {
+        scheduleCountersPush();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockLevelChanged(StockLevelChangedEvent event) {
+        scheduleCountersPush();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onWorkOrderChanged(WorkOrderChangedEvent event) {
+        if (broadcaster.getSubscriberCount() == 0) {
+            return;
+        }
+        Map<String, Object> change = new HashMap<>();
+        change.put("id", event.getWorkOrderId());
+        change.put("status", event.getStatus());
+        change.put("date", event.getDate());
+        change.put("totalAmount", event.getTotalAmount());
+        change.put("removed", event.isRemoved());
+        change.put("open", !event.isRemoved()
+                && (event.getStatus() == WorkOrderStatus.OPEN || event.getStatus() == WorkOrderStatus.IN_PROGRESS));
+        sender.execute(() -> broadcastJson("work-order", change));
+    }
+
+    @Scheduled(fixedDelayString = "${garage.live.heartbeat-ms:30000}")
+    public void heartbeat() {
+        sender.execute(broadcaster::heartbeat);
+    }
+
+    // A burst of writes (a payment touching several invoices) becomes one counters query
+    // and one message carrying only the figures that changed
+    private void scheduleCountersPush() {
+        if (countersPushPending.compareAndSet(false, true)) {
+            sender.schedule(this::pushCounters, debounceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void pushCounters() {
+        countersPushPending.set(false);
+        if (broadcaster.getSubscriberCount() == 0) {
+            lastCounters = null;
+            return;
+        }
+
+        Map<String, Object> counters = objectMapper.convertValue(dashboardService.getStats(), COUNTERS_TYPE);
+        Map<String, Object> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : counters.entrySet()) {
+            if (lastCounters == null || !Objects.equals(lastCounters.get(entry.getKey()), entry.getValue())) {
+                changed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        lastCounters = counters;
+        if (!changed.isEmpty()) {
+            broadcastJson("counters", changed);
+        }
+    }
+
+    private void broadcastJson(String eventName, Object data) {
+        try {
+            broadcaster.broadcastJson(eventName, objectMapper.writeValueAsString(data));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + eventName + " update", e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.garage.management.service;
+
+import com.garage.management.event.StockLevelChangedEvent;
+import com.garage.management.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Service
+public class LowStockMonitor {
+    
+    private final ProductRepository productRepository;
+    private final Set<Long> lowStockProductIds = ConcurrentHashMap.newKeySet();
+    private final SseBroadcaster broadcaster;
+    
+    // Sends run on this thread so a committing stock change never waits on slow clients;
+    // one thread also keeps the changes in the order they were applied
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "low-stock-updates");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public LowStockMonitor(ProductRepository productRepository,
+                           @Value("${garage.stock.low-stock.stream-timeout-ms:1800000}") long streamTimeoutMs) {
+        this.productRepository = productRepository;
+        this.broadcaster = new SseBroadcaster(streamTimeoutMs);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+    
+    public long getCount() {
+        return lowStockProductIds.size();
+    }
+    
+    public Set<Long> getProductIds() {
+        return Set.copyOf(lowStockProductIds);
+    }
+    
+    public SseEmitter subscribe() {
+        return broadcaster.subscribe("snapshot", Map.of(
+                "productIds", getProductIds(),
+                "count", getCount()));
+    }
+    
+    // Applied only once the mutation has committed, so a rolled back movement never
+    // shows up as an alert
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockLevelChanged(StockLevelChangedEvent event) {
+        boolean low = event.isLowStock();
+        boolean changed = low
+                ? lowStockProductIds.add(event.getProductId())
+                : lowStockProductIds.remove(event.getProductId());
+        if (changed) {
+            publishChange(event.getProductId(), low, event.getCurrentStock(), event.getMinStock());
+        }
+    }
+    
+    // Rebuilds the set from the products table at startup and then periodically, which
+    // also repairs it after stock changes made outside the application
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${garage.stock.low-stock.resync-interval-ms:600000}",
+               initialDelayString = "${garage.stock.low-stock.resync-interval-ms:600000}")
+    public void resync() {
+        Set<Long> actual = new HashSet<>(productRepository.findLowStockProductIds());
+        
+        for (Long productId : List.copyOf(lowStockProductIds)) {
+            if (!actual.contains(productId) && lowStockProductIds.remove(productId)) {
+                publishChange(productId, false, null, null);
+            }
+        }
+        for (Long productId : actual) {
+            if (lowStockProductIds.add(productId)) {
+                publishChange(productId, true, null, null);
+            }
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${garage.stock.low-stock.heartbeat-ms:30000}")
+    public void heartbeat() {
+        sender.execute(broadcaster::heartbeat);
+    }
+    
+    private void publishChange(Long productId, boolean low, Integer currentStock, Integer minStock) {
+        Map<String, Object> change = new HashMap<>();
+        change.put("productId", productId);
+        change.put("lowStock", low);
+        change.put("currentStock", currentStock);
+        change.put("minStock", minStock);
+        change.put("count", getCount());
+        sender.execute(() -> broadcaster.broadcast("low-stock", change));
+    }
+}
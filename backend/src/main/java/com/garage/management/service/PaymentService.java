@@ -6,30 +6,54 @@ import com.garage.management.entity.PaymentAllocation;
 import com.garage.management.enums.InvoiceStatus;
 import com.garage.management.enums.PayerType;
 import com.garage.management.enums.PaymentMethod;
+import com.garage.management.event.DashboardDataChangedEvent;
+import com.garage.management.event.FinancialDataChangedEvent;
 import com.garage.management.repository.InvoiceRepository;
 import com.garage.management.repository.PaymentAllocationRepository;
 import com.garage.management.repository.PaymentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class PaymentService {
     
+    private static final int MAX_REPORTED_DRIFTS = 1000;
+    
     private final PaymentRepository paymentRepository;
     private final PaymentAllocationRepository allocationRepository;
     private final InvoiceRepository invoiceRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean scheduledRepair;
+    private final TransactionTemplate transactionTemplate;
+    
+    private volatile BalanceVerification lastVerification;
     
     public PaymentService(PaymentRepository paymentRepository,
                           PaymentAllocationRepository allocationRepository,
-                          InvoiceRepository invoiceRepository) {
+                          InvoiceRepository invoiceRepository,
+                          ApplicationEventPublisher eventPublisher,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${garage.invoices.balance-verification.auto-repair:false}") boolean scheduledRepair) {
         this.paymentRepository = paymentRepository;
         this.allocationRepository = allocationRepository;
         this.invoiceRepository = invoiceRepository;
+        this.eventPublisher = eventPublisher;
+        this.scheduledRepair = scheduledRepair;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
     
     public List<Invoice> getUnpaidInvoicesForPayer(PayerType payerType, Long payerId) {
@@ -40,6 +64,8 @@ public class PaymentService {
         }
     }
     
+    // The payer's open balances are read once, the split is worked out in memory, and the
+    // allocations and invoice balances are each written by a single statement
     @Transactional
     public Payment applyPayment(PayerType payerType, Long payerId, BigDecimal totalAmount,
                                 PaymentMethod method, LocalDate date, String notes,
@@ -54,69 +80,134 @@ public class PaymentService {
         
         Payment savedPayment = paymentRepository.save(payment);
         
-        List<PaymentAllocation> allocations = new ArrayList<>();
+        List<Long> invoiceIds = new ArrayList<>();
+        List<BigDecimal> amounts = new ArrayList<>();
         
         if (manualAllocations != null && !manualAllocations.isEmpty()) {
+            Set<Long> requestedIds = new HashSet<>();
             for (AllocationRequest req : manualAllocations) {
-                Invoice invoice = invoiceRepository.findById(req.invoiceId)
-                        .orElseThrow(() -> new RuntimeException("Invoice not found: " + req.invoiceId));
-                
-                PaymentAllocation allocation = new PaymentAllocation();
-                allocation.setPayment(savedPayment);
-                allocation.setInvoice(invoice);
-                allocation.setAllocatedAmount(req.amount);
-                allocations.add(allocationRepository.save(allocation));
-                
-                updateInvoiceStatus(invoice);
+                if (req.invoiceId == null || req.amount == null || req.amount.compareTo(BigDecimal.ZERO) <= 0) {
+                    throw new IllegalArgumentException("Every allocation needs an invoice and a positive amount");
+                }
+                requestedIds.add(req.invoiceId);
+            }
+            Set<Long> foundIds = invoiceRepository.lockBalances(requestedIds).stream()
+                    .map(InvoiceRepository.InvoiceBalance::getInvoiceId)
+                    .collect(Collectors.toSet());
+            for (AllocationRequest req : manualAllocations) {
+                if (!foundIds.contains(req.invoiceId)) {
+                    throw new RuntimeException("Invoice not found: " + req.invoiceId);
+                }
+                invoiceIds.add(req.invoiceId);
+                amounts.add(req.amount);
             }
         } else {
-            List<Invoice> unpaidInvoices = getUnpaidInvoicesForPayer(payerType, payerId);
             BigDecimal remainingAmount = totalAmount;
             
-            for (Invoice invoice : unpaidInvoices) {
+            for (InvoiceRepository.InvoiceBalance balance : invoiceRepository.lockOpenBalances(
+                    payerType == PayerType.CLIENT ? payerId : null,
+                    payerType == PayerType.COMPANY ? payerId : null)) {
                 if (remainingAmount.compareTo(BigDecimal.ZERO) <= 0) {
                     break;
                 }
                 
-                BigDecimal remainingBalance = getRemainingBalance(invoice);
-                if (remainingBalance.compareTo(BigDecimal.ZERO) <= 0) {
-                    continue;
-                }
-                
-                BigDecimal allocationAmount = remainingAmount.min(remainingBalance);
-                
-                PaymentAllocation allocation = new PaymentAllocation();
-                allocation.setPayment(savedPayment);
-                allocation.setInvoice(invoice);
-                allocation.setAllocatedAmount(allocationAmount);
-                allocations.add(allocationRepository.save(allocation));
+                BigDecimal allocationAmount = remainingAmount.min(balance.getRemainingBalance());
+                invoiceIds.add(balance.getInvoiceId());
+                amounts.add(allocationAmount);
                 
                 remainingAmount = remainingAmount.subtract(allocationAmount);
-                
-                updateInvoiceStatus(invoice);
             }
         }
         
+        if (!invoiceIds.isEmpty()) {
+            Long[] ids = invoiceIds.toArray(new Long[0]);
+            BigDecimal[] allocated = amounts.toArray(new BigDecimal[0]);
+            allocationRepository.insertAllocations(savedPayment.getId(), ids, allocated);
+            applyAllocations(ids, allocated);
+        }
+        
         return savedPayment;
     }
     
+    @Transactional
+    public PaymentAllocation addAllocation(Long paymentId, Long invoiceId, BigDecimal amount) {
+        Payment payment = paymentRepository.findById(paymentId)
+                .orElseThrow(() -> new RuntimeException("Payment not found"));
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Allocated amount must be positive");
+        }
+        if (invoiceId == null || invoiceRepository.lockBalances(List.of(invoiceId)).isEmpty()) {
+            throw new RuntimeException("Invoice not found");
+        }
+        
+        PaymentAllocation allocation = new PaymentAllocation();
+        allocation.setPayment(payment);
+        allocation.setInvoice(invoiceRepository.findById(invoiceId).orElseThrow());
+        allocation.setAllocatedAmount(amount);
+        PaymentAllocation saved = allocationRepository.save(allocation);
+        
+        applyAllocations(new Long[] {invoiceId}, new BigDecimal[] {amount});
+        return saved;
+    }
+    
+    // Deleting and reading the amount in one statement means a second concurrent delete
+    // finds nothing and cannot hand the balance back twice
+    @Transactional
+    public void deleteAllocation(Long allocationId) {
+        PaymentAllocationRepository.RemovedAllocation removed = allocationRepository.deleteReturningAmount(allocationId)
+                .orElseThrow(() -> new RuntimeException("Allocation not found"));
+        applyAllocations(new Long[] {removed.getInvoiceId()},
+                new BigDecimal[] {removed.getAllocatedAmount().negate()});
+    }
+    
     public BigDecimal getRemainingBalance(Invoice invoice) {
-        BigDecimal totalPaid = allocationRepository.findByInvoiceId(invoice.getId())
-                .stream()
-                .map(PaymentAllocation::getAllocatedAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return invoice.getRemainingBalance();
+    }
+    
+    @Scheduled(cron = "${garage.invoices.balance-verification.cron:0 50 3 * * *}")
+    public void scheduledVerification() {
+        transactionTemplate.executeWithoutResult(status -> verifyBalances(scheduledRepair));
+    }
+    
+    // Re-sums every invoice's allocations and compares them with the maintained balance
+    @Transactional
+    public BalanceVerification verifyBalances(boolean repair) {
+        BalanceVerification verification = new BalanceVerification();
+        verification.checkedAt = LocalDateTime.now();
+        verification.repair = repair;
         
-        return invoice.getTotalAmount().subtract(totalPaid);
+        List<InvoiceRepository.BalanceDrift> drift = invoiceRepository.findBalanceDrift();
+        verification.driftedInvoices = drift.size();
+        verification.drifts = drift.stream()
+                .limit(MAX_REPORTED_DRIFTS)
+                .map(d -> new BalanceDriftEntry(d.getInvoiceId(), d.getRemainingBalance(), d.getExpectedBalance()))
+                .collect(Collectors.toList());
+        
+        if (repair && !drift.isEmpty()) {
+            List<Long> ids = drift.stream()
+                    .map(InvoiceRepository.BalanceDrift::getInvoiceId)
+                    .collect(Collectors.toList());
+            invoiceRepository.lockBalances(ids);
+            verification.repairedInvoices = invoiceRepository.recomputeBalances(ids);
+            eventPublisher.publishEvent(new DashboardDataChangedEvent(Invoice.class.getSimpleName()));
+        }
+        lastVerification = verification;
+        return verification;
     }
     
-    private void updateInvoiceStatus(Invoice invoice) {
-        BigDecimal remaining = getRemainingBalance(invoice);
-        if (remaining.compareTo(BigDecimal.ZERO) <= 0) {
-            invoice.setStatus(InvoiceStatus.PAID);
-            invoiceRepository.save(invoice);
-        } else if (invoice.getStatus() != InvoiceStatus.ISSUED) {
-            invoice.setStatus(InvoiceStatus.ISSUED);
-            invoiceRepository.save(invoice);
+    public BalanceVerification getLastVerification() {
+        return lastVerification;
+    }
+    
+    // Balances and statuses are moved with SQL rather than through the entity, so the
+    // dashboard and rollup listeners have to be told here
+    private void applyAllocations(Long[] invoiceIds, BigDecimal[] amounts) {
+        Set<LocalDate> days = invoiceRepository.applyAllocations(invoiceIds, amounts).stream()
+                .map(InvoiceRepository.InvoiceDate::getDate)
+                .collect(Collectors.toSet());
+        eventPublisher.publishEvent(new DashboardDataChangedEvent(Invoice.class.getSimpleName()));
+        if (!days.isEmpty()) {
+            eventPublisher.publishEvent(new FinancialDataChangedEvent(days));
         }
     }
     
@@ -131,4 +222,24 @@ public class PaymentService {
             this.amount = amount;
         }
     }
+    
+    public static class BalanceVerification {
+        public LocalDateTime checkedAt;
+        public boolean repair;
+        public int driftedInvoices;
+        public int repairedInvoices;
+        public List<BalanceDriftEntry> drifts;
+    }
+    
+    public static class BalanceDriftEntry {
+        public Long invoiceId;
+        public BigDecimal remainingBalance;
+        public BigDecimal expectedBalance;
+        
+        public BalanceDriftEntry(Long invoiceId, BigDecimal remainingBalance, BigDecimal expectedBalance) {
+            this.invoiceId = invoiceId;
+            this.remainingBalance = remainingBalance;
+            this.expectedBalance = expectedBalance;
+        }
+    }
 }
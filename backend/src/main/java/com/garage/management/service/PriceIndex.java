@@ -0,0 +1,156 @@
+package com.garage.management.service;
+
+import com.garage.management.entity.ProductPriceHistory;
+import com.garage.management.entity.ServicePriceHistory;
+import com.garage.management.event.PriceChangedEvent;
+import com.garage.management.repository.ProductPriceHistoryRepository;
+import com.garage.management.repository.ServicePriceHistoryRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Selling price history of every product and service held as sorted day arrays, so a
+// price-as-of lookup is a binary search with no query and no allocation. Each timeline
+// is immutable and replaced whole when its history changes.
+@Service
+public class PriceIndex {
+    
+    private final ProductPriceHistoryRepository productPriceHistoryRepository;
+    private final ServicePriceHistoryRepository servicePriceHistoryRepository;
+    
+    // Null until the first load; lookups go to the database until then
+    private volatile Map<Long, Timeline> products;
+    private volatile Map<Long, Timeline> services;
+    
+    public PriceIndex(ProductPriceHistoryRepository productPriceHistoryRepository,
+                      ServicePriceHistoryRepository servicePriceHistoryRepository) {
+        this.productPriceHistoryRepository = productPriceHistoryRepository;
+        this.servicePriceHistoryRepository = servicePriceHistoryRepository;
+    }
+    
+    // Price history entry in effect on the date, or null when there is none
+    public BigDecimal productPriceAt(Long productId, LocalDate date) {
+        Map<Long, Timeline> index = products;
+        if (index == null) {
+            return productPriceHistoryRepository.findCurrentPriceForProduct(productId, date)
+                    .map(ProductPriceHistory::getPrice)
+                    .orElse(null);
+        }
+        Timeline timeline = index.get(productId);
+        return timeline != null ? timeline.priceAt(date.toEpochDay()) : null;
+    }
+    
+    public BigDecimal servicePriceAt(Long serviceId, LocalDate date) {
+        Map<Long, Timeline> index = services;
+        if (index == null) {
+            return servicePriceHistoryRepository.findCurrentPriceForService(serviceId, date)
+                    .map(ServicePriceHistory::getPrice)
+                    .orElse(null);
+        }
+        Timeline timeline = index.get(serviceId);
+        return timeline != null ? timeline.priceAt(date.toEpochDay()) : null;
+    }
+    
+    // Loads at startup and then periodically, which also picks up history written
+    // outside the application
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${garage.prices.index.resync-interval-ms:3600000}",
+               initialDelayString = "${garage.prices.index.resync-interval-ms:3600000}")
+    public synchronized void reload() {
+        products = build(productPriceHistoryRepository.findAllEntries());
+        services = build(servicePriceHistoryRepository.findAllEntries());
+    }
+    
+    // Reloads and reloads of single items are serialized, so a full load read before a
+    // price change can never replace the timeline reloaded after it
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onPriceChanged(PriceChangedEvent event) {
+        if (products != null && !event.getProductIds().isEmpty()) {
+            replace(products, event.getProductIds(),
+                    build(productPriceHistoryRepository.findEntries(event.getProductIds())));
+        }
+        if (services != null && !event.getServiceIds().isEmpty()) {
+            replace(services, event.getServiceIds(),
+                    build(servicePriceHistoryRepository.findEntries(event.getServiceIds())));
+        }
+    }
+    
+    private static void replace(Map<Long, Timeline> index, Collection<Long> ids, Map<Long, Timeline> loaded) {
+        for (Long id : ids) {
+            Timeline timeline = loaded.get(id);
+            if (timeline != null) {
+                index.put(id, timeline);
+            } else {
+                index.remove(id);
+            }
+        }
+    }
+    
+    // Entries arrive ordered by item, start date and id
+    private static Map<Long, Timeline> build(List<ProductPriceHistoryRepository.PriceHistoryEntry> entries) {
+        Map<Long, Timeline> index = new ConcurrentHashMap<>();
+        List<ProductPriceHistoryRepository.PriceHistoryEntry> group = new ArrayList<>();
+        for (ProductPriceHistoryRepository.PriceHistoryEntry entry : entries) {
+            if (!group.isEmpty() && !group.get(0).getItemId().equals(entry.getItemId())) {
+                index.put(group.get(0).getItemId(), new Timeline(group));
+                group.clear();
+            }
+            group.add(entry);
+        }
+        if (!group.isEmpty()) {
+            index.put(group.get(0).getItemId(), new Timeline(group));
+        }
+        return index;
+    }
+    
+    static final class Timeline {
+        private final int[] startDays;
+        private final int[] endDays;
+        private final BigDecimal[] prices;
+        
+        Timeline(List<ProductPriceHistoryRepository.PriceHistoryEntry> entries) {
+            startDays = new int[entries.size()];
+            endDays = new int[entries.size()];
+            prices = new BigDecimal[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                ProductPriceHistoryRepository.PriceHistoryEntry entry = entries.get(i);
+                startDays[i] = (int) entry.getStartDate().toEpochDay();
+                endDays[i] = entry.getEndDate() != null ? (int) entry.getEndDate().toEpochDay() : Integer.MAX_VALUE;
+                prices[i] = entry.getPrice();
+            }
+        }
+        
+        // Same choice as the history queries: of the entries covering the day, the one
+        // that started last
+        BigDecimal priceAt(long day) {
+            int low = 0;
+            int high = startDays.length - 1;
+            int last = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (startDays[mid] <= day) {
+                    last = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            for (int i = last; i >= 0; i--) {
+                if (endDays[i] >= day) {
+                    return prices[i];
+                }
+            }
+            return null;
+        }
+    }
+}
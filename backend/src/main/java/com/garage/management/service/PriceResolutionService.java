@@ -0,0 +1,92 @@
+package com.garage.management.service;
+
+import com.garage.management.enums.CategoryType;
+import com.garage.management.repository.ProductRepository;
+import com.garage.management.repository.ServiceRepository;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class PriceResolutionService {
+    
+    private static final int MAX_QUERIES = 5000;
+    
+    private final PriceIndex priceIndex;
+    private final ProductRepository productRepository;
+    private final ServiceRepository serviceRepository;
+    
+    public PriceResolutionService(PriceIndex priceIndex,
+                                  ProductRepository productRepository,
+                                  ServiceRepository serviceRepository) {
+        this.priceIndex = priceIndex;
+        this.productRepository = productRepository;
+        this.serviceRepository = serviceRepository;
+    }
+    
+    // Prices come back in request order, using the same rule a work order line added on
+    // that date would: the history entry in effect, else the selling price, else zero.
+    // Unknown items resolve to null. Only items without history reach the database, in
+    // one query per item type.
+    public List<BigDecimal> resolve(List<PriceQuery> queries) {
+        if (queries.size() > MAX_QUERIES) {
+            throw new IllegalArgumentException("At most " + MAX_QUERIES + " prices can be resolved at once");
+        }
+        
+        LocalDate today = LocalDate.now();
+        BigDecimal[] prices = new BigDecimal[queries.size()];
+        Set<Long> productFallback = new HashSet<>();
+        Set<Long> serviceFallback = new HashSet<>();
+        for (int i = 0; i < prices.length; i++) {
+            PriceQuery query = queries.get(i);
+            if (query == null || query.type == null || query.id == null) {
+                throw new IllegalArgumentException("Every price query needs a type and an id");
+            }
+            LocalDate date = query.date != null ? query.date : today;
+            if (query.type == CategoryType.PRODUCT) {
+                prices[i] = priceIndex.productPriceAt(query.id, date);
+                if (prices[i] == null) {
+                    productFallback.add(query.id);
+                }
+            } else {
+                prices[i] = priceIndex.servicePriceAt(query.id, date);
+                if (prices[i] == null) {
+                    serviceFallback.add(query.id);
+                }
+            }
+        }
+        
+        Map<Long, BigDecimal> productPrices = productFallback.isEmpty() ? Map.of()
+                : sellingPrices(productRepository.findSellingPrices(productFallback));
+        Map<Long, BigDecimal> servicePrices = serviceFallback.isEmpty() ? Map.of()
+                : sellingPrices(serviceRepository.findSellingPrices(serviceFallback));
+        for (int i = 0; i < prices.length; i++) {
+            if (prices[i] == null) {
+                PriceQuery query = queries.get(i);
+                prices[i] = (query.type == CategoryType.PRODUCT ? productPrices : servicePrices).get(query.id);
+            }
+        }
+        return Arrays.asList(prices);
+    }
+    
+    private static Map<Long, BigDecimal> sellingPrices(List<ProductRepository.ItemPrice> rows) {
+        Map<Long, BigDecimal> prices = new HashMap<>();
+        for (ProductRepository.ItemPrice row : rows) {
+            prices.put(row.getId(), row.getPrice() != null ? row.getPrice() : BigDecimal.ZERO);
+        }
+        return prices;
+    }
+    
+    public static class PriceQuery {
+        public CategoryType type;
+        public Long id;
+        public LocalDate date;
+    }
+}
@@ -0,0 +1,113 @@
+package com.garage.management.service;
+
+import com.garage.management.repository.WorkOrderProductLineRepository;
+import com.garage.management.repository.WorkOrderRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Reports read the monthly rollups kept by WorkOrderService, never the price histories
+@Service
+public class ProductMarginService {
+
+    private final WorkOrderProductLineRepository productLineRepository;
+    private final WorkOrderRepository workOrderRepository;
+
+    public ProductMarginService(WorkOrderProductLineRepository productLineRepository,
+                                WorkOrderRepository workOrderRepository) {
+        this.productLineRepository = productLineRepository;
+        this.workOrderRepository = workOrderRepository;
+    }
+
+    public List<ItemMargin> getProductMargins(LocalDate from, LocalDate to, Long categoryId) {
+        validateRange(from, to);
+        return productLineRepository.findProductMargins(from, to, categoryId).stream()
+                .map(ItemMargin::new)
+                .collect(Collectors.toList());
+    }
+
+    public List<ItemMargin> getCategoryMargins(LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        return productLineRepository.findCategoryMargins(from, to).stream()
+                .map(ItemMargin::new)
+                .collect(Collectors.toList());
+    }
+
+    public List<MonthlyMargin> getMonthlyMargins(LocalDate from, LocalDate to, Long productId, Long categoryId) {
+        validateRange(from, to);
+        return productLineRepository.findMonthlyMargins(from, to, productId, categoryId).stream()
+                .map(MonthlyMargin::new)
+                .collect(Collectors.toList());
+    }
+
+    // Lines carry their own unit cost, so a single work order is summed directly
+    public List<ItemMargin> getWorkOrderMargins(Long workOrderId) {
+        if (!workOrderRepository.existsById(workOrderId)) {
+            throw new RuntimeException("Work order not found");
+        }
+        return productLineRepository.findWorkOrderMargins(workOrderId).stream()
+                .map(ItemMargin::new)
+                .collect(Collectors.toList());
+    }
+
+    // Repair tool: rollups are normally kept by line and work order deltas
+    @Transactional
+    public int rebuild() {
+        productLineRepository.clearMargins();
+        return productLineRepository.rebuildMargins();
+    }
+
+    private void validateRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("A range with from <= to is required");
+        }
+    }
+
+    public static class MarginFigures {
+        public Integer quantity;
+        public BigDecimal revenue;
+        public BigDecimal cost;
+        public BigDecimal margin;
+        public BigDecimal marginPercent;
+        public Integer lineCount;
+        public Integer uncostedLineCount;
+
+        MarginFigures(WorkOrderProductLineRepository.MarginTotals totals) {
+            this.quantity = totals.getQuantity();
+            this.revenue = totals.getRevenue();
+            this.cost = totals.getCost();
+            this.margin = revenue.subtract(cost);
+            this.marginPercent = revenue.signum() != 0
+                    ? margin.multiply(new BigDecimal("100")).divide(revenue, 2, RoundingMode.HALF_UP) : null;
+            this.lineCount = totals.getLineCount();
+            this.uncostedLineCount = totals.getUncostedLineCount();
+        }
+    }
+
+    public static class ItemMargin extends MarginFigures {
+        public Long id;
+        public String code;
+        public String name;
+
+        ItemMargin(WorkOrderProductLineRepository.MarginRow row) {
+            super(row);
+            this.id = row.getId();
+            this.code = row.getCode();
+            this.name = row.getName();
+        }
+    }
+
+    public static class MonthlyMargin extends MarginFigures {
+        public LocalDate month;
+
+        MonthlyMargin(WorkOrderProductLineRepository.MonthlyMarginRow row) {
+            super(row);
+            this.month = row.getMonth();
+        }
+    }
+}
@@ -3,9 +3,12 @@ package com.garage.management.service;
 import com.garage.management.entity.Product;
 import com.garage.management.entity.ProductPriceHistory;
 import com.garage.management.entity.ProductBuyingPriceHistory;
+import com.garage.management.event.DashboardDataChangedEvent;
+import com.garage.management.event.PriceChangedEvent;
 import com.garage.management.repository.ProductPriceHistoryRepository;
 import com.garage.management.repository.ProductBuyingPriceHistoryRepository;
 import com.garage.management.repository.ProductRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,6 +16,8 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductPriceService {
@@ -20,13 +25,19 @@ public class ProductPriceService {
     private final ProductPriceHistoryRepository sellingPriceHistoryRepository;
     private final ProductBuyingPriceHistoryRepository buyingPriceHistoryRepository;
     private final ProductRepository productRepository;
+    private final PriceIndex priceIndex;
+    private final ApplicationEventPublisher eventPublisher;
     
     public ProductPriceService(ProductPriceHistoryRepository sellingPriceHistoryRepository,
                                ProductBuyingPriceHistoryRepository buyingPriceHistoryRepository,
-                               ProductRepository productRepository) {
+                               ProductRepository productRepository,
+                               PriceIndex priceIndex,
+                               ApplicationEventPublisher eventPublisher) {
         this.sellingPriceHistoryRepository = sellingPriceHistoryRepository;
         this.buyingPriceHistoryRepository = buyingPriceHistoryRepository;
         this.productRepository = productRepository;
+        this.priceIndex = priceIndex;
+        this.eventPublisher = eventPublisher;
     }
     
     // Selling Price History Methods
@@ -35,8 +46,7 @@ public class ProductPriceService {
     }
     
     public Optional<BigDecimal> getCurrentSellingPrice(Long productId) {
-        return sellingPriceHistoryRepository.findCurrentPriceForProduct(productId, LocalDate.now())
-                .map(ProductPriceHistory::getPrice);
+        return Optional.ofNullable(priceIndex.productPriceAt(productId, LocalDate.now()));
     }
     
     @Transactional
@@ -62,6 +72,7 @@ public class ProductPriceService {
         
         product.setSellingPrice(price);
         productRepository.save(product);
+        eventPublisher.publishEvent(PriceChangedEvent.forProduct(productId));
         
         return saved;
     }
@@ -103,6 +114,61 @@ public class ProductPriceService {
         return saved;
     }
     
+    // Reprices every matching product with set-based statements in one transaction. A dry
+    // run computes the same changes without writing anything
+    @Transactional
+    public RepricingResult reprice(RepricingRequest request) {
+        if (request.priceType == null || request.mode == null || request.value == null) {
+            throw new IllegalArgumentException("Price type, mode and value are required");
+        }
+        if (request.categoryId == null && request.supplierId == null
+                && (request.brand == null || request.brand.isBlank())) {
+            throw new IllegalArgumentException("At least one of category, brand or supplier is required");
+        }
+        boolean percent = request.mode == ChangeMode.PERCENT;
+        if (percent && request.value.compareTo(new BigDecimal("-100")) <= 0) {
+            throw new IllegalArgumentException("A percentage change must be above -100");
+        }
+        String brand = request.brand != null && !request.brand.isBlank() ? request.brand.trim() : null;
+        LocalDate effectiveDate = request.effectiveDate != null ? request.effectiveDate : LocalDate.now();
+        boolean selling = request.priceType == PriceType.SELLING;
+        
+        List<ProductPriceHistoryRepository.RepricedProduct> repriced;
+        if (request.dryRun) {
+            repriced = selling
+                    ? sellingPriceHistoryRepository.previewRepricing(request.categoryId, brand, request.supplierId,
+                            percent, request.value)
+                    : buyingPriceHistoryRepository.previewRepricing(request.categoryId, brand, request.supplierId,
+                            percent, request.value);
+        } else {
+            productRepository.lockRepricingTargets(request.categoryId, brand, request.supplierId);
+            repriced = selling
+                    ? sellingPriceHistoryRepository.applyRepricing(request.categoryId, brand, request.supplierId,
+                            percent, request.value, effectiveDate)
+                    : buyingPriceHistoryRepository.applyRepricing(request.categoryId, brand, request.supplierId,
+                            percent, request.value, effectiveDate);
+            if (!repriced.isEmpty()) {
+                eventPublisher.publishEvent(new DashboardDataChangedEvent(Product.class.getSimpleName()));
+            }
+            if (selling && !repriced.isEmpty()) {
+                eventPublisher.publishEvent(new PriceChangedEvent(
+                        repriced.stream().map(ProductPriceHistoryRepository.RepricedProduct::getProductId)
+                                .collect(Collectors.toSet()),
+                        Set.of()));
+            }
+        }
+        
+        RepricingResult result = new RepricingResult();
+        result.dryRun = request.dryRun;
+        result.priceType = request.priceType;
+        result.effectiveDate = effectiveDate;
+        result.productCount = repriced.size();
+        result.changes = repriced.stream()
+                .map(r -> new PriceChange(r.getProductId(), r.getCode(), r.getName(), r.getOldPrice(), r.getNewPrice()))
+                .collect(Collectors.toList());
+        return result;
+    }
+    
     // Legacy methods for backward compatibility
     public List<ProductPriceHistory> getPriceHistory(Long productId) {
         return getSellingPriceHistory(productId);
@@ -116,4 +182,43 @@ public class ProductPriceService {
     public ProductPriceHistory addNewPrice(Long productId, BigDecimal price, LocalDate startDate) {
         return addNewSellingPrice(productId, price, startDate);
     }
+    
+    public enum PriceType { SELLING, BUYING }
+    
+    public enum ChangeMode { PERCENT, AMOUNT }
+    
+    public static class RepricingRequest {
+        public PriceType priceType = PriceType.SELLING;
+        public ChangeMode mode;
+        public BigDecimal value;
+        public Long categoryId;
+        public String brand;
+        public Long supplierId;
+        public LocalDate effectiveDate;
+        public boolean dryRun;
+    }
+    
+    public static class RepricingResult {
+        public boolean dryRun;
+        public PriceType priceType;
+        public LocalDate effectiveDate;
+        public int productCount;
+        public List<PriceChange> changes;
+    }
+    
+    public static class PriceChange {
+        public Long productId;
+        public String code;
+        public String name;
+        public BigDecimal oldPrice;
+        public BigDecimal newPrice;
+        
+        public PriceChange(Long productId, String code, String name, BigDecimal oldPrice, BigDecimal newPrice) {
+            this.productId = productId;
+            this.code = code;
+            this.name = name;
+            this.oldPrice = oldPrice;
+            this.newPrice = newPrice;
+        }
+    }
 }
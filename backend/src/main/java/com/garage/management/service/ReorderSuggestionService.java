@@ -0,0 +1,231 @@
+package com.garage.management.service;
+
+import com.garage.management.entity.Product;
+import com.garage.management.entity.Supplier;
+import com.garage.management.entity.SupplierOrder;
+import com.garage.management.entity.SupplierOrderLine;
+import com.garage.management.enums.OrderStatus;
+import com.garage.management.repository.ProductConsumptionVelocityRepository;
+import com.garage.management.repository.ProductRepository;
+import com.garage.management.repository.SupplierOrderLineRepository;
+import com.garage.management.repository.SupplierOrderRepository;
+import com.garage.management.repository.SupplierRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+public class ReorderSuggestionService {
+
+    private static final int WINDOW_DAYS = 90;
+
+    private final ProductConsumptionVelocityRepository velocityRepository;
+    private final ProductRepository productRepository;
+    private final SupplierRepository supplierRepository;
+    private final SupplierOrderRepository supplierOrderRepository;
+    private final SupplierOrderLineRepository supplierOrderLineRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int lookbackDays;
+    private final int coverageDays;
+    private final long rangeSize;
+
+    private final AtomicBoolean rollingUp = new AtomicBoolean(false);
+
+    public ReorderSuggestionService(ProductConsumptionVelocityRepository velocityRepository,
+                                    ProductRepository productRepository,
+                                    SupplierRepository supplierRepository,
+                                    SupplierOrderRepository supplierOrderRepository,
+                                    SupplierOrderLineRepository supplierOrderLineRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${garage.reorder.rollup.lookback-days:3}") int lookbackDays,
+                                    @Value("${garage.reorder.coverage-days:30}") int coverageDays,
+                                    @Value("${garage.reorder.rollup.range-size:10000}") long rangeSize) {
+        this.velocityRepository = velocityRepository;
+        this.productRepository = productRepository;
+        this.supplierRepository = supplierRepository;
+        this.supplierOrderRepository = supplierOrderRepository;
+        this.supplierOrderLineRepository = supplierOrderLineRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.lookbackDays = lookbackDays;
+        this.coverageDays = coverageDays;
+        this.rangeSize = rangeSize;
+    }
+
+    @Scheduled(cron = "${garage.reorder.rollup.cron:0 0 2 * * *}")
+    public void scheduledRollUp() {
+        rollUp();
+    }
+
+    // Returns null when a rollup is already running. Only days that are new since the last
+    // run, the last few days (late movements) and days of recently changed work orders are
+    // aggregated from the ledger; the 7/30/90 day totals are then summed from the buckets.
+    public RollupResult rollUp() {
+        if (!rollingUp.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            RollupResult result = new RollupResult();
+            LocalDateTime startedAt = LocalDateTime.now();
+            LocalDate yesterday = startedAt.toLocalDate().minusDays(1);
+            LocalDate windowStart = yesterday.minusDays(WINDOW_DAYS - 1);
+
+            LocalDate rolledThrough = velocityRepository.findRolledThrough();
+            LocalDate from = rolledThrough.minusDays(lookbackDays - 1);
+            if (from.isBefore(windowStart)) {
+                from = windowStart;
+            }
+            TreeSet<LocalDate> days = new TreeSet<>();
+            for (LocalDate day = from; !day.isAfter(yesterday); day = day.plusDays(1)) {
+                days.add(day);
+            }
+            days.addAll(velocityRepository.findWorkOrderDaysChangedSince(
+                    velocityRepository.findLastRunStartedAt(), windowStart, yesterday));
+
+            for (LocalDate day : days) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    velocityRepository.deleteDay(day);
+                    velocityRepository.rollUpDay(day, day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+                    velocityRepository.advanceRolledThrough(day);
+                });
+            }
+            result.daysRolledUp = days.size();
+
+            transactionTemplate.executeWithoutResult(status -> velocityRepository.pruneDaysBefore(windowStart));
+
+            Long minId = productRepository.findMinId();
+            Long maxId = productRepository.findMaxId();
+            if (minId != null) {
+                for (long rangeFrom = minId; rangeFrom <= maxId; rangeFrom += rangeSize) {
+                    long fromId = rangeFrom;
+                    long toId = Math.min(rangeFrom + rangeSize - 1, maxId);
+                    Integer refreshed = transactionTemplate.execute(status -> velocityRepository.refreshVelocity(
+                            fromId, toId, yesterday, yesterday.minusDays(7), yesterday.minusDays(30),
+                            yesterday.minusDays(WINDOW_DAYS)));
+                    result.productsRefreshed += refreshed == null ? 0 : refreshed;
+                }
+            }
+
+            transactionTemplate.executeWithoutResult(status -> velocityRepository.markRunStarted(startedAt));
+            result.asOfDay = yesterday;
+            result.durationMs = Duration.between(startedAt, LocalDateTime.now()).toMillis();
+            return result;
+        } finally {
+            rollingUp.set(false);
+        }
+    }
+
+    public List<SupplierSuggestion> getSuggestions() {
+        Map<Long, SupplierSuggestion> bySupplier = new LinkedHashMap<>();
+        for (ProductConsumptionVelocityRepository.ReorderCandidate candidate :
+                velocityRepository.findReorderCandidates(coverageDays)) {
+            SupplierSuggestion supplier = bySupplier.computeIfAbsent(candidate.getSupplierId(), id -> {
+                SupplierSuggestion suggestion = new SupplierSuggestion();
+                suggestion.supplierId = id;
+                suggestion.supplierName = candidate.getSupplierName();
+                return suggestion;
+            });
+
+            SuggestionLine line = new SuggestionLine();
+            line.productId = candidate.getProductId();
+            line.productCode = candidate.getProductCode();
+            line.productName = candidate.getProductName();
+            line.currentStock = candidate.getCurrentStock();
+            line.minStock = candidate.getMinStock();
+            line.onOrder = candidate.getOnOrder();
+            line.consumed7d = candidate.getConsumed7d();
+            line.consumed30d = candidate.getConsumed30d();
+            line.consumed90d = candidate.getConsumed90d();
+            line.dailyVelocity = candidate.getDailyVelocity();
+            line.suggestedQuantity = candidate.getSuggestedQuantity();
+            line.unitCost = candidate.getUnitCost();
+            if (line.unitCost != null) {
+                line.lineTotal = line.unitCost.multiply(BigDecimal.valueOf(line.suggestedQuantity));
+                supplier.estimatedTotal = supplier.estimatedTotal.add(line.lineTotal);
+            }
+            supplier.lines.add(line);
+        }
+        return new ArrayList<>(bySupplier.values());
+    }
+
+    // Drafts are PENDING orders; their quantities count as on order, so asking again does
+    // not suggest the same stock twice. Products with no supplier history are left out.
+    @Transactional
+    public List<SupplierOrder> createDraftOrders(Collection<Long> supplierIds) {
+        List<SupplierOrder> orders = new ArrayList<>();
+        for (SupplierSuggestion suggestion : getSuggestions()) {
+            if (suggestion.supplierId == null
+                    || (supplierIds != null && !supplierIds.isEmpty() && !supplierIds.contains(suggestion.supplierId))) {
+                continue;
+            }
+            Supplier supplier = supplierRepository.findById(suggestion.supplierId)
+                    .orElseThrow(() -> new RuntimeException("Supplier not found"));
+
+            SupplierOrder order = new SupplierOrder();
+            order.setSupplier(supplier);
+            order.setOrderDate(LocalDate.now());
+            order.setStatus(OrderStatus.PENDING);
+            order.setTotalAmount(suggestion.estimatedTotal);
+            order = supplierOrderRepository.save(order);
+
+            List<SupplierOrderLine> lines = new ArrayList<>(suggestion.lines.size());
+            for (SuggestionLine suggested : suggestion.lines) {
+                Product product = productRepository.getReferenceById(suggested.productId);
+                SupplierOrderLine line = new SupplierOrderLine();
+                line.setSupplierOrder(order);
+                line.setProduct(product);
+                line.setQuantity(suggested.suggestedQuantity);
+                line.setUnitCost(suggested.unitCost);
+                line.setLineTotal(suggested.lineTotal);
+                lines.add(line);
+            }
+            supplierOrderLineRepository.saveAll(lines);
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    public static class RollupResult {
+        public LocalDate asOfDay;
+        public int daysRolledUp;
+        public int productsRefreshed;
+        public long durationMs;
+    }
+
+    public static class SupplierSuggestion {
+        public Long supplierId;
+        public String supplierName;
+        public BigDecimal estimatedTotal = BigDecimal.ZERO;
+        public List<SuggestionLine> lines = new ArrayList<>();
+    }
+
+    public static class SuggestionLine {
+        public Long productId;
+        public String productCode;
+        public String productName;
+        public Integer currentStock;
+        public Integer minStock;
+        public Integer onOrder;
+        public Integer consumed7d;
+        public Integer consumed30d;
+        public Integer consumed90d;
+        public BigDecimal dailyVelocity;
+        public Integer suggestedQuantity;
+        public BigDecimal unitCost;
+        public BigDecimal lineTotal;
+    }
+}
@@ -0,0 +1,243 @@
+package com.garage.management.service;
+
+import com.garage.management.entity.ServiceKit;
+import com.garage.management.entity.ServiceKitItem;
+import com.garage.management.event.PriceChangedEvent;
+import com.garage.management.event.ServiceKitChangedEvent;
+import com.garage.management.repository.ProductRepository;
+import com.garage.management.repository.ServiceKitItemRepository;
+import com.garage.management.repository.ServiceKitRepository;
+import com.garage.management.repository.ServiceRepository;
+import com.garage.management.repository.WorkOrderRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class ServiceKitService {
+    
+    private static final String PRODUCT = "PRODUCT";
+    private static final String SERVICE = "SERVICE";
+    
+    private final ServiceKitRepository serviceKitRepository;
+    private final ServiceKitItemRepository serviceKitItemRepository;
+    private final ProductRepository productRepository;
+    private final ServiceRepository serviceRepository;
+    private final WorkOrderRepository workOrderRepository;
+    private final WorkOrderService workOrderService;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    // Resolved prices per kit, valid for the day they were resolved on. The generation guards
+    // against caching a price that was loaded while a component price was being changed
+    private final Map<Long, KitPrice> priceCache = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    
+    public ServiceKitService(ServiceKitRepository serviceKitRepository,
+                             ServiceKitItemRepository serviceKitItemRepository,
+                             ProductRepository productRepository,
+                             ServiceRepository serviceRepository,
+                             WorkOrderRepository workOrderRepository,
+                             WorkOrderService workOrderService,
+                             ApplicationEventPublisher eventPublisher) {
+        this.serviceKitRepository = serviceKitRepository;
+        this.serviceKitItemRepository = serviceKitItemRepository;
+        this.productRepository = productRepository;
+        this.serviceRepository = serviceRepository;
+        this.workOrderRepository = workOrderRepository;
+        this.workOrderService = workOrderService;
+        this.eventPublisher = eventPublisher;
+    }
+    
+    public List<ServiceKitItem> getItems(Long kitId) {
+        return serviceKitItemRepository.findByKitIdOrderById(kitId);
+    }
+    
+    @Transactional
+    public ServiceKitItem addItem(Long kitId, Long productId, Long serviceId,
+                                  Integer quantity, BigDecimal discountPercent) {
+        ServiceKit kit = serviceKitRepository.findById(kitId)
+                .orElseThrow(() -> new RuntimeException("Service kit not found"));
+        if ((productId == null) == (serviceId == null)) {
+            throw new IllegalArgumentException("A kit item is either a product or a service");
+        }
+        if (quantity != null && quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        
+        ServiceKitItem item = new ServiceKitItem();
+        item.setKit(kit);
+        if (productId != null) {
+            item.setProduct(productRepository.findById(productId)
+                    .orElseThrow(() -> new RuntimeException("Product not found")));
+        } else {
+            item.setService(serviceRepository.findById(serviceId)
+                    .orElseThrow(() -> new RuntimeException("Service not found")));
+        }
+        item.setQuantity(quantity != null ? quantity : 1);
+        item.setDiscountPercent(WorkOrderService.normalizeDiscount(discountPercent));
+        
+        ServiceKitItem saved = serviceKitItemRepository.save(item);
+        eventPublisher.publishEvent(new ServiceKitChangedEvent(kitId));
+        return saved;
+    }
+    
+    @Transactional
+    public void removeItem(Long itemId) {
+        ServiceKitItem item = serviceKitItemRepository.findById(itemId)
+                .orElseThrow(() -> new RuntimeException("Service kit item not found"));
+        Long kitId = item.getKit().getId();
+        serviceKitItemRepository.delete(item);
+        eventPublisher.publishEvent(new ServiceKitChangedEvent(kitId));
+    }
+    
+    @Transactional
+    public Optional<ServiceKit> update(Long kitId, ServiceKit changes) {
+        return serviceKitRepository.findById(kitId).map(existing -> {
+            existing.setCode(changes.getCode());
+            existing.setName(changes.getName());
+            existing.setDescription(changes.getDescription());
+            existing.setActive(changes.getActive());
+            ServiceKit saved = serviceKitRepository.save(existing);
+            eventPublisher.publishEvent(new ServiceKitChangedEvent(kitId));
+            return saved;
+        });
+    }
+    
+    @Transactional
+    public boolean deactivate(Long kitId) {
+        return serviceKitRepository.findById(kitId).map(kit -> {
+            kit.setActive(false);
+            serviceKitRepository.save(kit);
+            eventPublisher.publishEvent(new ServiceKitChangedEvent(kitId));
+            return true;
+        }).orElse(false);
+    }
+    
+    public KitPrice getKitPrice(Long kitId) {
+        LocalDate today = LocalDate.now();
+        KitPrice cached = priceCache.get(kitId);
+        if (cached != null && cached.resolvedOn.equals(today)) {
+            return cached;
+        }
+        
+        long loadGeneration = generation.get();
+        KitPrice price = resolvePrice(kitId, today);
+        if (generation.get() == loadGeneration) {
+            priceCache.put(kitId, price);
+        }
+        return price;
+    }
+    
+    // Lines come from the cached kit price, so applying a kit does not look up any price
+    @Transactional
+    public WorkOrderService.BulkLinesResult applyKit(Long workOrderId, Long kitId) {
+        KitPrice price = getKitPrice(kitId);
+        if (!price.active) {
+            throw new IllegalArgumentException("Service kit is not active");
+        }
+        
+        List<WorkOrderService.LineInput> productLines = new ArrayList<>();
+        List<WorkOrderService.LineInput> serviceLines = new ArrayList<>();
+        for (KitPriceLine line : price.lines) {
+            (PRODUCT.equals(line.itemType) ? productLines : serviceLines).add(new WorkOrderService.LineInput(
+                    line.itemId, line.quantity, line.discountPercent, line.unitPrice));
+        }
+        return workOrderService.addLines(workOrderId, productLines, serviceLines);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPriceChanged(PriceChangedEvent event) {
+        generation.incrementAndGet();
+        priceCache.values().removeIf(price -> price.lines.stream().anyMatch(line -> PRODUCT.equals(line.itemType)
+                ? event.getProductIds().contains(line.itemId)
+                : event.getServiceIds().contains(line.itemId)));
+    }
+    
+    // After commit only: evicting earlier would let a load running before the commit cache
+    // the old items under the new generation
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKitChanged(ServiceKitChangedEvent event) {
+        generation.incrementAndGet();
+        priceCache.remove(event.getKitId());
+    }
+    
+    private KitPrice resolvePrice(Long kitId, LocalDate day) {
+        ServiceKit kit = serviceKitRepository.findById(kitId)
+                .orElseThrow(() -> new RuntimeException("Service kit not found"));
+        List<ServiceKitItem> items = serviceKitItemRepository.findByKitIdOrderById(kitId);
+        
+        Map<Long, BigDecimal> productPrices = new HashMap<>();
+        Map<Long, BigDecimal> servicePrices = new HashMap<>();
+        if (!items.isEmpty()) {
+            Long[] productIds = items.stream().filter(item -> item.getProduct() != null)
+                    .map(item -> item.getProduct().getId()).toArray(Long[]::new);
+            Long[] serviceIds = items.stream().filter(item -> item.getService() != null)
+                    .map(item -> item.getService().getId()).toArray(Long[]::new);
+            for (WorkOrderRepository.LinePrice price : workOrderRepository.findCurrentLinePrices(productIds, serviceIds, day)) {
+                (PRODUCT.equals(price.getKind()) ? productPrices : servicePrices).put(price.getItemId(), price.getPrice());
+            }
+        }
+        
+        KitPrice kitPrice = new KitPrice();
+        kitPrice.kitId = kit.getId();
+        kitPrice.code = kit.getCode();
+        kitPrice.name = kit.getName();
+        kitPrice.active = !Boolean.FALSE.equals(kit.getActive());
+        kitPrice.resolvedOn = day;
+        kitPrice.total = BigDecimal.ZERO;
+        kitPrice.lines = new ArrayList<>(items.size());
+        for (ServiceKitItem item : items) {
+            KitPriceLine line = new KitPriceLine();
+            if (item.getProduct() != null) {
+                line.itemType = PRODUCT;
+                line.itemId = item.getProduct().getId();
+                line.name = item.getProduct().getName();
+                line.unitPrice = productPrices.getOrDefault(line.itemId, BigDecimal.ZERO);
+            } else {
+                line.itemType = SERVICE;
+                line.itemId = item.getService().getId();
+                line.name = item.getService().getName();
+                line.unitPrice = servicePrices.getOrDefault(line.itemId, BigDecimal.ZERO);
+            }
+            line.quantity = item.getQuantity();
+            line.discountPercent = WorkOrderService.normalizeDiscount(item.getDiscountPercent());
+            line.finalUnitPrice = WorkOrderService.applyDiscount(line.unitPrice, line.discountPercent);
+            line.lineTotal = WorkOrderService.lineTotal(line.finalUnitPrice, line.quantity);
+            kitPrice.total = kitPrice.total.add(line.lineTotal);
+            kitPrice.lines.add(line);
+        }
+        return kitPrice;
+    }
+    
+    public static class KitPrice {
+        public Long kitId;
+        public String code;
+        public String name;
+        public boolean active;
+        public LocalDate resolvedOn;
+        public BigDecimal total;
+        public List<KitPriceLine> lines;
+    }
+    
+    public static class KitPriceLine {
+        public String itemType;
+        public Long itemId;
+        public String name;
+        public Integer quantity;
+        public BigDecimal discountPercent;
+        public BigDecimal unitPrice;
+        public BigDecimal finalUnitPrice;
+        public BigDecimal lineTotal;
+    }
+}
@@ -2,8 +2,10 @@ package com.garage.management.service;
 
 import com.garage.management.entity.ServiceEntity;
 import com.garage.management.entity.ServicePriceHistory;
+import com.garage.management.event.PriceChangedEvent;
 import com.garage.management.repository.ServicePriceHistoryRepository;
 import com.garage.management.repository.ServiceRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,11 +19,17 @@ public class ServicePriceService {
     
     private final ServicePriceHistoryRepository priceHistoryRepository;
     private final ServiceRepository serviceRepository;
+    private final PriceIndex priceIndex;
+    private final ApplicationEventPublisher eventPublisher;
     
     public ServicePriceService(ServicePriceHistoryRepository priceHistoryRepository,
-                               ServiceRepository serviceRepository) {
+                               ServiceRepository serviceRepository,
+                               PriceIndex priceIndex,
+                               ApplicationEventPublisher eventPublisher) {
         this.priceHistoryRepository = priceHistoryRepository;
         this.serviceRepository = serviceRepository;
+        this.priceIndex = priceIndex;
+        this.eventPublisher = eventPublisher;
     }
     
     public List<ServicePriceHistory> getPriceHistory(Long serviceId) {
@@ -29,8 +37,7 @@ public class ServicePriceService {
     }
     
     public Optional<BigDecimal> getCurrentPrice(Long serviceId) {
-        return priceHistoryRepository.findCurrentPriceForService(serviceId, LocalDate.now())
-                .map(ServicePriceHistory::getPrice);
+        return Optional.ofNullable(priceIndex.servicePriceAt(serviceId, LocalDate.now()));
     }
     
     @Transactional
@@ -56,6 +63,7 @@ public class ServicePriceService {
         
         service.setSellingPrice(price);
         serviceRepository.save(service);
+        eventPublisher.publishEvent(PriceChangedEvent.forService(serviceId));
         
         return saved;
     }
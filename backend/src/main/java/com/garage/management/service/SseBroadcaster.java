@@ -0,0 +1,65 @@
+package com.garage.management.service;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class SseBroadcaster {
+    
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final long timeoutMs;
+    
+    public SseBroadcaster(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+    
+    public SseEmitter subscribe(String initialEventName, Object initialData) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+        
+        if (initialEventName != null) {
+            send(emitter, SseEmitter.event().name(initialEventName).data(initialData));
+        }
+        return emitter;
+    }
+    
+    public void broadcast(String eventName, Object data) {
+        for (SseEmitter emitter : emitters) {
+            send(emitter, SseEmitter.event().name(eventName).data(data));
+        }
+    }
+    
+    // For payloads that are already serialized, so thousands of clients do not each
+    // run the message converters on the same object
+    public void broadcastJson(String eventName, String json) {
+        for (SseEmitter emitter : emitters) {
+            send(emitter, SseEmitter.event().name(eventName).data(json, MediaType.APPLICATION_JSON));
+        }
+    }
+    
+    // Keeps idle connections open through proxies and drops clients that went away
+    public void heartbeat() {
+        for (SseEmitter emitter : emitters) {
+            send(emitter, SseEmitter.event().comment("heartbeat"));
+        }
+    }
+    
+    public int getSubscriberCount() {
+        return emitters.size();
+    }
+    
+    private void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            emitters.remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.garage.management.service;
+
+import com.garage.management.repository.StockMovementArchiveRepository;
+import com.garage.management.repository.StockSnapshotRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Service
+public class StockArchiveService {
+    
+    private final StockMovementArchiveRepository stockMovementArchiveRepository;
+    private final StockSnapshotRepository stockSnapshotRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int retentionYears;
+    private final int partitionMonthsAhead;
+    
+    public StockArchiveService(StockMovementArchiveRepository stockMovementArchiveRepository,
+                               StockSnapshotRepository stockSnapshotRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${garage.stock.archive.retention-years:3}") int retentionYears,
+                               @Value("${garage.stock.partitions.months-ahead:3}") int partitionMonthsAhead) {
+        this.stockMovementArchiveRepository = stockMovementArchiveRepository;
+        this.stockSnapshotRepository = stockSnapshotRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retentionYears = retentionYears;
+        this.partitionMonthsAhead = partitionMonthsAhead;
+    }
+    
+    @Scheduled(fixedDelayString = "${garage.stock.partitions.interval-ms:86400000}",
+               initialDelayString = "${garage.stock.partitions.initial-delay-ms:10000}")
+    public int ensurePartitions() {
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        Integer created = transactionTemplate.execute(status -> stockMovementArchiveRepository.ensurePartitions(
+                currentMonth, currentMonth.plusMonths(partitionMonthsAhead)));
+        return created == null ? 0 : created;
+    }
+    
+    // Archives one month per transaction, oldest first, and drops the month's partition
+    // once nothing is left in it
+    @Scheduled(fixedDelayString = "${garage.stock.archive.interval-ms:86400000}",
+               initialDelayString = "${garage.stock.archive.initial-delay-ms:120000}")
+    public int archiveFoldedMovements() {
+        LocalDateTime cutoff = LocalDate.now().withDayOfMonth(1).minusYears(retentionYears).atStartOfDay();
+        int archived = 0;
+        
+        while (true) {
+            Integer monthArchived = transactionTemplate.execute(status -> archiveOldestMonth(cutoff));
+            if (monthArchived == null) {
+                return archived;
+            }
+            archived += monthArchived;
+        }
+    }
+    
+    private Integer archiveOldestMonth(LocalDateTime cutoff) {
+        stockSnapshotRepository.lockForCompaction();
+        
+        LocalDateTime oldest = stockMovementArchiveRepository.findOldestArchivableDate(cutoff);
+        if (oldest == null) {
+            return null;
+        }
+        
+        LocalDate monthStart = oldest.toLocalDate().withDayOfMonth(1);
+        int archived = stockMovementArchiveRepository.archiveFoldedMovements(
+                monthStart.atStartOfDay(), monthStart.plusMonths(1).atStartOfDay());
+        stockMovementArchiveRepository.dropEmptyPartition(monthStart);
+        return archived;
+    }
+}
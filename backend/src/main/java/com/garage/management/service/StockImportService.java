@@ -0,0 +1,415 @@
+package com.garage.management.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garage.management.entity.Product;
+import com.garage.management.enums.StockMovementType;
+import com.garage.management.event.DashboardDataChangedEvent;
+import com.garage.management.event.StockLevelChangedEvent;
+import com.garage.management.repository.StockSnapshotRepository;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Bulk movement import: parsed rows are streamed with COPY into a transaction-scoped
+// staging table and everything after that is done set-wise in the database
+@Service
+public class StockImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final String CREATE_STAGING =
+            "CREATE TEMP TABLE stock_import_staging (line_no INTEGER NOT NULL, product_code TEXT NOT NULL, " +
+            "quantity_delta INTEGER NOT NULL, type TEXT NOT NULL, reason TEXT, date TIMESTAMP NOT NULL, " +
+            "source_type TEXT, source_id INTEGER) ON COMMIT DROP";
+
+    private static final String COPY_STAGING =
+            "COPY stock_import_staging (line_no, product_code, quantity_delta, type, reason, date, source_type, source_id) " +
+            "FROM STDIN";
+
+    private static final String FIND_UNKNOWN_CODES =
+            "SELECT s.line_no, s.product_code FROM stock_import_staging s " +
+            "LEFT JOIN products p ON p.code = s.product_code WHERE p.id IS NULL ORDER BY s.line_no";
+
+    // Ids are left to the column default, one sequence value per row in line order
+    private static final String INSERT_MOVEMENTS =
+            "INSERT INTO stock_movements (product_id, date, quantity_delta, type, reason, source_type, source_id, created_at) " +
+            "SELECT p.id, s.date, s.quantity_delta, s.type, s.reason, s.source_type, s.source_id, LOCALTIMESTAMP " +
+            "FROM stock_import_staging s JOIN products p ON p.code = s.product_code ORDER BY s.line_no";
+
+    private static final String APPLY_STOCK =
+            "UPDATE products p SET current_stock = COALESCE(p.current_stock, 0) + t.quantity " +
+            "FROM (SELECT pr.id AS product_id, SUM(s.quantity_delta) AS quantity, " +
+            "SUM(CASE WHEN s.type = 'PURCHASE' AND s.quantity_delta > 0 THEN s.quantity_delta ELSE 0 END) AS purchased " +
+            "FROM stock_import_staging s JOIN products pr ON pr.code = s.product_code GROUP BY pr.id) t " +
+            "WHERE p.id = t.product_id " +
+            "RETURNING p.id, p.current_stock, CAST(t.quantity AS INTEGER), p.min_stock, p.active, " +
+            "CAST(t.purchased AS INTEGER), p.buying_price";
+
+    private static final String MARK_DIRTY =
+            "INSERT INTO stock_dirty_products (product_id, marked_at) " +
+            "SELECT t.id, clock_timestamp() FROM (SELECT DISTINCT p.id FROM stock_import_staging s " +
+            "JOIN products p ON p.code = s.product_code) t " +
+            "ON CONFLICT (product_id) DO UPDATE SET marked_at = EXCLUDED.marked_at";
+
+    private final DataSource dataSource;
+    private final StockSnapshotRepository stockSnapshotRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final InventoryValuationService inventoryValuationService;
+
+    public StockImportService(DataSource dataSource,
+                              StockSnapshotRepository stockSnapshotRepository,
+                              ApplicationEventPublisher eventPublisher,
+                              ObjectMapper objectMapper,
+                              InventoryValuationService inventoryValuationService) {
+        this.dataSource = dataSource;
+        this.stockSnapshotRepository = stockSnapshotRepository;
+        this.inventoryValuationService = inventoryValuationService;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+    }
+
+    // Checked exceptions from the stream or COPY must roll back too, not commit a partial import
+    @Transactional(rollbackFor = Exception.class)
+    public ImportResult importMovements(InputStream input, Format format, boolean allOrNothing)
+            throws IOException, SQLException {
+        ImportResult result = new ImportResult();
+        stockSnapshotRepository.lockForMovementChange();
+
+        // The JDBC connection of the surrounding JPA transaction
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGING);
+        }
+
+        LocalDateTime importedAt = LocalDateTime.now();
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING);
+        try {
+            copyRows(input, format, importedAt, copyIn, result);
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+
+        try (Statement statement = connection.createStatement();
+             ResultSet unknown = statement.executeQuery(FIND_UNKNOWN_CODES)) {
+            while (unknown.next()) {
+                result.addError(unknown.getInt(1), "Unknown product code: " + unknown.getString(2));
+            }
+        }
+
+        if (allOrNothing && result.rejected > 0) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return result;
+        }
+        if (result.rowsRead == result.rejected) {
+            return result;
+        }
+
+        try (PreparedStatement earliest = connection.prepareStatement("SELECT MIN(date) FROM stock_import_staging");
+             ResultSet rs = earliest.executeQuery()) {
+            if (rs.next() && rs.getTimestamp(1) != null) {
+                stockSnapshotRepository.extendTailBound(rs.getTimestamp(1).toLocalDateTime());
+            }
+        }
+
+        // Imported purchases come in at the product's buying price, everything else at the average
+        List<InventoryValuationService.ValuationChange> valuationChanges = new ArrayList<>();
+        try (Statement statement = connection.createStatement()) {
+            result.imported = statement.executeUpdate(INSERT_MOVEMENTS);
+
+            try (ResultSet levels = statement.executeQuery(APPLY_STOCK)) {
+                while (levels.next()) {
+                    Long productId = levels.getLong(1);
+                    Integer currentStock = levels.getInt(2);
+                    Integer delta = levels.getInt(3);
+                    Integer minStock = (Integer) levels.getObject(4);
+                    Boolean active = (Boolean) levels.getObject(5);
+                    int purchased = levels.getInt(6);
+                    BigDecimal buyingPrice = levels.getBigDecimal(7);
+                    result.productsUpdated++;
+                    if (buyingPrice != null && purchased > 0) {
+                        valuationChanges.add(new InventoryValuationService.ValuationChange(productId, purchased, buyingPrice));
+                        valuationChanges.add(InventoryValuationService.ValuationChange.atAverageCost(productId, delta - purchased));
+                    } else {
+                        valuationChanges.add(InventoryValuationService.ValuationChange.atAverageCost(productId, delta));
+                    }
+                    if (StockLevelChangedEvent.crossesThreshold(currentStock - delta, currentStock, minStock, active)) {
+                        eventPublisher.publishEvent(new StockLevelChangedEvent(productId, currentStock, minStock, active));
+                    }
+                }
+            }
+
+            statement.executeUpdate(MARK_DIRTY);
+        }
+        if (result.productsUpdated > 0) {
+            eventPublisher.publishEvent(new DashboardDataChangedEvent(Product.class.getSimpleName()));
+        }
+        inventoryValuationService.applyChanges(valuationChanges);
+        return result;
+    }
+
+    private void copyRows(InputStream input, Format format, LocalDateTime importedAt, CopyIn copyIn,
+                          ImportResult result) throws IOException, SQLException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(COPY_BUFFER_SIZE + 1024);
+        Map<String, Integer> header = null;
+
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && header == null) {
+                header = parseHeader(line);
+                continue;
+            }
+
+            result.rowsRead++;
+            try {
+                ImportRow row = format == Format.CSV ? parseCsvRow(line, header) : parseJsonRow(line);
+                writeCopyLine(buffer, lineNo, row, importedAt);
+            } catch (IllegalArgumentException e) {
+                result.addError(lineNo, e.getMessage());
+            }
+
+            if (buffer.size() >= COPY_BUFFER_SIZE) {
+                copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                buffer.reset();
+            }
+        }
+        if (buffer.size() > 0) {
+            copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+        }
+    }
+
+    private Map<String, Integer> parseHeader(String line) {
+        List<String> columns = splitCsv(line);
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            header.put(columns.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!header.containsKey("productcode") || !header.containsKey("quantitydelta") || !header.containsKey("type")) {
+            throw new IllegalArgumentException("CSV header must contain productCode, quantityDelta and type");
+        }
+        return header;
+    }
+
+    private ImportRow parseCsvRow(String line, Map<String, Integer> header) {
+        List<String> fields = splitCsv(line);
+        ImportRow row = new ImportRow();
+        row.productCode = csvField(fields, header, "productcode");
+        row.quantityDelta = csvField(fields, header, "quantitydelta");
+        row.type = csvField(fields, header, "type");
+        row.reason = csvField(fields, header, "reason");
+        row.date = csvField(fields, header, "date");
+        row.sourceType = csvField(fields, header, "sourcetype");
+        row.sourceId = csvField(fields, header, "sourceid");
+        return row;
+    }
+
+    private String csvField(List<String> fields, Map<String, Integer> header, String column) {
+        Integer index = header.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private ImportRow parseJsonRow(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid JSON");
+        }
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        ImportRow row = new ImportRow();
+        row.productCode = jsonField(node, "productCode");
+        row.quantityDelta = jsonField(node, "quantityDelta");
+        row.type = jsonField(node, "type");
+        row.reason = jsonField(node, "reason");
+        row.date = jsonField(node, "date");
+        row.sourceType = jsonField(node, "sourceType");
+        row.sourceId = jsonField(node, "sourceId");
+        return row;
+    }
+
+    private String jsonField(JsonNode node, String name) {
+        JsonNode value = node.get(name);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private void writeCopyLine(ByteArrayOutputStream buffer, int lineNo, ImportRow row, LocalDateTime importedAt) {
+        if (row.productCode == null) {
+            throw new IllegalArgumentException("productCode is required");
+        }
+        if (row.quantityDelta == null) {
+            throw new IllegalArgumentException("quantityDelta is required");
+        }
+        int quantityDelta;
+        try {
+            quantityDelta = Integer.parseInt(row.quantityDelta);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid quantityDelta: " + row.quantityDelta);
+        }
+        if (row.type == null) {
+            throw new IllegalArgumentException("type is required");
+        }
+        StockMovementType type;
+        try {
+            type = StockMovementType.valueOf(row.type.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid type: " + row.type);
+        }
+        LocalDateTime date = importedAt;
+        if (row.date != null) {
+            try {
+                date = row.date.length() == 10
+                        ? LocalDate.parse(row.date).atStartOfDay()
+                        : LocalDateTime.parse(row.date);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid date: " + row.date);
+            }
+        }
+        Integer sourceId = null;
+        if (row.sourceId != null) {
+            try {
+                sourceId = Integer.parseInt(row.sourceId);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid sourceId: " + row.sourceId);
+            }
+        }
+
+        StringBuilder copyLine = new StringBuilder(128);
+        copyLine.append(lineNo).append('\t');
+        appendCopyValue(copyLine, row.productCode).append('\t');
+        copyLine.append(quantityDelta).append('\t');
+        copyLine.append(type.name()).append('\t');
+        appendCopyValue(copyLine, row.reason).append('\t');
+        copyLine.append(Timestamp.valueOf(date)).append('\t');
+        appendCopyValue(copyLine, row.sourceType).append('\t');
+        copyLine.append(sourceId == null ? "\\N" : sourceId.toString()).append('\n');
+
+        byte[] bytes = copyLine.toString().getBytes(StandardCharsets.UTF_8);
+        buffer.write(bytes, 0, bytes.length);
+    }
+
+    // COPY text format: backslash escapes and \N for NULL
+    private StringBuilder appendCopyValue(StringBuilder out, String value) {
+        if (value == null) {
+            return out.append("\\N");
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '\t' -> out.append("\\t");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                default -> out.append(c);
+            }
+        }
+        return out;
+    }
+
+    private List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    private static class ImportRow {
+        String productCode;
+        String quantityDelta;
+        String type;
+        String reason;
+        String date;
+        String sourceType;
+        String sourceId;
+    }
+
+    public static class ImportResult {
+        public int rowsRead;
+        public int imported;
+        public int rejected;
+        public int productsUpdated;
+        public List<RowError> errors = new ArrayList<>();
+
+        void addError(int line, String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(line, message));
+            }
+        }
+    }
+
+    public static class RowError {
+        public int line;
+        public String message;
+
+        public RowError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+    }
+}
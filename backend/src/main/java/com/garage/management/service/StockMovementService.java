@@ -1,13 +1,29 @@
 package com.garage.management.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garage.management.dto.StockMovementExportRow;
+import com.garage.management.dto.StockMovementFilter;
+import com.garage.management.dto.StockMovementPage;
 import com.garage.management.entity.Product;
 import com.garage.management.entity.StockMovement;
+import com.garage.management.enums.StockMovementType;
+import com.garage.management.event.DashboardDataChangedEvent;
+import com.garage.management.event.StockLevelChangedEvent;
 import com.garage.management.repository.ProductRepository;
+import com.garage.management.repository.StockDirtyProductRepository;
 import com.garage.management.repository.StockMovementRepository;
+import com.garage.management.repository.StockSnapshotRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,8 +36,73 @@ public class StockMovementService {
     @Autowired
     private ProductRepository productRepository;
 
-    public List<StockMovement> findAll() {
-        return stockMovementRepository.findAll();
+    @Autowired
+    private StockSnapshotRepository stockSnapshotRepository;
+
+    @Autowired
+    private StockDirtyProductRepository stockDirtyProductRepository;
+
+    @Autowired
+    private InventoryValuationService inventoryValuationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
+    public List<StockMovement> findRecent(StockMovementFilter filter, int limit) {
+        return stockMovementRepository.findPage(filter, null, null, clampPageSize(limit));
+    }
+
+    public StockMovementPage findPage(StockMovementFilter filter, String cursor, int limit) {
+        int pageSize = clampPageSize(limit);
+        LocalDateTime afterDate = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                afterDate = LocalDateTime.parse(parts[0]);
+                afterId = Long.parseLong(parts[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        List<StockMovement> items = stockMovementRepository.findPage(filter, afterDate, afterId, pageSize);
+        String nextCursor = null;
+        if (items.size() == pageSize) {
+            StockMovement last = items.get(items.size() - 1);
+            nextCursor = encodeCursor(last.getDate(), last.getId());
+        }
+        return new StockMovementPage(items, nextCursor);
+    }
+
+    // Each page is read in its own short transaction and written out before the next one
+    // is fetched, so memory use does not depend on how much history matches the filter
+    public void exportMovements(StockMovementFilter filter, OutputStream out) throws IOException {
+        LocalDateTime afterDate = null;
+        Long afterId = null;
+
+        while (true) {
+            List<StockMovementExportRow> rows =
+                    stockMovementRepository.findExportPage(filter, afterDate, afterId, EXPORT_PAGE_SIZE);
+            for (StockMovementExportRow row : rows) {
+                out.write(objectMapper.writeValueAsBytes(row));
+                out.write('\n');
+            }
+            out.flush();
+
+            if (rows.size() < EXPORT_PAGE_SIZE) {
+                return;
+            }
+            StockMovementExportRow last = rows.get(rows.size() - 1);
+            afterDate = last.getDate();
+            afterId = last.getId();
+        }
     }
 
     public Optional<StockMovement> findById(Long id) {
@@ -39,22 +120,31 @@ public class StockMovementService {
             throw new IllegalArgumentException("Product is required for stock movement");
         }
 
-        Product existingProduct = productRepository.findById(product.getId())
-                .orElseThrow(() -> new IllegalArgumentException("Product not found with id: " + product.getId()));
-
-        Integer currentStock = existingProduct.getCurrentStock();
-        if (currentStock == null) {
-            currentStock = 0;
-        }
-
         Integer quantityDelta = movement.getQuantityDelta();
         if (quantityDelta == null) {
             quantityDelta = 0;
         }
 
-        int newStock = currentStock + quantityDelta;
-        existingProduct.setCurrentStock(newStock);
-        productRepository.save(existingProduct);
+        if (movement.getDate() == null) {
+            movement.setDate(LocalDateTime.now());
+        }
+
+        stockSnapshotRepository.lockForMovementChange();
+        stockSnapshotRepository.extendTailBound(movement.getDate());
+
+        Integer newStock = productRepository.adjustCurrentStock(product.getId(), quantityDelta)
+                .orElseThrow(() -> new IllegalArgumentException("Product not found with id: " + product.getId()));
+        eventPublisher.publishEvent(new DashboardDataChangedEvent(Product.class.getSimpleName()));
+        stockDirtyProductRepository.markDirty(product.getId());
+
+        Product existingProduct = productRepository.findById(product.getId())
+                .orElseThrow(() -> new IllegalArgumentException("Product not found with id: " + product.getId()));
+        publishIfThresholdCrossed(existingProduct, newStock - quantityDelta, newStock);
+
+        // Manual purchases have no cost of their own, they come in at the current buying price
+        BigDecimal unitCost = movement.getType() == StockMovementType.PURCHASE ? existingProduct.getBuyingPrice() : null;
+        inventoryValuationService.applyChanges(List.of(
+                new InventoryValuationService.ValuationChange(product.getId(), quantityDelta, unitCost)));
 
         movement.setProduct(existingProduct);
         return stockMovementRepository.save(movement);
@@ -62,26 +152,43 @@ public class StockMovementService {
 
     @Transactional
     public void deleteMovement(Long id) {
+        stockSnapshotRepository.lockForMovementChange();
         StockMovement movement = stockMovementRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Stock movement not found with id: " + id));
 
         Product product = movement.getProduct();
         if (product != null) {
-            Integer currentStock = product.getCurrentStock();
-            if (currentStock == null) {
-                currentStock = 0;
-            }
-
             Integer quantityDelta = movement.getQuantityDelta();
             if (quantityDelta == null) {
                 quantityDelta = 0;
             }
 
-            int newStock = currentStock - quantityDelta;
-            product.setCurrentStock(newStock);
-            productRepository.save(product);
+            Integer delta = -quantityDelta;
+            productRepository.adjustCurrentStock(product.getId(), delta)
+                    .ifPresent(newStock -> publishIfThresholdCrossed(product, newStock - delta, newStock));
+            eventPublisher.publishEvent(new DashboardDataChangedEvent(Product.class.getSimpleName()));
+            stockDirtyProductRepository.markDirty(product.getId());
+            inventoryValuationService.applyChanges(List.of(
+                    InventoryValuationService.ValuationChange.atAverageCost(product.getId(), delta)));
+            stockSnapshotRepository.unfoldMovement(product.getId(), movement.getId(), quantityDelta);
         }
 
         stockMovementRepository.delete(movement);
     }
+
+    private void publishIfThresholdCrossed(Product product, Integer previousStock, Integer newStock) {
+        if (StockLevelChangedEvent.crossesThreshold(previousStock, newStock, product.getMinStock(), product.getActive())) {
+            eventPublisher.publishEvent(new StockLevelChangedEvent(
+                    product.getId(), newStock, product.getMinStock(), product.getActive()));
+        }
+    }
+
+    private int clampPageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    private String encodeCursor(LocalDateTime date, Long id) {
+        String raw = date + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
 }
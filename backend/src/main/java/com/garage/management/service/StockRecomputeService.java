@@ -0,0 +1,95 @@
+package com.garage.management.service;
+
+import com.garage.management.entity.Product;
+import com.garage.management.event.DashboardDataChangedEvent;
+import com.garage.management.event.StockLevelChangedEvent;
+import com.garage.management.repository.ProductRepository;
+import com.garage.management.repository.StockDirtyProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+public class StockRecomputeService {
+    
+    private final StockDirtyProductRepository stockDirtyProductRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InventoryValuationService inventoryValuationService;
+    private final int chunkSize;
+    
+    public StockRecomputeService(StockDirtyProductRepository stockDirtyProductRepository,
+                                 ProductRepository productRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 ApplicationEventPublisher eventPublisher,
+                                 InventoryValuationService inventoryValuationService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${garage.stock.recompute.chunk-size:500}") int chunkSize) {
+        this.stockDirtyProductRepository = stockDirtyProductRepository;
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.inventoryValuationService = inventoryValuationService;
+        this.chunkSize = chunkSize;
+        
+        Gauge.builder("garage.stock.dirty.products", stockDirtyProductRepository, StockDirtyProductRepository::count)
+                .description("Products whose current stock is waiting to be recomputed")
+                .register(meterRegistry);
+    }
+    
+    // Only marks that existed when the run started are processed, so products that keep
+    // receiving movements cannot hold the job in a loop; their newer marks wait for the next run
+    @Scheduled(fixedDelayString = "${garage.stock.recompute.interval-ms:60000}",
+               initialDelayString = "${garage.stock.recompute.initial-delay-ms:30000}")
+    public int recomputeDirtyProducts() {
+        LocalDateTime runStart = stockDirtyProductRepository.currentTimestamp();
+        int updated = 0;
+        
+        while (true) {
+            Integer chunkUpdated = transactionTemplate.execute(status -> recomputeChunk(runStart));
+            if (chunkUpdated == null) {
+                return updated;
+            }
+            updated += chunkUpdated;
+        }
+    }
+    
+    public int recomputeAllProducts() {
+        transactionTemplate.executeWithoutResult(status -> stockDirtyProductRepository.markAllDirty());
+        return recomputeDirtyProducts();
+    }
+    
+    private Integer recomputeChunk(LocalDateTime runStart) {
+        List<Long> productIds = stockDirtyProductRepository.findProductIdsMarkedBefore(runStart, chunkSize);
+        if (productIds.isEmpty()) {
+            return null;
+        }
+        
+        // Holding the row locks first means every movement that already adjusted one of
+        // these products has committed, so the recomputed value cannot miss it
+        productRepository.lockForStockRecompute(productIds);
+        List<ProductRepository.StockLevel> levels = productRepository.recomputeCurrentStock(productIds);
+        for (ProductRepository.StockLevel level : levels) {
+            if (StockLevelChangedEvent.crossesThreshold(level.getCurrentStock() - level.getDelta(),
+                    level.getCurrentStock(), level.getMinStock(), level.getActive())) {
+                eventPublisher.publishEvent(new StockLevelChangedEvent(
+                        level.getProductId(), level.getCurrentStock(), level.getMinStock(), level.getActive()));
+            }
+        }
+        if (!levels.isEmpty()) {
+            eventPublisher.publishEvent(new DashboardDataChangedEvent(Product.class.getSimpleName()));
+        }
+        inventoryValuationService.alignWithStock(productIds);
+        stockDirtyProductRepository.clearMarks(productIds, runStart);
+        return levels.size();
+    }
+}
@@ -0,0 +1,205 @@
+package com.garage.management.service;
+
+import com.garage.management.repository.ProductRepository;
+import com.garage.management.repository.StockDirtyProductRepository;
+import com.garage.management.repository.StockSnapshotRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class StockReconciliationService {
+
+    private static final int MAX_REPORTED_DRIFTS = 1000;
+    private static final int REPAIR_CHUNK_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final StockSnapshotRepository stockSnapshotRepository;
+    private final StockDirtyProductRepository stockDirtyProductRepository;
+    private final StockRecomputeService stockRecomputeService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService coordinator;
+    private final ExecutorService workers;
+    private final long rangeSize;
+    private final boolean scheduledRepair;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile ReconciliationReport currentRun;
+    private volatile ReconciliationReport lastRun;
+
+    public StockReconciliationService(ProductRepository productRepository,
+                                      StockSnapshotRepository stockSnapshotRepository,
+                                      StockDirtyProductRepository stockDirtyProductRepository,
+                                      StockRecomputeService stockRecomputeService,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${garage.stock.reconciliation.threads:4}") int threads,
+                                      @Value("${garage.stock.reconciliation.range-size:10000}") long rangeSize,
+                                      @Value("${garage.stock.reconciliation.auto-repair:false}") boolean scheduledRepair) {
+        this.productRepository = productRepository;
+        this.stockSnapshotRepository = stockSnapshotRepository;
+        this.stockDirtyProductRepository = stockDirtyProductRepository;
+        this.stockRecomputeService = stockRecomputeService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.coordinator = Executors.newSingleThreadExecutor(daemonThreads("stock-reconciliation"));
+        this.workers = Executors.newFixedThreadPool(threads, daemonThreads("stock-reconciliation-worker"));
+        this.rangeSize = rangeSize;
+        this.scheduledRepair = scheduledRepair;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    @Scheduled(cron = "${garage.stock.reconciliation.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        start(scheduledRepair);
+    }
+
+    // Returns false when a run is already in progress
+    public boolean start(boolean repair) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        ReconciliationReport report = new ReconciliationReport();
+        report.repair = repair;
+        report.startedAt = LocalDateTime.now();
+        report.status = "RUNNING";
+        currentRun = report;
+
+        coordinator.submit(() -> {
+            try {
+                reconcile(report);
+                report.status = "COMPLETED";
+            } catch (Exception e) {
+                report.status = "FAILED";
+                report.error = e.getMessage();
+            } finally {
+                report.finishedAt = LocalDateTime.now();
+                report.durationMs = Duration.between(report.startedAt, report.finishedAt).toMillis();
+                lastRun = report;
+                currentRun = null;
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public ReconciliationStatus getStatus() {
+        ReconciliationStatus status = new ReconciliationStatus();
+        status.running = running.get();
+        status.currentRun = currentRun;
+        status.lastRun = lastRun;
+        return status;
+    }
+
+    private void reconcile(ReconciliationReport report) throws InterruptedException, ExecutionException {
+        Long minId = productRepository.findMinId();
+        Long maxId = productRepository.findMaxId();
+        if (minId == null) {
+            return;
+        }
+
+        // Each range is checked by one statement, so the cached stock and the ledger are
+        // compared within the same snapshot and in-flight movements cannot show up as drift
+        report.rangesTotal = (int) ((maxId - minId) / rangeSize + 1);
+        List<Future<List<ProductRepository.StockDrift>>> ranges = new ArrayList<>();
+        for (long from = minId; from <= maxId; from += rangeSize) {
+            long rangeFrom = from;
+            long rangeTo = Math.min(from + rangeSize - 1, maxId);
+            ranges.add(workers.submit(() -> {
+                List<ProductRepository.StockDrift> drift = productRepository.findStockDrift(rangeFrom, rangeTo);
+                report.driftedProducts.addAndGet(drift.size());
+                report.rangesDone.incrementAndGet();
+                return drift;
+            }));
+        }
+
+        List<Long> driftedIds = new ArrayList<>();
+        for (Future<List<ProductRepository.StockDrift>> range : ranges) {
+            for (ProductRepository.StockDrift drift : range.get()) {
+                driftedIds.add(drift.getProductId());
+                if (report.drifts.size() < MAX_REPORTED_DRIFTS) {
+                    report.drifts.add(new DriftEntry(drift.getProductId(), drift.getCurrentStock(), drift.getLedgerStock()));
+                }
+            }
+        }
+
+        if (report.repair && !driftedIds.isEmpty()) {
+            repair(driftedIds);
+            report.repairedProducts = driftedIds.size();
+        }
+    }
+
+    // Snapshots are rebuilt from the ledger first so that the recompute, which trusts
+    // snapshot plus tail, lands on the ledger value
+    private void repair(List<Long> productIds) {
+        for (int i = 0; i < productIds.size(); i += REPAIR_CHUNK_SIZE) {
+            List<Long> chunk = productIds.subList(i, Math.min(i + REPAIR_CHUNK_SIZE, productIds.size()));
+            transactionTemplate.executeWithoutResult(status -> {
+                stockSnapshotRepository.lockForCompaction();
+                stockSnapshotRepository.rebuildSnapshots(chunk);
+                stockDirtyProductRepository.markProductsDirty(chunk);
+            });
+        }
+        stockRecomputeService.recomputeDirtyProducts();
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public static class ReconciliationStatus {
+        public boolean running;
+        public ReconciliationReport currentRun;
+        public ReconciliationReport lastRun;
+    }
+
+    public static class ReconciliationReport {
+        public String status;
+        public boolean repair;
+        public LocalDateTime startedAt;
+        public LocalDateTime finishedAt;
+        public Long durationMs;
+        public int rangesTotal;
+        public final AtomicInteger rangesDone = new AtomicInteger();
+        public final AtomicInteger driftedProducts = new AtomicInteger();
+        public int repairedProducts;
+        public String error;
+        public final List<DriftEntry> drifts = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    public static class DriftEntry {
+        public Long productId;
+        public Integer currentStock;
+        public Integer ledgerStock;
+
+        public DriftEntry(Long productId, Integer currentStock, Integer ledgerStock) {
+            this.productId = productId;
+            this.currentStock = currentStock;
+            this.ledgerStock = ledgerStock;
+        }
+    }
+}
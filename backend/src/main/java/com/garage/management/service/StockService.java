@@ -3,17 +3,22 @@ package com.garage.management.service;
 import com.garage.management.entity.Product;
 import com.garage.management.entity.StockMovement;
 import com.garage.management.entity.SupplierOrder;
-import com.garage.management.entity.SupplierOrderLine;
-import com.garage.management.enums.OrderStatus;
 import com.garage.management.enums.StockMovementType;
+import com.garage.management.event.DashboardDataChangedEvent;
+import com.garage.management.event.StockLevelChangedEvent;
 import com.garage.management.repository.ProductRepository;
+import com.garage.management.repository.StockDirtyProductRepository;
 import com.garage.management.repository.StockMovementRepository;
+import com.garage.management.repository.StockSnapshotRepository;
 import com.garage.management.repository.SupplierOrderLineRepository;
 import com.garage.management.repository.SupplierOrderRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,97 +30,152 @@ public class StockService {
     private final ProductRepository productRepository;
     private final SupplierOrderRepository supplierOrderRepository;
     private final SupplierOrderLineRepository supplierOrderLineRepository;
+    private final StockSnapshotRepository stockSnapshotRepository;
+    private final StockDirtyProductRepository stockDirtyProductRepository;
+    private final StockRecomputeService stockRecomputeService;
+    private final InventoryValuationService inventoryValuationService;
+    private final StockMovementService stockMovementService;
+    private final ApplicationEventPublisher eventPublisher;
     
     public StockService(StockMovementRepository stockMovementRepository,
                         ProductRepository productRepository,
                         SupplierOrderRepository supplierOrderRepository,
-                        SupplierOrderLineRepository supplierOrderLineRepository) {
+                        SupplierOrderLineRepository supplierOrderLineRepository,
+                        StockSnapshotRepository stockSnapshotRepository,
+                        StockDirtyProductRepository stockDirtyProductRepository,
+                        StockRecomputeService stockRecomputeService,
+                        InventoryValuationService inventoryValuationService,
+                        StockMovementService stockMovementService,
+                        ApplicationEventPublisher eventPublisher) {
         this.stockMovementRepository = stockMovementRepository;
         this.productRepository = productRepository;
         this.supplierOrderRepository = supplierOrderRepository;
         this.supplierOrderLineRepository = supplierOrderLineRepository;
+        this.stockSnapshotRepository = stockSnapshotRepository;
+        this.stockDirtyProductRepository = stockDirtyProductRepository;
+        this.stockRecomputeService = stockRecomputeService;
+        this.inventoryValuationService = inventoryValuationService;
+        this.stockMovementService = stockMovementService;
+        this.eventPublisher = eventPublisher;
     }
     
     public Integer computeCurrentStock(Long productId) {
-        List<StockMovement> movements = stockMovementRepository.findByProductId(productId);
-        return movements.stream()
-                .mapToInt(StockMovement::getQuantityDelta)
-                .sum();
+        return computeCurrentStocks(List.of(productId)).get(productId);
     }
     
     public Map<Long, Integer> computeAllProductsStock() {
-        List<StockMovement> allMovements = stockMovementRepository.findAll();
         Map<Long, Integer> stockMap = new HashMap<>();
+        for (StockMovementRepository.ProductQuantity total : stockMovementRepository.sumCurrentQuantities()) {
+            stockMap.put(total.getProductId(), total.getQuantity().intValue());
+        }
+        return stockMap;
+    }
+    
+    public Map<Long, Integer> computeCurrentStocks(Collection<Long> productIds) {
+        Map<Long, Integer> stockMap = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return stockMap;
+        }
         
-        for (StockMovement movement : allMovements) {
-            Long productId = movement.getProduct().getId();
-            stockMap.merge(productId, movement.getQuantityDelta(), Integer::sum);
+        for (Long productId : productIds) {
+            stockMap.put(productId, 0);
+        }
+        for (StockMovementRepository.ProductQuantity total : stockMovementRepository.sumCurrentQuantities(productIds)) {
+            stockMap.put(total.getProductId(), total.getQuantity().intValue());
         }
         
         return stockMap;
     }
     
-    @Transactional
-    public void updateProductStocks() {
-        Map<Long, Integer> stockMap = computeAllProductsStock();
-        List<Product> products = productRepository.findAll();
+    // Product edits can move a product across its threshold without any stock movement
+    // (minStock changed, product deactivated). The level is read back from the table, as
+    // the entity's currentStock does not follow the ledger's native updates
+    public void publishStockLevel(Long productId) {
+        productRepository.findStockLevel(productId).ifPresent(level -> eventPublisher.publishEvent(
+                new StockLevelChangedEvent(level.getProductId(), level.getCurrentStock(),
+                        level.getMinStock(), level.getActive())));
+    }
+    
+    public Integer computeStockAsOf(Long productId, LocalDateTime asOf) {
+        return stockMovementRepository.sumQuantityByProductIdAsOf(productId, asOf).intValue();
+    }
+    
+    public Map<Long, Integer> computeStocksAsOf(Collection<Long> productIds, LocalDateTime asOf) {
+        Map<Long, Integer> stockMap = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return stockMap;
+        }
         
-        for (Product product : products) {
-            Integer computedStock = stockMap.getOrDefault(product.getId(), 0);
-            product.setCurrentStock(computedStock);
-            productRepository.save(product);
+        for (Long productId : productIds) {
+            stockMap.put(productId, 0);
         }
+        for (StockMovementRepository.ProductQuantity total : stockMovementRepository.sumQuantitiesByProductIdsAsOf(productIds, asOf)) {
+            stockMap.put(total.getProductId(), total.getQuantity().intValue());
+        }
+        
+        return stockMap;
+    }
+    
+    public void updateProductStocks() {
+        stockRecomputeService.recomputeAllProducts();
     }
     
+    // The movement date is read only once the ledger lock is held and the tail bound is
+    // widened to it, so a compaction that ran in between cannot leave the receipt outside
+    // the tail every stock sum starts from
     @Transactional
     public SupplierOrder markOrderAsReceived(Long orderId) {
-        SupplierOrder order = supplierOrderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Supplier order not found"));
+        stockSnapshotRepository.lockForMovementChange();
+        LocalDateTime now = LocalDateTime.now();
+        stockSnapshotRepository.extendTailBound(now);
         
-        if (order.getStatus() == OrderStatus.RECEIVED) {
+        if (supplierOrderRepository.markReceived(orderId, now) == 0) {
+            supplierOrderRepository.findById(orderId)
+                    .orElseThrow(() -> new RuntimeException("Supplier order not found"));
             throw new RuntimeException("Order already marked as received");
         }
         
-        List<SupplierOrderLine> lines = supplierOrderLineRepository.findBySupplierOrderId(orderId);
+        List<SupplierOrderLineRepository.ReceiptLine> lines = supplierOrderLineRepository.findReceiptLines(orderId);
+        List<StockMovement> movements = new ArrayList<>(lines.size());
+        List<InventoryValuationService.ValuationChange> valuationChanges = new ArrayList<>(lines.size());
         
-        for (SupplierOrderLine line : lines) {
+        for (SupplierOrderLineRepository.ReceiptLine line : lines) {
             StockMovement movement = new StockMovement();
-            movement.setProduct(line.getProduct());
-            movement.setDate(LocalDateTime.now());
+            movement.setProduct(productRepository.getReferenceById(line.getProductId()));
+            movement.setDate(now);
             movement.setQuantityDelta(line.getQuantity());
             movement.setType(StockMovementType.PURCHASE);
             movement.setReason("Supplier Order #" + orderId + " received");
             movement.setSourceType("SUPPLIER_ORDER");
             movement.setSourceId(orderId);
-            stockMovementRepository.save(movement);
-            
-            Product product = line.getProduct();
-            product.setCurrentStock(product.getCurrentStock() + line.getQuantity());
-            productRepository.save(product);
+            movements.add(movement);
+            valuationChanges.add(new InventoryValuationService.ValuationChange(
+                    line.getProductId(), line.getQuantity(), line.getUnitCost()));
         }
         
-        order.setStatus(OrderStatus.RECEIVED);
-        return supplierOrderRepository.save(order);
+        stockMovementRepository.saveAll(movements);
+        for (ProductRepository.StockLevel level : productRepository.receiveSupplierOrderStock(orderId)) {
+            if (StockLevelChangedEvent.crossesThreshold(level.getCurrentStock() - level.getDelta(),
+                    level.getCurrentStock(), level.getMinStock(), level.getActive())) {
+                eventPublisher.publishEvent(new StockLevelChangedEvent(
+                        level.getProductId(), level.getCurrentStock(), level.getMinStock(), level.getActive()));
+            }
+        }
+        eventPublisher.publishEvent(new DashboardDataChangedEvent(Product.class.getSimpleName()));
+        stockDirtyProductRepository.markSupplierOrderDirty(orderId);
+        inventoryValuationService.applyChanges(valuationChanges);
+        
+        return supplierOrderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Supplier order not found"));
     }
     
-    @Transactional
     public StockMovement addStockMovement(Long productId, Integer quantity, 
                                           StockMovementType type, String reason) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-        
         StockMovement movement = new StockMovement();
-        movement.setProduct(product);
-        movement.setDate(LocalDateTime.now());
+        movement.setProduct(productRepository.getReferenceById(productId));
         movement.setQuantityDelta(quantity);
         movement.setType(type);
         movement.setReason(reason);
-        
-        StockMovement saved = stockMovementRepository.save(movement);
-        
-        product.setCurrentStock(product.getCurrentStock() + quantity);
-        productRepository.save(product);
-        
-        return saved;
+        return stockMovementService.createMovement(movement);
     }
 }
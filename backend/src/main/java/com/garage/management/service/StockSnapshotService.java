@@ -0,0 +1,44 @@
+package com.garage.management.service;
+
+import com.garage.management.repository.StockMovementRepository;
+import com.garage.management.repository.StockSnapshotRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Service
+public class StockSnapshotService {
+    
+    private final StockSnapshotRepository stockSnapshotRepository;
+    private final StockMovementRepository stockMovementRepository;
+    private final long settleSeconds;
+    
+    public StockSnapshotService(StockSnapshotRepository stockSnapshotRepository,
+                                StockMovementRepository stockMovementRepository,
+                                @Value("${garage.stock.snapshot.settle-seconds:300}") long settleSeconds) {
+        this.stockSnapshotRepository = stockSnapshotRepository;
+        this.stockMovementRepository = stockMovementRepository;
+        this.settleSeconds = settleSeconds;
+    }
+    
+    // Movements younger than the settle window are left out so that ids handed out to
+    // transactions that have not committed yet are never skipped by a snapshot
+    @Scheduled(fixedDelayString = "${garage.stock.snapshot.interval-ms:900000}",
+               initialDelayString = "${garage.stock.snapshot.initial-delay-ms:60000}")
+    @Transactional
+    public int compactSnapshots() {
+        stockSnapshotRepository.lockForCompaction();
+        
+        Long horizonId = stockMovementRepository.findMaxIdRecordedBefore(
+                LocalDateTime.now().minusSeconds(settleSeconds), stockSnapshotRepository.findTailFromDate());
+        if (horizonId == null) {
+            return 0;
+        }
+        int folded = stockSnapshotRepository.foldMovementsUpTo(horizonId);
+        stockSnapshotRepository.advanceHorizon(horizonId);
+        return folded;
+    }
+}
@@ -1,40 +1,102 @@
 package com.garage.management.service;
 
 import com.garage.management.entity.*;
+import com.garage.management.enums.WorkOrderStatus;
+import com.garage.management.event.DashboardDataChangedEvent;
+import com.garage.management.event.WorkOrderChangedEvent;
 import com.garage.management.repository.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 public class WorkOrderService {
     
+    private static final int MAX_REPORTED_DRIFTS = 1000;
+    private static final int MAX_BULK_LINES = 500;
+    
     private final WorkOrderRepository workOrderRepository;
     private final WorkOrderProductLineRepository productLineRepository;
     private final WorkOrderServiceLineRepository serviceLineRepository;
     private final ProductRepository productRepository;
-    private final ProductPriceHistoryRepository productPriceHistoryRepository;
     private final ServiceRepository serviceRepository;
-    private final ServicePriceHistoryRepository servicePriceHistoryRepository;
+    private final ProductBuyingPriceHistoryRepository buyingPriceHistoryRepository;
+    private final PriceIndex priceIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean scheduledRepair;
+    private final TransactionTemplate transactionTemplate;
+    
+    private volatile TotalVerification lastVerification;
     
     public WorkOrderService(WorkOrderRepository workOrderRepository,
                             WorkOrderProductLineRepository productLineRepository,
                             WorkOrderServiceLineRepository serviceLineRepository,
                             ProductRepository productRepository,
-                            ProductPriceHistoryRepository productPriceHistoryRepository,
                             ServiceRepository serviceRepository,
-                            ServicePriceHistoryRepository servicePriceHistoryRepository) {
+                            ProductBuyingPriceHistoryRepository buyingPriceHistoryRepository,
+                            PriceIndex priceIndex,
+                            ApplicationEventPublisher eventPublisher,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${garage.work-orders.total-verification.auto-repair:false}") boolean scheduledRepair) {
         this.workOrderRepository = workOrderRepository;
         this.productLineRepository = productLineRepository;
         this.serviceLineRepository = serviceLineRepository;
         this.productRepository = productRepository;
-        this.productPriceHistoryRepository = productPriceHistoryRepository;
         this.serviceRepository = serviceRepository;
-        this.servicePriceHistoryRepository = servicePriceHistoryRepository;
+        this.buyingPriceHistoryRepository = buyingPriceHistoryRepository;
+        this.priceIndex = priceIndex;
+        this.eventPublisher = eventPublisher;
+        this.scheduledRepair = scheduledRepair;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    // Status and date decide which month, if any, the work order's lines are counted in,
+    // so a change to either moves them between margin rollups in the same transaction
+    @Transactional
+    public Optional<WorkOrder> update(Long id, WorkOrder changes) {
+        if (changes.getDate() == null) {
+            throw new IllegalArgumentException("Work order date is required");
+        }
+        if (workOrderRepository.lock(id) == 0) {
+            return Optional.empty();
+        }
+        WorkOrder existing = workOrderRepository.findById(id).orElseThrow();
+        LocalDate previousDate = existing.getDate();
+        boolean previouslyCounted = countsTowardMargins(existing.getStatus());
+        
+        existing.setClient(changes.getClient());
+        existing.setVehicle(changes.getVehicle());
+        existing.setDate(changes.getDate());
+        existing.setStatus(changes.getStatus());
+        existing.setDescription(changes.getDescription());
+        WorkOrder saved = workOrderRepository.save(existing);
+        
+        boolean counted = countsTowardMargins(saved.getStatus());
+        boolean sameMonth = YearMonth.from(previousDate).equals(YearMonth.from(saved.getDate()));
+        if (previouslyCounted && (!counted || !sameMonth)) {
+            productLineRepository.applyWorkOrderMargins(id, previousDate, -1);
+        }
+        if (counted && (!previouslyCounted || !sameMonth)) {
+            productLineRepository.applyWorkOrderMargins(id, saved.getDate(), 1);
+        }
+        return Optional.of(saved);
     }
     
     @Transactional
@@ -46,23 +108,18 @@ public class WorkOrderService {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         
-        BigDecimal standardPrice = productPriceHistoryRepository
-                .findCurrentPriceForProduct(productId, LocalDate.now())
-                .map(pph -> pph.getPrice())
-                .orElse(product.getSellingPrice() != null ? product.getSellingPrice() : BigDecimal.ZERO);
-        
-        BigDecimal finalUnitPrice;
-        if (discountPercent != null && discountPercent.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal discountFactor = BigDecimal.ONE.subtract(
-                    discountPercent.divide(new BigDecimal("100"), 4, RoundingMode.HALF_UP)
-            );
-            finalUnitPrice = standardPrice.multiply(discountFactor).setScale(2, RoundingMode.HALF_UP);
-        } else {
-            finalUnitPrice = standardPrice;
-            discountPercent = BigDecimal.ZERO;
+        BigDecimal standardPrice = priceIndex.productPriceAt(productId, LocalDate.now());
+        if (standardPrice == null) {
+            standardPrice = product.getSellingPrice() != null ? product.getSellingPrice() : BigDecimal.ZERO;
         }
         
-        BigDecimal lineTotal = finalUnitPrice.multiply(new BigDecimal(quantity)).setScale(2, RoundingMode.HALF_UP);
+        discountPercent = normalizeDiscount(discountPercent);
+        BigDecimal finalUnitPrice = applyDiscount(standardPrice, discountPercent);
+        BigDecimal lineTotal = lineTotal(finalUnitPrice, quantity);
+        BigDecimal unitCost = buyingPriceHistoryRepository.findUnitCosts(List.of(productId), LocalDate.now()).stream()
+                .map(ProductRepository.ItemPrice::getPrice)
+                .filter(Objects::nonNull)
+                .findFirst().orElse(null);
         
         WorkOrderProductLine line = new WorkOrderProductLine();
         line.setWorkOrder(workOrder);
@@ -72,10 +129,13 @@ public class WorkOrderService {
         line.setDiscountPercent(discountPercent);
         line.setFinalUnitPrice(finalUnitPrice);
         line.setLineTotal(lineTotal);
+        line.setUnitCost(unitCost);
         
         WorkOrderProductLine saved = productLineRepository.save(line);
         
-        recalculateWorkOrderTotal(workOrderId);
+        applyTotalDelta(workOrderId, lineTotal);
+        productLineRepository.applyMarginDelta(workOrderId, new Long[] {productId}, new Integer[] {quantity},
+                new BigDecimal[] {lineTotal}, new BigDecimal[] {unitCost}, 1);
         
         return saved;
     }
@@ -89,21 +149,14 @@ public class WorkOrderService {
         ServiceEntity service = serviceRepository.findById(serviceId)
                 .orElseThrow(() -> new RuntimeException("Service not found"));
         
-        BigDecimal unitPrice = servicePriceHistoryRepository
-                .findCurrentPriceForService(serviceId, LocalDate.now())
-                .map(sph -> sph.getPrice())
-                .orElse(service.getSellingPrice() != null ? service.getSellingPrice() : BigDecimal.ZERO);
-        
-        BigDecimal finalUnitPrice;
-        if (discountPercent != null && discountPercent.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal discountFactor = BigDecimal.ONE.subtract(discountPercent.divide(new BigDecimal("100"), 4, RoundingMode.HALF_UP));
-            finalUnitPrice = unitPrice.multiply(discountFactor).setScale(2, RoundingMode.HALF_UP);
-        } else {
-            finalUnitPrice = unitPrice;
-            discountPercent = BigDecimal.ZERO;
+        BigDecimal unitPrice = priceIndex.servicePriceAt(serviceId, LocalDate.now());
+        if (unitPrice == null) {
+            unitPrice = service.getSellingPrice() != null ? service.getSellingPrice() : BigDecimal.ZERO;
         }
         
-        BigDecimal lineTotal = finalUnitPrice.multiply(new BigDecimal(quantity)).setScale(2, RoundingMode.HALF_UP);
+        discountPercent = normalizeDiscount(discountPercent);
+        BigDecimal finalUnitPrice = applyDiscount(unitPrice, discountPercent);
+        BigDecimal lineTotal = lineTotal(finalUnitPrice, quantity);
         
         WorkOrderServiceLine line = new WorkOrderServiceLine();
         line.setWorkOrder(workOrder);
@@ -116,29 +169,201 @@ public class WorkOrderService {
         
         WorkOrderServiceLine saved = serviceLineRepository.save(line);
         
-        recalculateWorkOrderTotal(workOrderId);
+        applyTotalDelta(workOrderId, lineTotal);
         
         return saved;
     }
     
+    // Prices for every line come from one query and each line table gets one multi-row
+    // insert; the work order total moves once for the whole batch
     @Transactional
-    public void recalculateWorkOrderTotal(Long workOrderId) {
-        WorkOrder workOrder = workOrderRepository.findById(workOrderId)
-                .orElseThrow(() -> new RuntimeException("Work order not found"));
+    public BulkLinesResult addLines(Long workOrderId, List<LineInput> productLines, List<LineInput> serviceLines) {
+        productLines = productLines != null ? productLines : List.of();
+        serviceLines = serviceLines != null ? serviceLines : List.of();
+        if (productLines.isEmpty() && serviceLines.isEmpty()) {
+            throw new IllegalArgumentException("No lines to add");
+        }
+        if (productLines.size() + serviceLines.size() > MAX_BULK_LINES) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_LINES + " lines can be added at once");
+        }
+        for (LineInput input : productLines) {
+            validate(input);
+        }
+        for (LineInput input : serviceLines) {
+            validate(input);
+        }
         
-        List<WorkOrderProductLine> productLines = productLineRepository.findByWorkOrderId(workOrderId);
-        List<WorkOrderServiceLine> serviceLines = serviceLineRepository.findByWorkOrderId(workOrderId);
+        Map<Long, BigDecimal> productPrices = new HashMap<>();
+        Map<Long, BigDecimal> servicePrices = new HashMap<>();
+        Long[] unpricedProducts = unpricedIds(productLines);
+        Long[] unpricedServices = unpricedIds(serviceLines);
+        if (unpricedProducts.length > 0 || unpricedServices.length > 0) {
+            for (WorkOrderRepository.LinePrice price : workOrderRepository.findCurrentLinePrices(
+                    unpricedProducts, unpricedServices, LocalDate.now())) {
+                ("PRODUCT".equals(price.getKind()) ? productPrices : servicePrices).put(price.getItemId(), price.getPrice());
+            }
+        }
         
-        BigDecimal productTotal = productLines.stream()
-                .map(WorkOrderProductLine::getLineTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        PricedLines products = priceLines(productLines, productPrices, "Product");
+        PricedLines services = priceLines(serviceLines, servicePrices, "Service");
+        BigDecimal[] unitCosts = products.isEmpty() ? new BigDecimal[0] : unitCosts(productLines);
         
-        BigDecimal serviceTotal = serviceLines.stream()
-                .map(WorkOrderServiceLine::getLineTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Moving the total first locks the work order row before any line is written
+        BulkLinesResult result = new BulkLinesResult();
+        result.workOrderId = workOrderId;
+        result.totalAmount = applyTotalDelta(workOrderId, products.total.add(services.total));
+        result.productLineIds = products.isEmpty() ? List.of() : productLineRepository.insertLines(workOrderId,
+                products.itemIds(), products.quantities(), products.unitPrices(), products.discountPercents(),
+                products.finalUnitPrices(), products.lineTotals(), unitCosts);
+        if (!products.isEmpty()) {
+            productLineRepository.applyMarginDelta(workOrderId, products.itemIds(),
+                    products.quantities(), products.lineTotals(), unitCosts, 1);
+        }
+        result.serviceLineIds = services.isEmpty() ? List.of() : serviceLineRepository.insertLines(workOrderId,
+                services.itemIds(), services.quantities(), services.unitPrices(), services.discountPercents(),
+                services.finalUnitPrices(), services.lineTotals());
+        return result;
+    }
+    
+    @Transactional
+    public void deleteProductLine(Long lineId) {
+        WorkOrderProductLineRepository.RemovedProductLine removed = productLineRepository.deleteReturningTotal(lineId)
+                .orElseThrow(() -> new RuntimeException("Product line not found"));
+        applyTotalDelta(removed.getWorkOrderId(), negate(removed.getLineTotal()));
+        productLineRepository.applyMarginDelta(removed.getWorkOrderId(), new Long[] {removed.getProductId()},
+                new Integer[] {removed.getQuantity()},
+                new BigDecimal[] {removed.getLineTotal() != null ? removed.getLineTotal() : BigDecimal.ZERO},
+                new BigDecimal[] {removed.getUnitCost()}, -1);
+    }
+    
+    @Transactional
+    public void deleteServiceLine(Long lineId) {
+        WorkOrderRepository.RemovedLine removed = serviceLineRepository.deleteReturningTotal(lineId)
+                .orElseThrow(() -> new RuntimeException("Service line not found"));
+        applyTotalDelta(removed.getWorkOrderId(), negate(removed.getLineTotal()));
+    }
+    
+    // Repair tool: totals are normally kept by line deltas, this re-sums the lines
+    @Transactional
+    public void recalculateWorkOrderTotal(Long workOrderId) {
+        if (workOrderRepository.lockForRecompute(List.of(workOrderId)) == 0) {
+            throw new RuntimeException("Work order not found");
+        }
+        workOrderRepository.recomputeTotals(List.of(workOrderId));
+        eventPublisher.publishEvent(new DashboardDataChangedEvent(WorkOrder.class.getSimpleName()));
+    }
+    
+    @Scheduled(cron = "${garage.work-orders.total-verification.cron:0 45 3 * * *}")
+    public void scheduledVerification() {
+        transactionTemplate.executeWithoutResult(status -> verifyTotals(scheduledRepair));
+    }
+    
+    @Transactional
+    public TotalVerification verifyTotals(boolean repair) {
+        TotalVerification verification = new TotalVerification();
+        verification.checkedAt = LocalDateTime.now();
+        verification.repair = repair;
+        
+        List<WorkOrderRepository.TotalDrift> drift = workOrderRepository.findTotalDrift();
+        verification.driftedWorkOrders = drift.size();
+        verification.drifts = drift.stream()
+                .limit(MAX_REPORTED_DRIFTS)
+                .map(d -> new TotalDriftEntry(d.getWorkOrderId(), d.getTotalAmount(), d.getLineTotal()))
+                .collect(Collectors.toList());
         
-        workOrder.setTotalAmount(productTotal.add(serviceTotal));
-        workOrderRepository.save(workOrder);
+        if (repair && !drift.isEmpty()) {
+            List<Long> ids = new ArrayList<>(drift.size());
+            drift.forEach(d -> ids.add(d.getWorkOrderId()));
+            workOrderRepository.lockForRecompute(ids);
+            verification.repairedWorkOrders = workOrderRepository.recomputeTotals(ids);
+            eventPublisher.publishEvent(new DashboardDataChangedEvent(WorkOrder.class.getSimpleName()));
+        }
+        lastVerification = verification;
+        return verification;
+    }
+    
+    public TotalVerification getLastVerification() {
+        return lastVerification;
+    }
+    
+    private BigDecimal applyTotalDelta(Long workOrderId, BigDecimal delta) {
+        WorkOrderRepository.WorkOrderTotal total = workOrderRepository.adjustTotalAmount(workOrderId, delta)
+                .orElseThrow(() -> new RuntimeException("Work order not found"));
+        eventPublisher.publishEvent(new WorkOrderChangedEvent(total.getWorkOrderId(),
+                total.getStatus() != null ? WorkOrderStatus.valueOf(total.getStatus()) : null,
+                total.getDate(), total.getTotalAmount(), false));
+        eventPublisher.publishEvent(new DashboardDataChangedEvent(WorkOrder.class.getSimpleName()));
+        return total.getTotalAmount();
+    }
+    
+    static boolean countsTowardMargins(WorkOrderStatus status) {
+        return status != null && status != WorkOrderStatus.DRAFT && status != WorkOrderStatus.CANCELLED;
+    }
+    
+    // One buying price query for the whole batch, joined in line order
+    private BigDecimal[] unitCosts(List<LineInput> lines) {
+        Map<Long, BigDecimal> costs = new HashMap<>();
+        for (ProductRepository.ItemPrice cost : buyingPriceHistoryRepository.findUnitCosts(
+                lines.stream().map(line -> line.itemId).collect(Collectors.toSet()), LocalDate.now())) {
+            costs.put(cost.getId(), cost.getPrice());
+        }
+        return lines.stream()
+                .map(line -> costs.get(line.itemId))
+                .toArray(BigDecimal[]::new);
+    }
+
+    
+    static BigDecimal normalizeDiscount(BigDecimal discountPercent) {
+        return discountPercent != null && discountPercent.compareTo(BigDecimal.ZERO) > 0
+                ? discountPercent : BigDecimal.ZERO;
+    }
+    
+    static BigDecimal applyDiscount(BigDecimal price, BigDecimal discountPercent) {
+        if (discountPercent.compareTo(BigDecimal.ZERO) == 0) {
+            return price;
+        }
+        BigDecimal discountFactor = BigDecimal.ONE.subtract(
+                discountPercent.divide(new BigDecimal("100"), 4, RoundingMode.HALF_UP));
+        return price.multiply(discountFactor).setScale(2, RoundingMode.HALF_UP);
+    }
+    
+    static BigDecimal lineTotal(BigDecimal finalUnitPrice, Integer quantity) {
+        return finalUnitPrice.multiply(new BigDecimal(quantity)).setScale(2, RoundingMode.HALF_UP);
+    }
+    
+    private static void validate(LineInput input) {
+        if (input == null || input.itemId == null) {
+            throw new IllegalArgumentException("Every line needs an item id");
+        }
+        if (input.quantity == null || input.quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+    }
+    
+    private static Long[] unpricedIds(List<LineInput> lines) {
+        return lines.stream()
+                .filter(line -> line.unitPrice == null)
+                .map(line -> line.itemId)
+                .toArray(Long[]::new);
+    }
+    
+    private static PricedLines priceLines(List<LineInput> lines, Map<Long, BigDecimal> prices, String itemName) {
+        PricedLines priced = new PricedLines();
+        for (LineInput line : lines) {
+            BigDecimal price = line.unitPrice != null ? line.unitPrice : prices.get(line.itemId);
+            if (price == null) {
+                throw new RuntimeException(itemName + " not found: " + line.itemId);
+            }
+            BigDecimal discountPercent = normalizeDiscount(line.discountPercent);
+            BigDecimal finalUnitPrice = applyDiscount(price, discountPercent);
+            BigDecimal lineTotal = lineTotal(finalUnitPrice, line.quantity);
+            priced.add(line.itemId, line.quantity, price, discountPercent, finalUnitPrice, lineTotal);
+        }
+        return priced;
+    }
+    
+    private BigDecimal negate(BigDecimal amount) {
+        return amount != null ? amount.negate() : BigDecimal.ZERO;
     }
     
     public WorkOrderTotals getWorkOrderTotals(Long workOrderId) {
@@ -182,4 +407,100 @@ public class WorkOrderService {
             this.grandTotal = grandTotal;
         }
     }
+    
+    public static class LineInput {
+        public Long itemId;
+        public Integer quantity;
+        public BigDecimal discountPercent;
+        // Standard price already resolved by the caller; null means look up the current one
+        public BigDecimal unitPrice;
+        
+        public LineInput(Long itemId, Integer quantity, BigDecimal discountPercent) {
+            this.itemId = itemId;
+            this.quantity = quantity;
+            this.discountPercent = discountPercent;
+        }
+        
+        public LineInput(Long itemId, Integer quantity, BigDecimal discountPercent, BigDecimal unitPrice) {
+            this(itemId, quantity, discountPercent);
+            this.unitPrice = unitPrice;
+        }
+    }
+    
+    public static class BulkLinesResult {
+        public Long workOrderId;
+        public BigDecimal totalAmount;
+        public List<Long> productLineIds;
+        public List<Long> serviceLineIds;
+    }
+    
+    // Column values collected in line order, bound as arrays by the unnest-based inserts
+    private static class PricedLines {
+        private final List<Long> itemIds = new ArrayList<>();
+        private final List<Integer> quantities = new ArrayList<>();
+        private final List<BigDecimal> unitPrices = new ArrayList<>();
+        private final List<BigDecimal> discountPercents = new ArrayList<>();
+        private final List<BigDecimal> finalUnitPrices = new ArrayList<>();
+        private final List<BigDecimal> lineTotals = new ArrayList<>();
+        private BigDecimal total = BigDecimal.ZERO;
+        
+        private void add(Long itemId, Integer quantity, BigDecimal unitPrice, BigDecimal discountPercent,
+                         BigDecimal finalUnitPrice, BigDecimal lineTotal) {
+            itemIds.add(itemId);
+            quantities.add(quantity);
+            unitPrices.add(unitPrice);
+            discountPercents.add(discountPercent);
+            finalUnitPrices.add(finalUnitPrice);
+            lineTotals.add(lineTotal);
+            total = total.add(lineTotal);
+        }
+        
+        private boolean isEmpty() {
+            return itemIds.isEmpty();
+        }
+        
+        private Long[] itemIds() {
+            return itemIds.toArray(new Long[0]);
+        }
+        
+        private Integer[] quantities() {
+            return quantities.toArray(new Integer[0]);
+        }
+        
+        private BigDecimal[] unitPrices() {
+            return unitPrices.toArray(new BigDecimal[0]);
+        }
+        
+        private BigDecimal[] discountPercents() {
+            return discountPercents.toArray(new BigDecimal[0]);
+        }
+        
+        private BigDecimal[] finalUnitPrices() {
+            return finalUnitPrices.toArray(new BigDecimal[0]);
+        }
+        
+        private BigDecimal[] lineTotals() {
+            return lineTotals.toArray(new BigDecimal[0]);
+        }
+    }
+    
+    public static class TotalVerification {
+        public LocalDateTime checkedAt;
+        public boolean repair;
+        public int driftedWorkOrders;
+        public int repairedWorkOrders;
+        public List<TotalDriftEntry> drifts;
+    }
+    
+    public static class TotalDriftEntry {
+        public Long workOrderId;
+        public BigDecimal totalAmount;
+        public BigDecimal lineTotal;
+        
+        public TotalDriftEntry(Long workOrderId, BigDecimal totalAmount, BigDecimal lineTotal) {
+            this.workOrderId = workOrderId;
+            this.totalAmount = totalAmount;
+            this.lineTotal = lineTotal;
+        }
+    }
 }
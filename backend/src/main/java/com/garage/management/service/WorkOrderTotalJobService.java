@@ -0,0 +1,251 @@
+package com.garage.management.service;
+
+import com.garage.management.entity.WorkOrder;
+import com.garage.management.entity.WorkOrderTotalJob;
+import com.garage.management.event.DashboardDataChangedEvent;
+import com.garage.management.repository.WorkOrderRepository;
+import com.garage.management.repository.WorkOrderTotalJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class WorkOrderTotalJobService {
+
+    private static final String RUNNING = "RUNNING";
+    private static final String COMPLETED = "COMPLETED";
+    private static final String FAILED = "FAILED";
+
+    private final WorkOrderRepository workOrderRepository;
+    private final WorkOrderTotalJobRepository jobRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService coordinator;
+    private final ExecutorService workers;
+    private final int chunkSize;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile ActiveRun activeRun;
+
+    public WorkOrderTotalJobService(WorkOrderRepository workOrderRepository,
+                                    WorkOrderTotalJobRepository jobRepository,
+                                    ApplicationEventPublisher eventPublisher,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${garage.work-orders.recalculation.threads:4}") int threads,
+                                    @Value("${garage.work-orders.recalculation.chunk-size:5000}") int chunkSize) {
+        this.workOrderRepository = workOrderRepository;
+        this.jobRepository = jobRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.coordinator = Executors.newSingleThreadExecutor(daemonThreads("work-order-totals"));
+        this.workers = Executors.newFixedThreadPool(threads, daemonThreads("work-order-totals-worker"));
+        this.chunkSize = chunkSize;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    // Jobs still marked running were cut short by a shutdown; the latest one picks up
+    // from its checkpoints, older ones are abandoned
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        List<WorkOrderTotalJob> interrupted = jobRepository.findByStatusOrderById(RUNNING);
+        for (int i = 0; i < interrupted.size() - 1; i++) {
+            finish(interrupted.get(i).getId(), FAILED, "Superseded by a later job", null);
+        }
+        if (!interrupted.isEmpty() && running.compareAndSet(false, true)) {
+            submit(interrupted.get(interrupted.size() - 1));
+        }
+    }
+
+    // Returns empty when a job is already in progress
+    public Optional<JobStatus> start() {
+        if (!running.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        try {
+            WorkOrderTotalJob job = new WorkOrderTotalJob();
+            job.setStatus(RUNNING);
+            job.setMinId(workOrderRepository.findMinId());
+            job.setMaxId(workOrderRepository.findMaxId());
+            job.setChunkSize(chunkSize);
+            job.setTotalWorkOrders(workOrderRepository.count());
+            job.setChunksTotal(job.getMinId() == null ? 0
+                    : (int) ((job.getMaxId() - job.getMinId()) / chunkSize + 1));
+            job.setStartedAt(LocalDateTime.now());
+            job.setUpdatedAt(job.getStartedAt());
+            job = jobRepository.save(job);
+            submit(job);
+            return Optional.of(toStatus(job));
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    public Optional<JobStatus> getStatus(Long jobId) {
+        return jobRepository.findById(jobId).map(this::toStatus);
+    }
+
+    public Optional<JobStatus> getActiveStatus() {
+        ActiveRun run = activeRun;
+        return run != null ? getStatus(run.jobId) : Optional.empty();
+    }
+
+    private void submit(WorkOrderTotalJob job) {
+        ActiveRun run = new ActiveRun(job.getId());
+        activeRun = run;
+        coordinator.submit(() -> {
+            try {
+                process(job, run);
+                finish(job.getId(), COMPLETED, null, run.throughput());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                // A shutdown interrupts the chunks in flight; the job stays RUNNING so the
+                // next startup resumes it from its checkpoints
+                if (!coordinator.isShutdown()) {
+                    String error = e instanceof ExecutionException && e.getCause() != null
+                            ? e.getCause().getMessage() : e.getMessage();
+                    finish(job.getId(), FAILED, error, run.throughput());
+                }
+            } finally {
+                activeRun = null;
+                running.set(false);
+            }
+        });
+    }
+
+    private void process(WorkOrderTotalJob job, ActiveRun run) throws InterruptedException, ExecutionException {
+        if (job.getMinId() == null) {
+            return;
+        }
+
+        Set<Long> done = new HashSet<>(jobRepository.findCompletedChunks(job.getId()));
+        long size = job.getChunkSize();
+        List<Future<?>> chunks = new ArrayList<>();
+        for (long from = job.getMinId(); from <= job.getMaxId(); from += size) {
+            if (done.contains(from)) {
+                continue;
+            }
+            long rangeFrom = from;
+            long rangeTo = Math.min(from + size - 1, job.getMaxId());
+            chunks.add(workers.submit(() -> processChunk(job.getId(), rangeFrom, rangeTo, run)));
+        }
+
+        try {
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            chunks.forEach(chunk -> chunk.cancel(true));
+            throw e;
+        }
+    }
+
+    private void processChunk(Long jobId, long rangeFrom, long rangeTo, ActiveRun run) {
+        transactionTemplate.executeWithoutResult(status -> {
+            int workOrders = (int) workOrderRepository.lockRange(rangeFrom, rangeTo);
+            int corrected = workOrderRepository.recomputeTotalsInRange(rangeFrom, rangeTo);
+            if (corrected > 0) {
+                eventPublisher.publishEvent(new DashboardDataChangedEvent(WorkOrder.class.getSimpleName()));
+            }
+            if (jobRepository.recordChunk(jobId, rangeFrom, rangeTo, workOrders, corrected) == 1) {
+                jobRepository.addProgress(jobId, workOrders, corrected);
+            }
+            run.processed.addAndGet(workOrders);
+        });
+    }
+
+    private void finish(Long jobId, String status, String error, BigDecimal throughput) {
+        transactionTemplate.executeWithoutResult(tx -> jobRepository.finish(jobId, status, error, throughput));
+    }
+
+    private JobStatus toStatus(WorkOrderTotalJob job) {
+        JobStatus status = new JobStatus();
+        status.jobId = job.getId();
+        status.status = job.getStatus();
+        status.totalWorkOrders = job.getTotalWorkOrders();
+        status.processedWorkOrders = job.getProcessedWorkOrders();
+        status.correctedWorkOrders = job.getCorrectedWorkOrders();
+        status.chunksTotal = job.getChunksTotal();
+        status.chunksDone = job.getChunksDone();
+        status.startedAt = job.getStartedAt();
+        status.finishedAt = job.getFinishedAt();
+        status.error = job.getError();
+
+        ActiveRun run = activeRun;
+        status.workOrdersPerSecond = run != null && run.jobId.equals(job.getId())
+                ? run.throughput() : job.getWorkOrdersPerSecond();
+        return status;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Throughput covers the current run only, so a resumed job is not credited with
+    // the time it spent down
+    private static class ActiveRun {
+        private final Long jobId;
+        private final long startedAt = System.nanoTime();
+        private final AtomicLong processed = new AtomicLong();
+
+        private ActiveRun(Long jobId) {
+            this.jobId = jobId;
+        }
+
+        private BigDecimal throughput() {
+            long elapsedNanos = System.nanoTime() - startedAt;
+            if (elapsedNanos <= 0) {
+                return BigDecimal.ZERO;
+            }
+            return BigDecimal.valueOf(processed.get() * 1_000_000_000.0 / elapsedNanos)
+                    .setScale(2, RoundingMode.HALF_UP);
+        }
+    }
+
+    public static class JobStatus {
+        public Long jobId;
+        public String status;
+        public long totalWorkOrders;
+        public long processedWorkOrders;
+        public long correctedWorkOrders;
+        public int chunksTotal;
+        public int chunksDone;
+        public BigDecimal workOrdersPerSecond;
+        public LocalDateTime startedAt;
+        public LocalDateTime finishedAt;
+        public String error;
+    }
+}
@@ -0,0 +1,46 @@
+-- =============================================================================
+-- Garage Management System - Daily Financial Rollups
+-- Flyway Migration V10
+-- One row per day with invoiced revenue, payments received and expenses, kept
+-- current by the invoice, payment and expense write paths and a nightly
+-- catch-up. Time-series charts read only these rows.
+-- =============================================================================
+
+CREATE TABLE daily_financial_rollups (
+    day DATE PRIMARY KEY,
+    invoiced_amount NUMERIC(14, 2) NOT NULL,
+    invoice_count INTEGER NOT NULL,
+    payments_amount NUMERIC(14, 2) NOT NULL,
+    payment_count INTEGER NOT NULL,
+    expenses_amount NUMERIC(14, 2) NOT NULL,
+    expense_count INTEGER NOT NULL,
+    updated_at TIMESTAMP
+);
+
+-- Single row: rows changed after last_run_started_at have not been seen by the catch-up job
+CREATE TABLE financial_rollup_state (
+    id INTEGER PRIMARY KEY CHECK (id = 1),
+    last_run_started_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP
+);
+
+CREATE INDEX idx_invoices_date ON invoices(date);
+CREATE INDEX idx_payments_date ON payments(date);
+
+INSERT INTO financial_rollup_state (id, last_run_started_at, updated_at)
+VALUES (1, LOCALTIMESTAMP, NOW());
+
+INSERT INTO daily_financial_rollups
+    (day, invoiced_amount, invoice_count, payments_amount, payment_count, expenses_amount, expense_count, updated_at)
+SELECT t.day, SUM(t.invoiced_amount), SUM(t.invoice_count), SUM(t.payments_amount), SUM(t.payment_count),
+       SUM(t.expenses_amount), SUM(t.expense_count), NOW()
+FROM (
+    SELECT date AS day, COALESCE(total_amount, 0) AS invoiced_amount, 1 AS invoice_count,
+           0 AS payments_amount, 0 AS payment_count, 0 AS expenses_amount, 0 AS expense_count
+    FROM invoices WHERE status NOT IN ('DRAFT', 'CANCELLED')
+    UNION ALL
+    SELECT date, 0, 0, total_amount, 1, 0, 0 FROM payments
+    UNION ALL
+    SELECT date, 0, 0, 0, 0, amount, 1 FROM expenses
+) t
+GROUP BY t.day;
@@ -0,0 +1,37 @@
+-- =============================================================================
+-- Garage Management System - Work Order Total Recalculation Jobs
+-- Flyway Migration V11
+-- Full recalculation of work order totals runs as a background job over id
+-- ranges. Every finished range is checkpointed, so a job interrupted by a
+-- restart resumes with the ranges it has not done yet.
+-- =============================================================================
+
+CREATE TABLE work_order_total_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    status VARCHAR(20) NOT NULL,
+    min_id BIGINT,
+    max_id BIGINT,
+    chunk_size INTEGER NOT NULL,
+    chunks_total INTEGER NOT NULL DEFAULT 0,
+    chunks_done INTEGER NOT NULL DEFAULT 0,
+    total_work_orders BIGINT NOT NULL DEFAULT 0,
+    processed_work_orders BIGINT NOT NULL DEFAULT 0,
+    corrected_work_orders BIGINT NOT NULL DEFAULT 0,
+    work_orders_per_second NUMERIC(12, 2),
+    error TEXT,
+    started_at TIMESTAMP NOT NULL,
+    finished_at TIMESTAMP,
+    updated_at TIMESTAMP
+);
+
+CREATE INDEX idx_work_order_total_jobs_status ON work_order_total_jobs(status);
+
+CREATE TABLE work_order_total_job_chunks (
+    job_id BIGINT NOT NULL REFERENCES work_order_total_jobs(id) ON DELETE CASCADE,
+    range_from BIGINT NOT NULL,
+    range_to BIGINT NOT NULL,
+    work_orders INTEGER NOT NULL,
+    corrected INTEGER NOT NULL,
+    completed_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (job_id, range_from)
+);
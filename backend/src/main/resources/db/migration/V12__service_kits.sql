@@ -0,0 +1,32 @@
+-- =============================================================================
+-- Garage Management System - Service Kits
+-- Flyway Migration V12
+-- A kit bundles services and products with default quantities and discounts
+-- (oil change, brake service, ...) and is applied to a work order in one go.
+-- =============================================================================
+
+CREATE TABLE service_kits (
+    id SERIAL PRIMARY KEY,
+    code VARCHAR(255) NOT NULL UNIQUE,
+    name VARCHAR(255) NOT NULL,
+    description VARCHAR(255),
+    active BOOLEAN DEFAULT TRUE,
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP
+);
+
+CREATE TABLE service_kit_items (
+    id SERIAL PRIMARY KEY,
+    kit_id INTEGER NOT NULL,
+    product_id INTEGER,
+    service_id INTEGER,
+    quantity INTEGER NOT NULL DEFAULT 1,
+    discount_percent DECIMAL(5, 2) DEFAULT 0,
+    CONSTRAINT fk_service_kit_items_kit FOREIGN KEY (kit_id) REFERENCES service_kits(id) ON DELETE CASCADE,
+    CONSTRAINT fk_service_kit_items_product FOREIGN KEY (product_id) REFERENCES products(id),
+    CONSTRAINT fk_service_kit_items_service FOREIGN KEY (service_id) REFERENCES services(id),
+    CONSTRAINT chk_service_kit_items_one_item CHECK ((product_id IS NULL) <> (service_id IS NULL)),
+    CONSTRAINT chk_service_kit_items_quantity CHECK (quantity > 0)
+);
+
+CREATE INDEX idx_service_kit_items_kit ON service_kit_items(kit_id);
@@ -0,0 +1,48 @@
+-- =============================================================================
+-- Garage Management System - Product Line Margins
+-- Flyway Migration V13
+-- Each product line carries the buying price in effect when it was created, and
+-- revenue and cost are kept per product and month by the line and work order
+-- write paths. Margin reports read these rows instead of the price histories.
+-- =============================================================================
+
+ALTER TABLE work_order_product_lines ADD COLUMN unit_cost DECIMAL(10, 2);
+
+-- Existing lines are costed at their work order's date, or at the product's buying
+-- price when no history covers it
+UPDATE work_order_product_lines l
+SET unit_cost = COALESCE(
+    (SELECT h.price FROM product_buying_price_history h
+     WHERE h.product_id = l.product_id AND h.start_date <= w.date
+       AND (h.end_date IS NULL OR h.end_date >= w.date)
+     ORDER BY h.start_date DESC LIMIT 1),
+    p.buying_price)
+FROM work_orders w, products p
+WHERE w.id = l.work_order_id AND p.id = l.product_id;
+
+CREATE INDEX idx_work_order_product_lines_product ON work_order_product_lines(product_id);
+
+-- Lines of DRAFT and CANCELLED work orders are not counted; uncosted_line_count tracks
+-- lines whose product had no buying price, which are counted at zero cost
+CREATE TABLE product_margin_monthly (
+    product_id INTEGER NOT NULL REFERENCES products(id) ON DELETE CASCADE,
+    month DATE NOT NULL,
+    quantity INTEGER NOT NULL,
+    revenue NUMERIC(14, 2) NOT NULL,
+    cost NUMERIC(14, 2) NOT NULL,
+    line_count INTEGER NOT NULL,
+    uncosted_line_count INTEGER NOT NULL,
+    updated_at TIMESTAMP,
+    PRIMARY KEY (product_id, month)
+);
+
+CREATE INDEX idx_product_margin_monthly_month ON product_margin_monthly(month);
+
+INSERT INTO product_margin_monthly
+    (product_id, month, quantity, revenue, cost, line_count, uncosted_line_count, updated_at)
+SELECT l.product_id, CAST(date_trunc('month', w.date) AS DATE), SUM(l.quantity), SUM(COALESCE(l.line_total, 0)),
+       SUM(COALESCE(l.unit_cost * l.quantity, 0)), COUNT(*), COUNT(*) FILTER (WHERE l.unit_cost IS NULL), NOW()
+FROM work_order_product_lines l
+JOIN work_orders w ON w.id = l.work_order_id
+WHERE COALESCE(w.status, 'DRAFT') NOT IN ('DRAFT', 'CANCELLED')
+GROUP BY l.product_id, CAST(date_trunc('month', w.date) AS DATE);
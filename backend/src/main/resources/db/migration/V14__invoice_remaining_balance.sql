@@ -0,0 +1,11 @@
+-- =============================================================================
+-- Garage Management System - Maintained Invoice Balance
+-- Flyway Migration V14
+-- invoices.remaining_balance becomes the source of truth for what is still owed,
+-- moved by every allocation write. Existing rows are brought in line with their
+-- allocations once here.
+-- =============================================================================
+
+UPDATE invoices i
+SET remaining_balance = COALESCE(i.total_amount, 0)
+    - COALESCE((SELECT SUM(a.allocated_amount) FROM payment_allocations a WHERE a.invoice_id = i.id), 0);
@@ -0,0 +1,10 @@
+-- =============================================================================
+-- Garage Management System - Stock Movement Ids In Creation Order
+-- Flyway Migration V15
+-- Snapshot compaction folds movements up to a horizon id and the stock tail
+-- counts ids above it, so ids must be handed out one at a time in the order
+-- movements are created. Blocks of 50 let a later insert take an id below a
+-- horizon that was already folded.
+-- =============================================================================
+
+ALTER SEQUENCE stock_movements_id_seq INCREMENT BY 1;
@@ -0,0 +1,19 @@
+-- =============================================================================
+-- Garage Management System - Stock Snapshots
+-- Flyway Migration V2
+-- Per-product stock folded up to a movement id: current stock is the snapshot
+-- quantity plus the movements recorded after it.
+-- =============================================================================
+
+CREATE TABLE stock_snapshots (
+    id SERIAL PRIMARY KEY,
+    product_id INTEGER NOT NULL UNIQUE,
+    as_of_movement_id INTEGER NOT NULL,
+    as_of_date TIMESTAMP NOT NULL,
+    quantity INTEGER NOT NULL,
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP,
+    CONSTRAINT fk_stock_snapshots_product FOREIGN KEY (product_id) REFERENCES products(id)
+);
+
+CREATE INDEX idx_stock_movements_product_id_id ON stock_movements(product_id, id);
@@ -0,0 +1,11 @@
+-- =============================================================================
+-- Garage Management System - Stock Movement Id Sequence
+-- Flyway Migration V3
+-- Stock movement ids are allocated in blocks of 50 (Hibernate pooled optimizer)
+-- so movement inserts can be sent as JDBC batches.
+-- =============================================================================
+
+ALTER TABLE stock_movements ALTER COLUMN id TYPE BIGINT;
+ALTER TABLE stock_snapshots ALTER COLUMN as_of_movement_id TYPE BIGINT;
+
+ALTER SEQUENCE stock_movements_id_seq AS BIGINT INCREMENT BY 50;
@@ -0,0 +1,13 @@
+-- =============================================================================
+-- Garage Management System - Dirty Product Stock Set
+-- Flyway Migration V4
+-- Every stock movement write marks its product here; the stock recompute job
+-- only re-derives current_stock for marked products and then clears the mark.
+-- =============================================================================
+
+CREATE TABLE stock_dirty_products (
+    product_id INTEGER PRIMARY KEY REFERENCES products(id) ON DELETE CASCADE,
+    marked_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_stock_dirty_products_marked_at ON stock_dirty_products(marked_at);
@@ -0,0 +1,138 @@
+-- =============================================================================
+-- Garage Management System - Partitioned Stock Movements and Archive
+-- Flyway Migration V5
+-- stock_movements becomes a monthly range-partitioned table on date. Movements
+-- that are folded into a snapshot and older than the retention period are moved
+-- into stock_movements_archive as one compressed row per product and month.
+-- =============================================================================
+
+-- -----------------------------------------------------------------------------
+-- PARTITIONED STOCK MOVEMENTS
+-- -----------------------------------------------------------------------------
+
+ALTER TABLE stock_movements RENAME TO stock_movements_legacy;
+ALTER SEQUENCE stock_movements_id_seq OWNED BY NONE;
+
+CREATE TABLE stock_movements (
+    id BIGINT NOT NULL DEFAULT nextval('stock_movements_id_seq'),
+    product_id INTEGER NOT NULL,
+    date TIMESTAMP NOT NULL,
+    quantity_delta INTEGER NOT NULL,
+    type VARCHAR(50) NOT NULL,
+    reason VARCHAR(255),
+    source_type VARCHAR(255),
+    source_id INTEGER,
+    created_at TIMESTAMP
+) PARTITION BY RANGE (date);
+
+CREATE TABLE stock_movements_default PARTITION OF stock_movements DEFAULT;
+
+-- Creates the missing monthly partitions between the two months. Rows that already
+-- landed in the default partition for a new month are moved into it first.
+CREATE OR REPLACE FUNCTION ensure_stock_movement_partitions(from_month DATE, to_month DATE)
+RETURNS INTEGER AS $$
+DECLARE
+    month_start DATE := date_trunc('month', from_month)::date;
+    month_end DATE;
+    partition_name TEXT;
+    created INTEGER := 0;
+BEGIN
+    WHILE month_start <= to_month LOOP
+        month_end := (month_start + INTERVAL '1 month')::date;
+        partition_name := 'stock_movements_p' || to_char(month_start, 'YYYY_MM');
+
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I (LIKE stock_movements INCLUDING DEFAULTS)', partition_name);
+            EXECUTE format('WITH moved AS (DELETE FROM stock_movements_default WHERE date >= %L AND date < %L RETURNING *) '
+                           'INSERT INTO %I SELECT * FROM moved', month_start, month_end, partition_name);
+            EXECUTE format('ALTER TABLE stock_movements ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                           partition_name, month_start, month_end);
+            created := created + 1;
+        END IF;
+
+        month_start := month_end;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION drop_empty_stock_movement_partition(month_start DATE)
+RETURNS BOOLEAN AS $$
+DECLARE
+    partition_name TEXT := 'stock_movements_p' || to_char(month_start, 'YYYY_MM');
+    has_rows BOOLEAN;
+BEGIN
+    IF to_regclass(partition_name) IS NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    EXECUTE format('SELECT EXISTS (SELECT 1 FROM %I)', partition_name) INTO has_rows;
+    IF has_rows THEN
+        RETURN FALSE;
+    END IF;
+
+    EXECUTE format('DROP TABLE %I', partition_name);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT ensure_stock_movement_partitions(
+    COALESCE((SELECT MIN(date) FROM stock_movements_legacy), LOCALTIMESTAMP)::date,
+    (date_trunc('month', LOCALTIMESTAMP) + INTERVAL '3 months')::date);
+
+INSERT INTO stock_movements (id, product_id, date, quantity_delta, type, reason, source_type, source_id, created_at)
+SELECT id, product_id, date, quantity_delta, type, reason, source_type, source_id, created_at
+FROM stock_movements_legacy;
+
+DROP TABLE stock_movements_legacy;
+ALTER SEQUENCE stock_movements_id_seq OWNED BY stock_movements.id;
+
+ALTER TABLE stock_movements ADD CONSTRAINT stock_movements_pkey PRIMARY KEY (id, date);
+ALTER TABLE stock_movements ADD CONSTRAINT fk_stock_movements_product
+    FOREIGN KEY (product_id) REFERENCES products(id);
+
+CREATE INDEX idx_stock_movements_product ON stock_movements(product_id);
+CREATE INDEX idx_stock_movements_date ON stock_movements(date);
+CREATE INDEX idx_stock_movements_product_id_id ON stock_movements(product_id, id);
+
+-- -----------------------------------------------------------------------------
+-- LEDGER BOUNDS
+-- -----------------------------------------------------------------------------
+
+-- Single row: every movement with an id above horizon_movement_id is outside the
+-- snapshots, and none of them is dated before tail_from_date. Stock queries use
+-- tail_from_date to prune partitions that can only hold folded movements.
+CREATE TABLE stock_ledger_bounds (
+    id INTEGER PRIMARY KEY CHECK (id = 1),
+    horizon_movement_id BIGINT NOT NULL,
+    tail_from_date TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP
+);
+
+INSERT INTO stock_ledger_bounds (id, horizon_movement_id, tail_from_date, updated_at)
+SELECT 1, h.horizon_movement_id,
+       COALESCE((SELECT MIN(m.date) FROM stock_movements m WHERE m.id > h.horizon_movement_id), LOCALTIMESTAMP),
+       NOW()
+FROM (SELECT COALESCE(MAX(as_of_movement_id), 0) AS horizon_movement_id FROM stock_snapshots) h;
+
+-- -----------------------------------------------------------------------------
+-- ARCHIVE
+-- -----------------------------------------------------------------------------
+
+CREATE TABLE stock_movements_archive (
+    id SERIAL PRIMARY KEY,
+    product_id INTEGER NOT NULL,
+    movement_month DATE NOT NULL,
+    movement_count INTEGER NOT NULL,
+    quantity_total BIGINT NOT NULL,
+    first_movement_id BIGINT NOT NULL,
+    last_movement_id BIGINT NOT NULL,
+    movements JSONB NOT NULL,
+    archived_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_stock_movements_archive_product FOREIGN KEY (product_id) REFERENCES products(id)
+);
+
+-- Push every archived movement list through TOAST compression, not only the large ones
+ALTER TABLE stock_movements_archive SET (toast_tuple_target = 128);
+
+CREATE INDEX idx_stock_movements_archive_product_month ON stock_movements_archive(product_id, movement_month);
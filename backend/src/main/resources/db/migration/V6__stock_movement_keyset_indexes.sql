@@ -0,0 +1,12 @@
+-- =============================================================================
+-- Garage Management System - Stock Movement Keyset Indexes
+-- Flyway Migration V6
+-- Movement listings page on (date, id), optionally per product; these indexes
+-- serve both orderings and replace the single-column date and product indexes.
+-- =============================================================================
+
+CREATE INDEX idx_stock_movements_date_id ON stock_movements(date, id);
+CREATE INDEX idx_stock_movements_product_date_id ON stock_movements(product_id, date, id);
+
+DROP INDEX idx_stock_movements_date;
+DROP INDEX idx_stock_movements_product;
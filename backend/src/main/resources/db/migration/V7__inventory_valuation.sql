@@ -0,0 +1,37 @@
+-- =============================================================================
+-- Garage Management System - Inventory Valuation
+-- Flyway Migration V7
+-- Running weighted-average cost per product and FIFO cost layers, both kept
+-- up to date by every stock movement write. Seeded from the current stock at
+-- the product's buying price.
+-- =============================================================================
+
+CREATE TABLE product_valuations (
+    product_id INTEGER PRIMARY KEY,
+    quantity INTEGER NOT NULL,
+    average_cost NUMERIC(14, 4) NOT NULL,
+    fifo_value NUMERIC(16, 4) NOT NULL,
+    updated_at TIMESTAMP,
+    CONSTRAINT fk_product_valuations_product FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE
+);
+
+CREATE TABLE fifo_cost_layers (
+    id BIGSERIAL PRIMARY KEY,
+    product_id INTEGER NOT NULL,
+    quantity_remaining INTEGER NOT NULL,
+    unit_cost NUMERIC(14, 4) NOT NULL,
+    received_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_fifo_cost_layers_product FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_fifo_cost_layers_open ON fifo_cost_layers(product_id, id) WHERE quantity_remaining > 0;
+
+INSERT INTO fifo_cost_layers (product_id, quantity_remaining, unit_cost, received_at)
+SELECT id, current_stock, COALESCE(buying_price, 0), NOW()
+FROM products
+WHERE current_stock > 0;
+
+INSERT INTO product_valuations (product_id, quantity, average_cost, fifo_value, updated_at)
+SELECT id, COALESCE(current_stock, 0), COALESCE(buying_price, 0),
+       GREATEST(COALESCE(current_stock, 0), 0) * COALESCE(buying_price, 0), NOW()
+FROM products;
@@ -0,0 +1,42 @@
+-- =============================================================================
+-- Garage Management System - Consumption Velocity
+-- Flyway Migration V8
+-- Daily consumption per product (negative stock movements plus completed work
+-- order lines) is rolled up once per day; rolling 7/30/90 day totals are
+-- derived from those buckets and drive the reorder suggestions.
+-- =============================================================================
+
+CREATE TABLE product_consumption_daily (
+    product_id INTEGER NOT NULL REFERENCES products(id) ON DELETE CASCADE,
+    day DATE NOT NULL,
+    movement_quantity INTEGER NOT NULL,
+    work_order_quantity INTEGER NOT NULL,
+    PRIMARY KEY (product_id, day)
+);
+
+CREATE INDEX idx_product_consumption_daily_day ON product_consumption_daily(day);
+
+CREATE TABLE product_consumption_velocity (
+    product_id INTEGER PRIMARY KEY REFERENCES products(id) ON DELETE CASCADE,
+    consumed_7d INTEGER NOT NULL,
+    consumed_30d INTEGER NOT NULL,
+    consumed_90d INTEGER NOT NULL,
+    daily_velocity NUMERIC(12, 4) NOT NULL,
+    as_of_day DATE NOT NULL,
+    updated_at TIMESTAMP
+);
+
+-- Single row: every day up to and including rolled_through has its buckets, and work
+-- orders changed after last_run_started_at have not been looked at yet. The first run
+-- backfills the 90 day window.
+CREATE TABLE consumption_rollup_state (
+    id INTEGER PRIMARY KEY CHECK (id = 1),
+    rolled_through DATE NOT NULL,
+    last_run_started_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP
+);
+
+INSERT INTO consumption_rollup_state (id, rolled_through, last_run_started_at, updated_at)
+VALUES (1, CURRENT_DATE - 91, LOCALTIMESTAMP, NOW());
+
+CREATE INDEX idx_work_orders_date ON work_orders(date);
@@ -0,0 +1,21 @@
+-- =============================================================================
+-- Garage Management System - Dashboard Counters
+-- Flyway Migration V9
+-- Every dashboard figure that is read from the database, as a single row, so the
+-- dashboard needs one round trip instead of one query per figure.
+-- =============================================================================
+
+CREATE VIEW dashboard_counters AS
+SELECT 1 AS id,
+       (SELECT COUNT(*) FROM work_orders WHERE status IN ('OPEN', 'IN_PROGRESS')) AS open_work_orders,
+       (SELECT COALESCE(SUM(remaining_balance), 0) FROM invoices
+        WHERE status NOT IN ('PAID', 'CANCELLED')) AS outstanding_amount,
+       (SELECT COALESCE(SUM(amount), 0) FROM expenses
+        WHERE date >= date_trunc('month', CURRENT_DATE)::date
+          AND date < (date_trunc('month', CURRENT_DATE) + INTERVAL '1 month')::date) AS monthly_expenses,
+       (SELECT COUNT(*) FROM companies WHERE active = TRUE) AS total_companies,
+       (SELECT COUNT(*) FROM clients WHERE active = TRUE) AS total_clients,
+       (SELECT COUNT(*) FROM vehicles) AS total_vehicles,
+       (SELECT COUNT(*) FROM products WHERE active = TRUE) AS total_products,
+       (SELECT COUNT(*) FROM services WHERE active = TRUE) AS total_services,
+       (SELECT COUNT(*) FROM suppliers WHERE active = TRUE) AS total_suppliers;
@@ -0,0 +1,151 @@
+package com.garage.management.service;
+
+import com.garage.management.entity.Product;
+import com.garage.management.entity.StockMovement;
+import com.garage.management.enums.StockMovementType;
+import com.garage.management.repository.ProductRepository;
+import com.garage.management.repository.StockMovementRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The aggregate queries behind the computed-stock endpoints checked against summing the
+// movement entities, before and after movements are folded into snapshots. Each test
+// runs in one transaction that is rolled back, benchmark rows included
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+@EnabledIfEnvironmentVariable(named = "GARAGE_TEST_DB_URL", matches = ".+")
+class ComputedStockTest {
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    @Autowired
+    private StockSnapshotService stockSnapshotService;
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void aggregatesMatchEntityFold() {
+        List<Long> productIds = List.of(createProduct(), createProduct(), createProduct());
+        // Whole seconds, so that dates compared in Java and in PostgreSQL round the same way
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 300; i++) {
+            addMovement(productIds.get(i % 3), random.nextInt(21) - 8, now.minusDays(random.nextInt(90)));
+        }
+        // Movements recorded long enough ago to be folded by the next compaction
+        jdbcTemplate.update("UPDATE stock_movements SET created_at = date WHERE product_id IN (?, ?, ?)",
+                productIds.get(0), productIds.get(1), productIds.get(2));
+        assertMatchesFold(productIds, now);
+
+        stockSnapshotService.compactSnapshots();
+        for (int i = 0; i < 60; i++) {
+            addMovement(productIds.get(i % 3), random.nextInt(21) - 8, now.minusDays(random.nextInt(10)));
+        }
+        assertMatchesFold(productIds, now);
+    }
+
+    // Opt-in with -Dbenchmark=true; inserting a million movements takes a while
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void aggregateIsFasterThanEntityFold() {
+        for (int size : new int[] {1_000, 100_000, 1_000_000}) {
+            Long productId = createProduct();
+            jdbcTemplate.update("INSERT INTO stock_movements (product_id, date, quantity_delta, type, created_at) " +
+                    "SELECT ?, LOCALTIMESTAMP - g * INTERVAL '1 millisecond', 1, 'ADJUSTMENT', LOCALTIMESTAMP " +
+                    "FROM generate_series(1, ?) g", productId, size);
+
+            long foldNanos = bestOf(3, () -> assertEquals(size, fold(productId, null)));
+            long aggregateNanos = bestOf(3, () -> assertEquals(size, stockService.computeCurrentStock(productId)));
+            System.out.printf("computed stock over %,d movements: entity fold %.1f ms, aggregate %.1f ms%n",
+                    size, foldNanos / 1e6, aggregateNanos / 1e6);
+            assertTrue(aggregateNanos < foldNanos);
+        }
+    }
+
+    private static long bestOf(int runs, Runnable run) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long started = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - started);
+        }
+        return best;
+    }
+
+    private void assertMatchesFold(List<Long> productIds, LocalDateTime now) {
+        Map<Long, Integer> bulk = stockService.computeCurrentStocks(productIds);
+        for (Long productId : productIds) {
+            assertEquals(fold(productId, null), stockService.computeCurrentStock(productId));
+            assertEquals(fold(productId, null), bulk.get(productId));
+            // Read from the table: the column is moved in SQL, behind the cached entity
+            assertEquals(productRepository.findStockLevel(productId).orElseThrow().getCurrentStock(), fold(productId, null));
+
+            for (int days = 0; days <= 100; days += 7) {
+                LocalDateTime asOf = now.minusDays(days);
+                assertEquals(fold(productId, asOf), stockService.computeStockAsOf(productId, asOf));
+                assertEquals(fold(productId, asOf), stockService.computeStocksAsOf(productIds, asOf).get(productId));
+            }
+        }
+    }
+
+    // What the endpoints did before: load every movement of the product and sum in Java.
+    // The entities are detached afterwards, or the test transaction would dirty-check them
+    // before every later query
+    private int fold(Long productId, LocalDateTime asOf) {
+        int sum = stockMovementRepository.findByProductId(productId).stream()
+                .filter(movement -> asOf == null || !movement.getDate().isAfter(asOf))
+                .mapToInt(StockMovement::getQuantityDelta)
+                .sum();
+        entityManager.clear();
+        return sum;
+    }
+
+    private Long createProduct() {
+        Product product = new Product();
+        product.setCode("STOCK-" + System.nanoTime());
+        product.setName("Computed stock test");
+        return productRepository.save(product).getId();
+    }
+
+    private void addMovement(Long productId, int quantity, LocalDateTime date) {
+        StockMovement movement = new StockMovement();
+        movement.setProduct(productRepository.getReferenceById(productId));
+        movement.setQuantityDelta(quantity);
+        movement.setType(StockMovementType.ADJUSTMENT);
+        movement.setDate(date);
+        stockMovementService.createMovement(movement);
+    }
+}
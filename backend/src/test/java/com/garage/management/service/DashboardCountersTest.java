@@ -0,0 +1,155 @@
+package com.garage.management.service;
+
+import com.garage.management.entity.Client;
+import com.garage.management.entity.DashboardCounters;
+import com.garage.management.entity.Expense;
+import com.garage.management.entity.Invoice;
+import com.garage.management.entity.Vehicle;
+import com.garage.management.entity.WorkOrder;
+import com.garage.management.enums.InvoiceStatus;
+import com.garage.management.enums.WorkOrderStatus;
+import com.garage.management.repository.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The dashboard_counters view checked against the separate queries getStats() used to run,
+// in a transaction rolled back after each test
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+@EnabledIfEnvironmentVariable(named = "GARAGE_TEST_DB_URL", matches = ".+")
+class DashboardCountersTest {
+
+    @Autowired
+    private DashboardCountersRepository dashboardCountersRepository;
+
+    @Autowired
+    private WorkOrderRepository workOrderRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ServiceRepository serviceRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Test
+    void viewMatchesSeparateQueries() {
+        Client client = new Client();
+        client.setFirstName("Dashboard");
+        client.setLastName("Test");
+        client = clientRepository.save(client);
+
+        Invoice invoice = new Invoice();
+        invoice.setClient(client);
+        invoice.setDate(LocalDate.now());
+        invoice.setStatus(InvoiceStatus.ISSUED);
+        invoice.setTotalAmount(new BigDecimal("120.00"));
+        invoice.setRemainingBalance(new BigDecimal("120.00"));
+        invoiceRepository.save(invoice);
+
+        Vehicle vehicle = new Vehicle();
+        vehicle.setRegistrationNumber("DASH-" + System.nanoTime());
+        vehicle.setCurrentOwner(client);
+        vehicle = vehicleRepository.save(vehicle);
+
+        WorkOrder workOrder = new WorkOrder();
+        workOrder.setClient(client);
+        workOrder.setVehicle(vehicle);
+        workOrder.setDate(LocalDate.now());
+        workOrder.setStatus(WorkOrderStatus.OPEN);
+        workOrderRepository.save(workOrder);
+
+        Expense expense = new Expense();
+        expense.setDate(LocalDate.now());
+        expense.setLabel("Dashboard test");
+        expense.setAmount(new BigDecimal("35.50"));
+        expenseRepository.save(expense);
+
+        DashboardCounters counters = dashboardCountersRepository.findCounters();
+        YearMonth month = YearMonth.now();
+
+        assertEquals(workOrderRepository.countOpenWorkOrders(), counters.getOpenWorkOrders());
+        assertEquals(0, orZero(invoiceRepository.getTotalOutstandingAmount()).compareTo(counters.getOutstandingAmount()));
+        assertEquals(0, orZero(expenseRepository.getTotalExpensesBetween(month.atDay(1), month.atEndOfMonth()))
+                .compareTo(counters.getMonthlyExpenses()));
+        assertEquals(companyRepository.countByActiveTrue(), counters.getTotalCompanies());
+        assertEquals(clientRepository.countByActiveTrue(), counters.getTotalClients());
+        assertEquals(vehicleRepository.count(), counters.getTotalVehicles());
+        assertEquals(productRepository.countByActiveTrue(), counters.getTotalProducts());
+        assertEquals(serviceRepository.countByActiveTrue(), counters.getTotalServices());
+        assertEquals(supplierRepository.countByActiveTrue(), counters.getTotalSuppliers());
+    }
+
+    // Opt-in with -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void viewIsFasterThanSeparateQueries() {
+        int rounds = 500;
+        separateQueries(50);
+        view(50);
+        long separateNanos = separateQueries(rounds);
+        long viewNanos = view(rounds);
+        System.out.printf("dashboard counters over %d loads: separate queries %.3f ms, view %.3f ms per load%n",
+                rounds, separateNanos / 1e6 / rounds, viewNanos / 1e6 / rounds);
+        assertTrue(viewNanos < separateNanos);
+    }
+
+    private long separateQueries(int rounds) {
+        long started = System.nanoTime();
+        YearMonth month = YearMonth.now();
+        for (int i = 0; i < rounds; i++) {
+            workOrderRepository.countOpenWorkOrders();
+            invoiceRepository.getTotalOutstandingAmount();
+            expenseRepository.getTotalExpensesBetween(month.atDay(1), month.atEndOfMonth());
+            companyRepository.countByActiveTrue();
+            clientRepository.countByActiveTrue();
+            vehicleRepository.count();
+            productRepository.countByActiveTrue();
+            serviceRepository.countByActiveTrue();
+            supplierRepository.countByActiveTrue();
+        }
+        return System.nanoTime() - started;
+    }
+
+    private long view(int rounds) {
+        long started = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            dashboardCountersRepository.findCounters();
+        }
+        return System.nanoTime() - started;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
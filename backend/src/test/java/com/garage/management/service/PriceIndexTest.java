@@ -0,0 +1,172 @@
+package com.garage.management.service;
+
+import com.garage.management.entity.Product;
+import com.garage.management.entity.ProductPriceHistory;
+import com.garage.management.entity.ServiceEntity;
+import com.garage.management.repository.ProductPriceHistoryRepository;
+import com.garage.management.repository.ProductRepository;
+import com.garage.management.repository.ServiceRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Index lookups checked day by day against the history queries, over gaps, overlapping
+// entries and entries sharing a start date. Tests are rolled back, except the one that
+// needs its price changes committed for the index to hear of them
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+@EnabledIfEnvironmentVariable(named = "GARAGE_TEST_DB_URL", matches = ".+")
+class PriceIndexTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 12, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(2026, 7, 1);
+
+    // The history queries' rule with a tie-break, so that overlapping entries give one row
+    private static final String PRICE_AT = "SELECT price FROM %1$s_price_history WHERE %1$s_id = ? " +
+            "AND start_date <= ? AND (end_date IS NULL OR end_date >= ?) ORDER BY start_date DESC, id DESC LIMIT 1";
+
+    @Autowired
+    private PriceIndex priceIndex;
+
+    @Autowired
+    private ProductPriceService productPriceService;
+
+    @Autowired
+    private ProductPriceHistoryRepository productPriceHistoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ServiceRepository serviceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void productLookupsMatchHistoryQueryOverGaps() {
+        Long productId = createProduct();
+        insertHistory("product", productId, "2026-01-01", "2026-01-31", "10.00");
+        insertHistory("product", productId, "2026-03-01", "2026-03-31", "12.00");
+        insertHistory("product", productId, "2026-05-01", null, "15.00");
+        priceIndex.reload();
+
+        for (LocalDate day = FIRST_DAY; !day.isAfter(LAST_DAY); day = day.plusDays(1)) {
+            assertEquals(productPriceHistoryRepository.findCurrentPriceForProduct(productId, day)
+                    .map(ProductPriceHistory::getPrice).orElse(null), priceIndex.productPriceAt(productId, day), day.toString());
+        }
+    }
+
+    @Test
+    void lookupsMatchHistoryOverOverlaps() {
+        Long productId = createProduct();
+        insertOverlappingHistory("product", productId);
+        Long serviceId = createService();
+        insertOverlappingHistory("service", serviceId);
+        priceIndex.reload();
+
+        for (LocalDate day = FIRST_DAY; !day.isAfter(LAST_DAY); day = day.plusDays(1)) {
+            assertEquals(referencePrice("product", productId, day), priceIndex.productPriceAt(productId, day), day.toString());
+            assertEquals(referencePrice("service", serviceId, day), priceIndex.servicePriceAt(serviceId, day), day.toString());
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void priceChangesKeepIndexCoherent() {
+        Long productId = createProduct();
+        try {
+            priceIndex.reload();
+            productPriceService.addNewSellingPrice(productId, new BigDecimal("30.00"), LocalDate.of(2026, 1, 1));
+            productPriceService.addNewSellingPrice(productId, new BigDecimal("32.00"), LocalDate.of(2026, 4, 1));
+
+            for (LocalDate day = FIRST_DAY; !day.isAfter(LAST_DAY); day = day.plusDays(1)) {
+                assertEquals(referencePrice("product", productId, day), priceIndex.productPriceAt(productId, day), day.toString());
+            }
+        } finally {
+            jdbcTemplate.update("DELETE FROM product_price_history WHERE product_id = ?", productId);
+            jdbcTemplate.update("DELETE FROM products WHERE id = ?", productId);
+        }
+    }
+
+    // Opt-in with -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void indexIsFasterThanHistoryQuery() {
+        Long productId = createProduct();
+        insertHistory("product", productId, "2026-01-01", "2026-03-31", "10.00");
+        insertHistory("product", productId, "2026-04-01", null, "12.00");
+        priceIndex.reload();
+        List<LocalDate> days = FIRST_DAY.datesUntil(LAST_DAY).toList();
+
+        int queryLookups = 2_000;
+        long started = System.nanoTime();
+        for (int i = 0; i < queryLookups; i++) {
+            productPriceHistoryRepository.findCurrentPriceForProduct(productId, days.get(i % days.size()));
+        }
+        long queryNanos = (System.nanoTime() - started) / queryLookups;
+
+        int indexLookups = 5_000_000;
+        int found = 0;
+        started = System.nanoTime();
+        for (int i = 0; i < indexLookups; i++) {
+            if (priceIndex.productPriceAt(productId, days.get(i % days.size())) != null) {
+                found++;
+            }
+        }
+        long indexNanos = (System.nanoTime() - started) / indexLookups;
+
+        System.out.printf("price at date: history query %,d ns, index %,d ns per lookup%n", queryNanos, indexNanos);
+        assertTrue(found > 0);
+        assertTrue(indexNanos < 1_000);
+        assertTrue(indexNanos < queryNanos);
+    }
+
+    private void insertOverlappingHistory(String type, Long id) {
+        insertHistory(type, id, "2026-01-01", null, "20.00");
+        insertHistory(type, id, "2026-02-01", "2026-02-28", "21.00");
+        insertHistory(type, id, "2026-02-15", "2026-03-15", "22.00");
+        insertHistory(type, id, "2026-04-01", "2026-04-30", "23.00");
+        insertHistory(type, id, "2026-04-01", "2026-04-10", "24.00");
+        insertHistory(type, id, "2026-06-01", "2026-06-01", "25.00");
+    }
+
+    private BigDecimal referencePrice(String type, Long id, LocalDate day) {
+        List<BigDecimal> prices = jdbcTemplate.queryForList(String.format(PRICE_AT, type), BigDecimal.class, id, day, day);
+        return prices.isEmpty() ? null : prices.get(0);
+    }
+
+    private void insertHistory(String type, Long id, String startDate, String endDate, String price) {
+        jdbcTemplate.update(String.format("INSERT INTO %1$s_price_history (%1$s_id, start_date, end_date, price, created_at) " +
+                        "VALUES (?, ?, ?, ?, NOW())", type),
+                id, LocalDate.parse(startDate), endDate != null ? LocalDate.parse(endDate) : null, new BigDecimal(price));
+    }
+
+    private Long createProduct() {
+        Product product = new Product();
+        product.setCode("PRICE-" + System.nanoTime());
+        product.setName("Price index test");
+        return productRepository.save(product).getId();
+    }
+
+    private Long createService() {
+        ServiceEntity service = new ServiceEntity();
+        service.setCode("PRICE-" + System.nanoTime());
+        service.setName("Price index test");
+        return serviceRepository.save(service).getId();
+    }
+}
@@ -0,0 +1,133 @@
+package com.garage.management.service;
+
+import com.garage.management.repository.ProductPriceHistoryRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// The binary search behind the price index, without a database: of the entries covering
+// a day, the one that started last wins, and among those starting the same day the last
+// one loaded (the highest id)
+class PriceIndexTimelineTest {
+
+    private static final LocalDate JAN_1 = LocalDate.of(2026, 1, 1);
+
+    @Test
+    void emptyTimelineHasNoPrice() {
+        assertNull(timeline().priceAt(JAN_1.toEpochDay()));
+    }
+
+    @Test
+    void gapsAndOpenEndHaveTheirOwnPrice() {
+        PriceIndex.Timeline timeline = timeline(
+                entry("2026-01-01", "2026-01-31", "10.00"),
+                entry("2026-03-01", "2026-03-31", "12.00"),
+                entry("2026-05-01", null, "15.00"));
+
+        assertNull(priceAt(timeline, "2025-12-31"));
+        assertEquals(new BigDecimal("10.00"), priceAt(timeline, "2026-01-01"));
+        assertEquals(new BigDecimal("10.00"), priceAt(timeline, "2026-01-31"));
+        assertNull(priceAt(timeline, "2026-02-01"));
+        assertEquals(new BigDecimal("12.00"), priceAt(timeline, "2026-03-15"));
+        assertNull(priceAt(timeline, "2026-04-30"));
+        assertEquals(new BigDecimal("15.00"), priceAt(timeline, "2026-05-01"));
+        assertEquals(new BigDecimal("15.00"), priceAt(timeline, "2099-12-31"));
+    }
+
+    @Test
+    void laterStartWinsAndEarlierEntryResumesAfterItEnds() {
+        PriceIndex.Timeline timeline = timeline(
+                entry("2026-01-01", null, "20.00"),
+                entry("2026-02-01", "2026-02-28", "21.00"),
+                entry("2026-02-15", "2026-03-15", "22.00"));
+
+        assertEquals(new BigDecimal("20.00"), priceAt(timeline, "2026-01-31"));
+        assertEquals(new BigDecimal("21.00"), priceAt(timeline, "2026-02-14"));
+        assertEquals(new BigDecimal("22.00"), priceAt(timeline, "2026-02-15"));
+        assertEquals(new BigDecimal("22.00"), priceAt(timeline, "2026-03-15"));
+        assertEquals(new BigDecimal("20.00"), priceAt(timeline, "2026-03-16"));
+    }
+
+    @Test
+    void sameStartDateGoesToTheLastEntryStillCovering() {
+        PriceIndex.Timeline timeline = timeline(
+                entry("2026-04-01", "2026-04-30", "23.00"),
+                entry("2026-04-01", "2026-04-10", "24.00"),
+                entry("2026-06-01", "2026-06-01", "25.00"));
+
+        assertEquals(new BigDecimal("24.00"), priceAt(timeline, "2026-04-01"));
+        assertEquals(new BigDecimal("24.00"), priceAt(timeline, "2026-04-10"));
+        assertEquals(new BigDecimal("23.00"), priceAt(timeline, "2026-04-11"));
+        assertNull(priceAt(timeline, "2026-05-31"));
+        assertEquals(new BigDecimal("25.00"), priceAt(timeline, "2026-06-01"));
+        assertNull(priceAt(timeline, "2026-06-02"));
+    }
+
+    @Test
+    void randomHistoriesMatchLinearScan() {
+        Random random = new Random(7);
+        for (int round = 0; round < 500; round++) {
+            List<Entry> entries = new ArrayList<>();
+            int size = random.nextInt(12);
+            for (int i = 0; i < size; i++) {
+                LocalDate start = JAN_1.plusDays(random.nextInt(120));
+                LocalDate end = random.nextInt(4) == 0 ? null : start.plusDays(random.nextInt(40));
+                entries.add(new Entry(start, end, BigDecimal.valueOf(round * 100L + i)));
+            }
+            // Loaded ordered by start date and id; the stable sort keeps insertion as the id order
+            entries.sort(Comparator.comparing(Entry::getStartDate));
+            PriceIndex.Timeline timeline = new PriceIndex.Timeline(new ArrayList<>(entries));
+
+            for (LocalDate day = JAN_1.minusDays(5); day.isBefore(JAN_1.plusDays(170)); day = day.plusDays(1)) {
+                assertEquals(linearScan(entries, day), timeline.priceAt(day.toEpochDay()), day.toString());
+            }
+        }
+    }
+
+    private static BigDecimal linearScan(List<Entry> entries, LocalDate day) {
+        Entry found = null;
+        for (Entry entry : entries) {
+            boolean covers = !entry.start.isAfter(day) && (entry.end == null || !entry.end.isBefore(day));
+            if (covers && (found == null || !entry.start.isBefore(found.start))) {
+                found = entry;
+            }
+        }
+        return found != null ? found.price : null;
+    }
+
+    private static BigDecimal priceAt(PriceIndex.Timeline timeline, String day) {
+        return timeline.priceAt(LocalDate.parse(day).toEpochDay());
+    }
+
+    private static PriceIndex.Timeline timeline(Entry... entries) {
+        return new PriceIndex.Timeline(List.of(entries));
+    }
+
+    private static Entry entry(String start, String end, String price) {
+        return new Entry(LocalDate.parse(start), end != null ? LocalDate.parse(end) : null, new BigDecimal(price));
+    }
+
+    private record Entry(LocalDate start, LocalDate end, BigDecimal price)
+            implements ProductPriceHistoryRepository.PriceHistoryEntry {
+
+        @Override
+        public Long getItemId() { return 1L; }
+
+        @Override
+        public LocalDate getStartDate() { return start; }
+
+        @Override
+        public LocalDate getEndDate() { return end; }
+
+        @Override
+        public BigDecimal getPrice() { return price; }
+    }
+}
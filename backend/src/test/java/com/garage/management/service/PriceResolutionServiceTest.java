@@ -0,0 +1,158 @@
+package com.garage.management.service;
+
+import com.garage.management.entity.Product;
+import com.garage.management.entity.ServiceEntity;
+import com.garage.management.enums.CategoryType;
+import com.garage.management.repository.ProductRepository;
+import com.garage.management.repository.ServiceRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Batch resolution checked query by query against a SQL statement applying the same rule:
+// the history entry in effect, else the selling price, else zero, and null for unknown items.
+// Each test is rolled back
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+@EnabledIfEnvironmentVariable(named = "GARAGE_TEST_DB_URL", matches = ".+")
+class PriceResolutionServiceTest {
+
+    private static final String REFERENCE = "SELECT CASE WHEN i.id IS NULL THEN NULL ELSE COALESCE(" +
+            "(SELECT h.price FROM %1$s_price_history h WHERE h.%1$s_id = i.id AND h.start_date <= ? " +
+            "AND (h.end_date IS NULL OR h.end_date >= ?) ORDER BY h.start_date DESC, h.id DESC LIMIT 1), " +
+            "i.selling_price, 0) END FROM (SELECT 1) d LEFT JOIN %2$s i ON i.id = ?";
+
+    @Autowired
+    private PriceResolutionService priceResolutionService;
+
+    @Autowired
+    private PriceIndex priceIndex;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ServiceRepository serviceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void resolveMatchesReferenceQuery() {
+        Long withHistory = createProduct(new BigDecimal("50.00"));
+        insertHistory("product", withHistory, "2026-01-01", "2026-02-28", "40.00");
+        insertHistory("product", withHistory, "2026-04-01", null, "45.00");
+        Long sellingPriceOnly = createProduct(new BigDecimal("18.00"));
+        Long noPrice = createProduct(null);
+        Long serviceWithHistory = createService(new BigDecimal("80.00"));
+        insertHistory("service", serviceWithHistory, "2026-02-01", null, "75.00");
+        Long serviceNoPrice = createService(null);
+        priceIndex.reload();
+
+        List<PriceResolutionService.PriceQuery> queries = new ArrayList<>();
+        for (LocalDate day = LocalDate.of(2025, 12, 15); day.isBefore(LocalDate.of(2026, 6, 1)); day = day.plusDays(9)) {
+            queries.add(query(CategoryType.PRODUCT, withHistory, day));
+            queries.add(query(CategoryType.PRODUCT, sellingPriceOnly, day));
+            queries.add(query(CategoryType.PRODUCT, noPrice, day));
+            queries.add(query(CategoryType.PRODUCT, -1L, day));
+            queries.add(query(CategoryType.SERVICE, serviceWithHistory, day));
+            queries.add(query(CategoryType.SERVICE, serviceNoPrice, day));
+            queries.add(query(CategoryType.SERVICE, -1L, day));
+        }
+        queries.add(query(CategoryType.PRODUCT, withHistory, null));
+
+        List<BigDecimal> prices = priceResolutionService.resolve(queries);
+
+        assertEquals(queries.size(), prices.size());
+        for (int i = 0; i < queries.size(); i++) {
+            assertEquals(referencePrice(queries.get(i)), prices.get(i), "query " + i);
+        }
+    }
+
+    @Test
+    void rejectsQueriesWithoutTypeOrId() {
+        PriceResolutionService.PriceQuery query = new PriceResolutionService.PriceQuery();
+        query.type = CategoryType.PRODUCT;
+        assertThrows(IllegalArgumentException.class, () -> priceResolutionService.resolve(List.of(query)));
+    }
+
+    // Opt-in with -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void batchIsFasterThanQueryPerItem() {
+        List<PriceResolutionService.PriceQuery> queries = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Long productId = createProduct(new BigDecimal("10.00"));
+            if (i % 2 == 0) {
+                insertHistory("product", productId, "2026-01-01", null, "12.00");
+            }
+            queries.add(query(CategoryType.PRODUCT, productId, LocalDate.of(2026, 3, 1)));
+        }
+        priceIndex.reload();
+        priceResolutionService.resolve(queries);
+
+        long started = System.nanoTime();
+        priceResolutionService.resolve(queries);
+        long batchNanos = System.nanoTime() - started;
+
+        started = System.nanoTime();
+        queries.forEach(this::referencePrice);
+        long perItemNanos = System.nanoTime() - started;
+
+        System.out.printf("500 prices: batch %.2f ms, one query per item %.2f ms%n", batchNanos / 1e6, perItemNanos / 1e6);
+        assertTrue(batchNanos < perItemNanos);
+    }
+
+    private BigDecimal referencePrice(PriceResolutionService.PriceQuery query) {
+        LocalDate date = query.date != null ? query.date : LocalDate.now();
+        String sql = query.type == CategoryType.PRODUCT
+                ? String.format(REFERENCE, "product", "products")
+                : String.format(REFERENCE, "service", "services");
+        return jdbcTemplate.queryForObject(sql, BigDecimal.class, date, date, query.id);
+    }
+
+    private static PriceResolutionService.PriceQuery query(CategoryType type, Long id, LocalDate date) {
+        PriceResolutionService.PriceQuery query = new PriceResolutionService.PriceQuery();
+        query.type = type;
+        query.id = id;
+        query.date = date;
+        return query;
+    }
+
+    private void insertHistory(String type, Long id, String startDate, String endDate, String price) {
+        jdbcTemplate.update(String.format("INSERT INTO %1$s_price_history (%1$s_id, start_date, end_date, price, created_at) " +
+                        "VALUES (?, ?, ?, ?, NOW())", type),
+                id, LocalDate.parse(startDate), endDate != null ? LocalDate.parse(endDate) : null, new BigDecimal(price));
+    }
+
+    private Long createProduct(BigDecimal sellingPrice) {
+        Product product = new Product();
+        product.setCode("RESOLVE-" + System.nanoTime());
+        product.setName("Price resolution test");
+        product.setSellingPrice(sellingPrice);
+        return productRepository.save(product).getId();
+    }
+
+    private Long createService(BigDecimal sellingPrice) {
+        ServiceEntity service = new ServiceEntity();
+        service.setCode("RESOLVE-" + System.nanoTime());
+        service.setName("Price resolution test");
+        service.setSellingPrice(sellingPrice);
+        return serviceRepository.save(service).getId();
+    }
+}
@@ -0,0 +1,93 @@
+package com.garage.management.service;
+
+import com.garage.management.entity.Product;
+import com.garage.management.entity.StockMovement;
+import com.garage.management.enums.StockMovementType;
+import com.garage.management.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Movements from several threads each commit on their own, so the test cannot run in a
+// rolled-back transaction and deletes what it wrote instead
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "GARAGE_TEST_DB_URL", matches = ".+")
+class StockConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int MOVEMENTS = 4_000;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long productId;
+
+    @AfterEach
+    void deleteProduct() {
+        if (productId != null) {
+            jdbcTemplate.update("DELETE FROM stock_movements WHERE product_id = ?", productId);
+            jdbcTemplate.update("DELETE FROM stock_snapshots WHERE product_id = ?", productId);
+            jdbcTemplate.update("DELETE FROM products WHERE id = ?", productId);
+        }
+    }
+
+    @Test
+    void concurrentMovementsKeepCurrentStockEqualToLedger() throws Exception {
+        Product product = new Product();
+        product.setCode("STRESS-" + System.nanoTime());
+        product.setName("Stock stress test");
+        Long productId = productRepository.save(product).getId();
+        this.productId = productId;
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < MOVEMENTS; i++) {
+                int n = i;
+                results.add(executor.submit(() -> {
+                    StockMovement movement = stockService.addStockMovement(productId,
+                            n % 3 == 0 ? -2 : 5, n % 3 == 0 ? StockMovementType.CONSUMPTION : StockMovementType.PURCHASE,
+                            "stress " + n);
+                    if (n % 4 == 0) {
+                        stockMovementService.deleteMovement(movement.getId());
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Integer ledger = jdbcTemplate.queryForObject(
+                "SELECT CAST(COALESCE(SUM(quantity_delta), 0) AS INTEGER) FROM stock_movements WHERE product_id = ?",
+                Integer.class, productId);
+        Integer currentStock = productRepository.findById(productId).orElseThrow().getCurrentStock();
+
+        assertEquals(ledger, currentStock);
+        assertEquals(ledger, stockService.computeCurrentStock(productId));
+    }
+}